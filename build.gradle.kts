@@ -21,11 +21,21 @@ repositories {
     mavenCentral()
 }
 
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
 dependencies {
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.8.1")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.8.1")
 
     compileOnly("org.jetbrains:annotations:23.0.0")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.compileJava {
@@ -33,6 +43,24 @@ tasks.compileJava {
     targetCompatibility = "1.8"
 }
 
+// Runs the benchmarks in src/jmh with the GC profiler, so gc.alloc.rate.norm is reported next to the throughput.
+// Extra JMH arguments can be passed with -PjmhArgs, for example: ./gradlew jmh -PjmhArgs="DataIoBenchmark -f 1"
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks."
+
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    val results = layout.buildDirectory.file("reports/jmh/results.json")
+    outputs.file(results)
+    outputs.upToDateWhen { false }
+    doFirst { results.get().asFile.parentFile.mkdirs() }
+
+    args("-prof", "gc", "-rf", "json", "-rff", results.get().asFile.path)
+    project.findProperty("jmhArgs")?.let { args(it.toString().split(" ").filter(String::isNotBlank)) }
+}
+
 java {
     withSourcesJar()
     withJavadocJar()
@@ -0,0 +1,224 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.DataTypeRegistry;
+import dev.ultreon.ubo.types.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the bulk array codec used by the array types against the per-element {@link DataOutput}/{@link DataInput}
+ * calls it replaced. The {@code element*} benchmarks are the old implementation, kept here as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ArrayCodecBenchmark {
+    public enum Kind {
+        BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE, BIT_SET, BIG_DEC
+    }
+
+    @Param
+    public Kind kind;
+
+    /**
+     * Number of bytes in the payload, from a small chunk section up to a large region array.
+     */
+    @Param({"65536", "4194304"})
+    public int bytes;
+
+    private DataType<?> value;
+    private byte[] encoded;
+    private ByteArrayOutputStream buffer;
+    private DataOutputStream output;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random random = new Random(0x5EED);
+        byte[] raw = new byte[bytes];
+        random.nextBytes(raw);
+        raw[raw.length - 1] |= 1; // Keep the bit set at full length.
+
+        switch (kind) {
+            case BYTE:
+                value = new ByteArrayType(raw);
+                break;
+            case SHORT:
+                short[] shorts = new short[bytes / Short.BYTES];
+                for (int i = 0; i < shorts.length; i++) shorts[i] = (short) random.nextInt();
+                value = new ShortArrayType(shorts);
+                break;
+            case CHAR:
+                char[] chars = new char[bytes / Character.BYTES];
+                for (int i = 0; i < chars.length; i++) chars[i] = (char) random.nextInt();
+                value = new CharArrayType(chars);
+                break;
+            case INT:
+                int[] ints = new int[bytes / Integer.BYTES];
+                for (int i = 0; i < ints.length; i++) ints[i] = random.nextInt();
+                value = new IntArrayType(ints);
+                break;
+            case LONG:
+                long[] longs = new long[bytes / Long.BYTES];
+                for (int i = 0; i < longs.length; i++) longs[i] = random.nextLong();
+                value = new LongArrayType(longs);
+                break;
+            case FLOAT:
+                float[] floats = new float[bytes / Float.BYTES];
+                for (int i = 0; i < floats.length; i++) floats[i] = random.nextFloat();
+                value = new FloatArrayType(floats);
+                break;
+            case DOUBLE:
+                double[] doubles = new double[bytes / Double.BYTES];
+                for (int i = 0; i < doubles.length; i++) doubles[i] = random.nextDouble();
+                value = new DoubleArrayType(doubles);
+                break;
+            case BIT_SET:
+                // Bit sets are limited to 32767 bytes by the format.
+                value = new BitSetType(BitSet.valueOf(Arrays.copyOf(raw, Math.min(raw.length, 32767))));
+                break;
+            case BIG_DEC:
+                value = new BigDecType(new BigDecimal(new BigInteger(raw), 16));
+                break;
+            default:
+                throw new IllegalStateException("Unknown kind: " + kind);
+        }
+
+        buffer = new ByteArrayOutputStream(bytes + 64);
+        output = new DataOutputStream(buffer);
+        value.write(output);
+        encoded = buffer.toByteArray();
+    }
+
+    @Benchmark
+    public int bulkWrite() throws IOException {
+        buffer.reset();
+        value.write(output);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public DataType<?> bulkRead() throws IOException {
+        return DataTypeRegistry.read(value.id(), new DataInputStream(new ByteArrayInputStream(encoded)));
+    }
+
+    @Benchmark
+    public int elementWrite() throws IOException {
+        buffer.reset();
+        switch (kind) {
+            case BYTE:
+                byte[] array = ((ByteArrayType) value).getValue();
+                output.writeInt(array.length);
+                for (byte b : array) output.writeByte(b);
+                break;
+            case SHORT:
+                short[] shorts = ((ShortArrayType) value).getValue();
+                output.writeInt(shorts.length);
+                for (short s : shorts) output.writeShort(s);
+                break;
+            case CHAR:
+                char[] chars = ((CharArrayType) value).getValue();
+                output.writeInt(chars.length);
+                for (char c : chars) output.writeChar(c);
+                break;
+            case INT:
+                int[] ints = ((IntArrayType) value).getValue();
+                output.writeInt(ints.length);
+                for (int i : ints) output.writeInt(i);
+                break;
+            case LONG:
+                long[] longs = ((LongArrayType) value).getValue();
+                output.writeInt(longs.length);
+                for (long l : longs) output.writeLong(l);
+                break;
+            case FLOAT:
+                float[] floats = ((FloatArrayType) value).getValue();
+                output.writeInt(floats.length);
+                for (float f : floats) output.writeFloat(f);
+                break;
+            case DOUBLE:
+                double[] doubles = ((DoubleArrayType) value).getValue();
+                output.writeInt(doubles.length);
+                for (double d : doubles) output.writeDouble(d);
+                break;
+            case BIT_SET:
+                byte[] bits = ((BitSetType) value).getValue().toByteArray();
+                output.writeShort(bits.length);
+                for (byte b : bits) output.writeByte(b);
+                break;
+            case BIG_DEC:
+                BigDecimal decimal = ((BigDecType) value).getValue();
+                byte[] unscaled = decimal.unscaledValue().toByteArray();
+                output.writeInt(unscaled.length);
+                output.writeInt(decimal.scale());
+                for (byte b : unscaled) output.writeByte(b);
+                break;
+        }
+
+        return buffer.size();
+    }
+
+    @Benchmark
+    public Object elementRead() throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(encoded));
+        switch (kind) {
+            case BYTE: {
+                byte[] arr = new byte[input.readInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = input.readByte();
+                return arr;
+            }
+            case SHORT: {
+                short[] arr = new short[input.readInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = input.readShort();
+                return arr;
+            }
+            case CHAR: {
+                char[] arr = new char[input.readInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = input.readChar();
+                return arr;
+            }
+            case INT: {
+                int[] arr = new int[input.readInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = input.readInt();
+                return arr;
+            }
+            case LONG: {
+                long[] arr = new long[input.readInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = input.readLong();
+                return arr;
+            }
+            case FLOAT: {
+                float[] arr = new float[input.readInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = input.readFloat();
+                return arr;
+            }
+            case DOUBLE: {
+                double[] arr = new double[input.readInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = input.readDouble();
+                return arr;
+            }
+            case BIT_SET: {
+                byte[] arr = new byte[input.readUnsignedShort()];
+                for (int i = 0; i < arr.length; i++) arr[i] = input.readByte();
+                return BitSet.valueOf(arr);
+            }
+            case BIG_DEC: {
+                byte[] arr = new byte[input.readInt()];
+                int scale = input.readInt();
+                for (int i = 0; i < arr.length; i++) arr[i] = input.readByte();
+                return new BigDecimal(new BigInteger(arr), scale);
+            }
+            default:
+                throw new IllegalStateException("Unknown kind: " + kind);
+        }
+    }
+}
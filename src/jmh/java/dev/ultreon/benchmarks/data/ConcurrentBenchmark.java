@@ -0,0 +1,46 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.types.ConcurrentMapType;
+import dev.ultreon.ubo.types.MapType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updates counters in a map shared by four threads, behind a global lock and in a {@link ConcurrentMapType}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@Threads(4)
+public class ConcurrentBenchmark {
+    private static final String[] KEYS = new String[256];
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = "counter" + i;
+        }
+    }
+
+    private final MapType locked = new MapType();
+    private final ConcurrentMapType concurrent = new ConcurrentMapType();
+
+    @Benchmark
+    public int locked() {
+        String key = KEYS[ThreadLocalRandom.current().nextInt(KEYS.length)];
+        synchronized (locked) {
+            int value = locked.getInt(key) + 1;
+            locked.putInt(key, value);
+            return value;
+        }
+    }
+
+    @Benchmark
+    public int concurrent() {
+        return concurrent.addInt(KEYS[ThreadLocalRandom.current().nextInt(KEYS.length)], 1);
+    }
+}
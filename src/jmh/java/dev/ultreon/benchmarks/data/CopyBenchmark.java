@@ -0,0 +1,61 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.types.IntType;
+import dev.ultreon.ubo.types.MapType;
+import dev.ultreon.ubo.types.PersistentMapType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures copying the trees from {@link Trees} eagerly and on write, alone and followed by a change to the copy, and
+ * publishing a changed version of a {@link PersistentMapType}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CopyBenchmark {
+    @Param
+    public Trees.Shape shape;
+
+    private MapType tree;
+    private PersistentMapType persistent;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tree = shape.create();
+        persistent = PersistentMapType.of(tree);
+    }
+
+    @Benchmark
+    public MapType copy() {
+        return tree.copy();
+    }
+
+    @Benchmark
+    public MapType copyAndPut() {
+        MapType copy = tree.copy();
+        copy.putInt("version", 1);
+        return copy;
+    }
+
+    @Benchmark
+    public MapType copyOnWrite() {
+        return tree.copyOnWrite();
+    }
+
+    @Benchmark
+    public MapType copyOnWriteAndPut() {
+        MapType copy = tree.copyOnWrite();
+        copy.putInt("version", 1);
+        return copy;
+    }
+
+    @Benchmark
+    public PersistentMapType persistentWith() {
+        return persistent.with("version", new IntType(1));
+    }
+}
@@ -0,0 +1,152 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.DataFlags;
+import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.UboReader;
+import dev.ultreon.ubo.types.MapType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the binary codec in {@link DataIo}, plain and compressed, over the trees from {@link Trees}.
+ * <p>
+ * Run with {@code ./gradlew jmh -PjmhArgs="DataIoBenchmark"}, the GC profiler adds {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DataIoBenchmark {
+    @Param
+    public Trees.Shape shape;
+
+    private MapType tree;
+    private byte[] encoded;
+    private byte[] compressed;
+    private byte[] varint;
+    private byte[] dictionary;
+    private byte[] columnar;
+    private ByteArrayOutputStream output;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tree = shape.create();
+
+        output = new ByteArrayOutputStream();
+        DataIo.write(tree, output);
+        encoded = output.toByteArray();
+
+        output.reset();
+        DataIo.writeCompressed(tree, output);
+        compressed = output.toByteArray();
+
+        varint = DataIo.toBytes(tree, DataFlags.VARINT);
+        dictionary = DataIo.toBytes(tree, DataFlags.KEY_DICTIONARY);
+        columnar = DataIo.toBytes(tree, DataFlags.COLUMNAR);
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        output.reset();
+        DataIo.write(tree, output);
+        return output.size();
+    }
+
+    /**
+     * Writes into a fresh, exactly presized array, where {@link #write()} reuses an already grown stream.
+     */
+    @Benchmark
+    public byte[] toBytes() throws IOException {
+        return DataIo.toBytes(tree);
+    }
+
+    @Benchmark
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataIo.write(tree, bytes);
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public MapType read() throws IOException {
+        return DataIo.read(new ByteArrayInputStream(encoded));
+    }
+
+    @Benchmark
+    public int writeVarint() throws IOException {
+        output.reset();
+        DataIo.write(tree, output, DataFlags.VARINT);
+        return output.size();
+    }
+
+    /**
+     * Varints are decoded a byte at a time, so they are read from a buffer rather than a stream.
+     */
+    @Benchmark
+    public MapType readVarint() throws IOException {
+        return DataIo.read(ByteBuffer.wrap(varint));
+    }
+
+    @Benchmark
+    public int writeKeyDictionary() throws IOException {
+        output.reset();
+        DataIo.write(tree, output, DataFlags.KEY_DICTIONARY);
+        return output.size();
+    }
+
+    @Benchmark
+    public MapType readKeyDictionary() throws IOException {
+        return DataIo.read(new ByteArrayInputStream(dictionary));
+    }
+
+    @Benchmark
+    public int writeColumnar() throws IOException {
+        output.reset();
+        DataIo.write(tree, output, DataFlags.COLUMNAR);
+        return output.size();
+    }
+
+    @Benchmark
+    public MapType readColumnar() throws IOException {
+        return DataIo.read(new ByteArrayInputStream(columnar));
+    }
+
+    /**
+     * Reads the same data as {@link #read()} without decoding the values, as when only a few keys are needed.
+     */
+    @Benchmark
+    public MapType readLazy() throws IOException {
+        return DataIo.readLazy(encoded);
+    }
+
+    /**
+     * Walks the same data as {@link #read()} with {@link UboReader}, without building the tree.
+     */
+    @Benchmark
+    public int scan() throws IOException {
+        int events = 0;
+        try (UboReader reader = new UboReader(new ByteArrayInputStream(encoded))) {
+            while (reader.next() != UboReader.Event.END_DOCUMENT) events++;
+        }
+        return events;
+    }
+
+    @Benchmark
+    public int writeCompressed() throws IOException {
+        output.reset();
+        DataIo.writeCompressed(tree, output);
+        return output.size();
+    }
+
+    @Benchmark
+    public MapType readCompressed() throws IOException {
+        return DataIo.readCompressed(new ByteArrayInputStream(compressed));
+    }
+}
@@ -0,0 +1,63 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.UboView;
+import dev.ultreon.ubo.types.MapType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a single field out of a cached save blob, by decoding it fully, lazily, projected, or through the index of the
+ * version 4 layout with {@link UboView}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class FieldAccessBenchmark {
+    @Param({"16", "5000"})
+    public int keys;
+
+    private byte[] sequential;
+    private ByteBuffer indexed;
+    private String key;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        MapType tree = Trees.flatMap(keys);
+        key = "int" + (keys / 8 * 4);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataIo.write(tree, output);
+        sequential = output.toByteArray();
+        indexed = DataIo.writeIndexed(tree);
+    }
+
+    @Benchmark
+    public int read() throws IOException {
+        MapType map = DataIo.read(ByteBuffer.wrap(sequential));
+        return map.getInt(key);
+    }
+
+    @Benchmark
+    public int readLazy() throws IOException {
+        return DataIo.readLazy(sequential).getInt(key);
+    }
+
+    @Benchmark
+    public int readProjected() throws IOException {
+        return DataIo.readProjected(ByteBuffer.wrap(sequential), Collections.singleton(key)).getInt(key);
+    }
+
+    @Benchmark
+    public int view() throws IOException {
+        return UboView.of(indexed).getInt(key, 0);
+    }
+}
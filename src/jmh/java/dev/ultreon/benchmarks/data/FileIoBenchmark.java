@@ -0,0 +1,80 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.types.MapType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link java.io.DataInput}/{@link java.io.DataOutput} stream stack against the channel and buffer based
+ * codec path of {@link DataIo}, on real files and in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FileIoBenchmark {
+    @Param({"FLAT_MAP", "LONG_ARRAY", "MAP_LIST"})
+    public Trees.Shape shape;
+
+    private MapType tree;
+    private byte[] encoded;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tree = shape.create();
+        file = Files.createTempFile("ubo-bench", ".ubo");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataIo.write(tree, output);
+        encoded = output.toByteArray();
+        Files.write(file, encoded);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void streamWrite() throws IOException {
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file), 4096)) {
+            DataIo.write(tree, stream);
+        }
+    }
+
+    @Benchmark
+    public void channelWrite() throws IOException {
+        DataIo.write(tree, file);
+    }
+
+    @Benchmark
+    public MapType streamRead() throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), 4096)) {
+            return DataIo.read(stream);
+        }
+    }
+
+    @Benchmark
+    public MapType channelRead() throws IOException {
+        return DataIo.read(file);
+    }
+
+    @Benchmark
+    public MapType memoryStreamRead() throws IOException {
+        return DataIo.read(new ByteArrayInputStream(encoded));
+    }
+
+    @Benchmark
+    public MapType memoryBufferRead() throws IOException {
+        return DataIo.read(ByteBuffer.wrap(encoded));
+    }
+}
@@ -0,0 +1,54 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.types.IntType;
+import dev.ultreon.ubo.types.ListType;
+import dev.ultreon.ubo.types.StringType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterates lists of 100k elements, packed ints and strings, with for-each and with streams.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ListIterationBenchmark {
+    private final ListType<IntType> ints = new ListType<>();
+    private final ListType<StringType> strings = new ListType<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < 100_000; i++) {
+            ints.addInt(i);
+            strings.add(new StringType(Integer.toString(i)));
+        }
+    }
+
+    @Benchmark
+    public long forEachInts() {
+        long sum = 0;
+        for (IntType value : ints) sum += value.getValue();
+        return sum;
+    }
+
+    @Benchmark
+    public long forEachStrings() {
+        long sum = 0;
+        for (StringType value : strings) sum += value.getValue().length();
+        return sum;
+    }
+
+    @Benchmark
+    public long streamInts() {
+        return ints.stream().mapToLong(IntType::getValue).sum();
+    }
+
+    @Benchmark
+    public long parallelStreamInts() {
+        return ints.parallelStream().mapToLong(IntType::getValue).sum();
+    }
+}
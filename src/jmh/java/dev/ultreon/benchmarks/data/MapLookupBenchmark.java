@@ -0,0 +1,48 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.types.IntType;
+import dev.ultreon.ubo.types.ListType;
+import dev.ultreon.ubo.types.MapType;
+import dev.ultreon.ubo.util.CompactMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the same key in every map of a list of entity-like maps, by string and through a {@link CompactMap.Key}
+ * that remembers the key's position in the shape the maps share.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class MapLookupBenchmark {
+    private static final CompactMap.Key AGE = new CompactMap.Key("age");
+
+    private ListType<MapType> entities;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        entities = Trees.mapList(10_000).getList("Entities");
+    }
+
+    @Benchmark
+    public long byString() {
+        long sum = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            sum += ((IntType) entities.get(i).get("age")).getValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long byKey() {
+        long sum = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            sum += ((IntType) entities.get(i).get(AGE)).getValue();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,84 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.UboRegionFile;
+import dev.ultreon.ubo.types.MapType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Stores and loads many small records, once as a file per record and once as slots of a {@link UboRegionFile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class RegionFileBenchmark {
+    @Param({"1024"})
+    public int records;
+
+    private MapType record;
+    private Path directory;
+    private UboRegionFile region;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        record = Trees.flatMap(64);
+        directory = Files.createTempDirectory("ubo-region-bench");
+        region = UboRegionFile.open(directory.resolve("region.ubr"), records);
+        for (int i = 0; i < records; i++) {
+            DataIo.write(record, directory.resolve(i + ".ubo"));
+            region.write(i, record);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        region.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void filesWrite() throws IOException {
+        for (int i = 0; i < records; i++) {
+            DataIo.write(record, directory.resolve(i + ".ubo"));
+        }
+    }
+
+    @Benchmark
+    public void regionWrite() throws IOException {
+        for (int i = 0; i < records; i++) {
+            region.write(i, record);
+        }
+    }
+
+    @Benchmark
+    public int filesRead() throws IOException {
+        int size = 0;
+        for (int i = 0; i < records; i++) {
+            MapType read = DataIo.read(directory.resolve(i + ".ubo"));
+            size += read.size();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public int regionRead() throws IOException {
+        int size = 0;
+        for (int i = 0; i < records; i++) {
+            MapType read = region.read(i);
+            size += read.size();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,193 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.types.*;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generators for the data trees used by the benchmarks.
+ * <p>
+ * Every tree is rooted in a {@link MapType}, like the save files written by the game, and is generated from a fixed
+ * seed so runs can be compared with each other.
+ */
+public class Trees {
+    static final long SEED = 0x5EED_DA7AL;
+
+    public enum Shape {
+        /**
+         * One map with thousands of primitive entries.
+         */
+        FLAT_MAP,
+        /**
+         * A chain of maps nested deeply inside each other, every level holding a few primitives.
+         */
+        NESTED_MAP,
+        /**
+         * A single large {@link IntArrayType} payload.
+         */
+        INT_ARRAY,
+        /**
+         * A single large {@link LongArrayType} payload.
+         */
+        LONG_ARRAY,
+        /**
+         * A single large {@link ByteArrayType} payload.
+         */
+        BYTE_ARRAY,
+        /**
+         * A {@link ListType} of 100k entity-like maps.
+         */
+        MAP_LIST,
+        /**
+         * A {@link ListType} of 256k {@link IntType} elements, the list counterpart of {@link #INT_ARRAY}.
+         */
+        INT_LIST,
+        /**
+         * A {@link ListType} of 20k chat lines, mostly ASCII with some accented and symbol text.
+         */
+        TEXT;
+
+        public MapType create() {
+            switch (this) {
+                case FLAT_MAP:
+                    return flatMap(5000);
+                case NESTED_MAP:
+                    return nestedMap(64);
+                case INT_ARRAY:
+                    return intArray(1 << 18);
+                case LONG_ARRAY:
+                    return longArray(1 << 17);
+                case BYTE_ARRAY:
+                    return byteArray(1 << 20);
+                case MAP_LIST:
+                    return mapList(100_000);
+                case INT_LIST:
+                    return intList(1 << 18);
+                case TEXT:
+                    return text(20_000);
+                default:
+                    throw new IllegalStateException("Unknown shape: " + this);
+            }
+        }
+    }
+
+    public static MapType flatMap(int keys) {
+        Random random = new Random(SEED);
+        MapType map = new MapType();
+        for (int i = 0; i < keys; i++) {
+            switch (i % 4) {
+                case 0:
+                    map.putInt("int" + i, random.nextInt());
+                    break;
+                case 1:
+                    map.putLong("long" + i, random.nextLong());
+                    break;
+                case 2:
+                    map.putDouble("double" + i, random.nextDouble());
+                    break;
+                default:
+                    map.putString("string" + i, Long.toHexString(random.nextLong()));
+                    break;
+            }
+        }
+
+        return map;
+    }
+
+    public static MapType nestedMap(int depth) {
+        Random random = new Random(SEED);
+        MapType root = new MapType();
+        MapType current = root;
+        for (int i = 0; i < depth; i++) {
+            current.putInt("level", i);
+            current.putLong("seed", random.nextLong());
+            current.putString("name", "Level " + i);
+            current.putBoolean("leaf", false);
+
+            MapType child = new MapType();
+            current.put("Child", child);
+            current = child;
+        }
+
+        current.putBoolean("leaf", true);
+        return root;
+    }
+
+    public static MapType intArray(int length) {
+        Random random = new Random(SEED);
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = random.nextInt();
+        }
+
+        return new MapType("Data", new IntArrayType(array));
+    }
+
+    public static MapType intList(int length) {
+        Random random = new Random(SEED);
+        ListType<IntType> list = new ListType<>();
+        for (int i = 0; i < length; i++) {
+            list.add(new IntType(random.nextInt()));
+        }
+
+        return new MapType("Data", list);
+    }
+
+    public static MapType longArray(int length) {
+        Random random = new Random(SEED);
+        long[] array = new long[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = random.nextLong();
+        }
+
+        return new MapType("Data", new LongArrayType(array));
+    }
+
+    public static MapType byteArray(int length) {
+        Random random = new Random(SEED);
+        byte[] array = new byte[length];
+        random.nextBytes(array);
+
+        return new MapType("Data", new ByteArrayType(array));
+    }
+
+    public static MapType mapList(int entries) {
+        Random random = new Random(SEED);
+        ListType<MapType> list = new ListType<>();
+        for (int i = 0; i < entries; i++) {
+            MapType entity = new MapType();
+            entity.putUUID("uuid", new UUID(random.nextLong(), random.nextLong()));
+            entity.putString("type", "zombie");
+            entity.putDouble("x", random.nextDouble() * 1024);
+            entity.putDouble("y", random.nextDouble() * 256);
+            entity.putDouble("z", random.nextDouble() * 1024);
+            entity.putFloat("health", random.nextFloat() * 20);
+            entity.putInt("age", random.nextInt(24000));
+            entity.putBoolean("onGround", random.nextBoolean());
+            list.add(entity);
+        }
+
+        return new MapType("Entities", list);
+    }
+
+    public static MapType text(int lines) {
+        Random random = new Random(SEED);
+        String[] words = {"the", "creeper", "blew", "up", "my", "house", "again", "caf\u00e9", "\u00fcber", "\u2764", "lol"};
+        ListType<StringType> list = new ListType<>();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            line.setLength(0);
+            line.append("<Player").append(random.nextInt(100)).append(">");
+            int count = 4 + random.nextInt(20);
+            for (int w = 0; w < count; w++) {
+                // Most lines are plain ASCII.
+                int word = random.nextInt(i % 4 == 0 ? words.length : words.length - 3);
+                line.append(' ').append(words[word]);
+            }
+            list.add(new StringType(line.toString()));
+        }
+
+        return new MapType("Chat", list);
+    }
+}
@@ -0,0 +1,47 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.types.ListType;
+import dev.ultreon.ubo.types.MapType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a USO document of 10k small maps, from a string and through a reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class UsoBenchmark {
+    private String uso;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ListType<MapType> list = new ListType<>();
+        for (int i = 0; i < 10_000; i++) {
+            MapType entry = new MapType();
+            entry.putInt("id", i);
+            entry.putString("name", "Entry " + i);
+            entry.putDouble("weight", i / 8.0);
+            entry.putIntArray("data", new int[]{i, i * 2, i * 3, i * 4});
+            list.add(entry);
+        }
+        uso = DataIo.toUso(list);
+    }
+
+    @Benchmark
+    public ListType<MapType> parse() throws IOException {
+        return DataIo.fromUso(uso);
+    }
+
+    @Benchmark
+    public ListType<MapType> parseReader() throws IOException {
+        return DataIo.readUso(new StringReader(uso));
+    }
+}
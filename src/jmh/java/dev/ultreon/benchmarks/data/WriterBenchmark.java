@@ -0,0 +1,102 @@
+package dev.ultreon.benchmarks.data;
+
+import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.UboWriter;
+import dev.ultreon.ubo.types.ListType;
+import dev.ultreon.ubo.types.MapType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves plain entity objects, once by building the {@link MapType} tree for {@link DataIo#write(dev.ultreon.ubo.types.DataType, java.io.OutputStream)}
+ * and once by streaming them through {@link UboWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class WriterBenchmark {
+    @Param({"1000", "100000"})
+    public int entities;
+
+    private Entity[] world;
+    private ByteArrayOutputStream output;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(Trees.SEED);
+        world = new Entity[entities];
+        for (int i = 0; i < entities; i++) {
+            Entity entity = new Entity();
+            entity.uuid = new UUID(random.nextLong(), random.nextLong());
+            entity.x = random.nextDouble() * 1024;
+            entity.y = random.nextDouble() * 256;
+            entity.z = random.nextDouble() * 1024;
+            entity.health = random.nextFloat() * 20;
+            entity.age = random.nextInt(24000);
+            entity.onGround = random.nextBoolean();
+            world[i] = entity;
+        }
+
+        output = new ByteArrayOutputStream(entities * 128);
+    }
+
+    @Benchmark
+    public int tree() throws IOException {
+        ListType<MapType> list = new ListType<>();
+        for (Entity entity : world) {
+            MapType map = new MapType();
+            map.putUUID("uuid", entity.uuid);
+            map.putString("type", entity.type);
+            map.putDouble("x", entity.x);
+            map.putDouble("y", entity.y);
+            map.putDouble("z", entity.z);
+            map.putFloat("health", entity.health);
+            map.putInt("age", entity.age);
+            map.putBoolean("onGround", entity.onGround);
+            list.add(map);
+        }
+
+        output.reset();
+        DataIo.write(new MapType("Entities", list), output);
+        return output.size();
+    }
+
+    @Benchmark
+    public int writer() throws IOException {
+        output.reset();
+        UboWriter writer = new UboWriter(output);
+        writer.beginMap(1).key("Entities").beginList(DataTypes.MAP, world.length);
+        for (Entity entity : world) {
+            writer.beginMap(8);
+            writer.key("uuid").writeUUID(entity.uuid);
+            writer.key("type").writeString(entity.type);
+            writer.key("x").writeDouble(entity.x);
+            writer.key("y").writeDouble(entity.y);
+            writer.key("z").writeDouble(entity.z);
+            writer.key("health").writeFloat(entity.health);
+            writer.key("age").writeInt(entity.age);
+            writer.key("onGround").writeBoolean(entity.onGround);
+            writer.end();
+        }
+        writer.end().end();
+        return output.size();
+    }
+
+    private static class Entity {
+        UUID uuid;
+        String type = "zombie";
+        double x, y, z;
+        float health;
+        int age;
+        boolean onGround;
+    }
+}
@@ -0,0 +1,97 @@
+package dev.ultreon.ubo;
+
+import dev.ultreon.ubo.types.DataType;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.UboInput;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Everything {@link DataTypeRegistry} knows about a data type: its id, its class, how to read, skip, write and size
+ * its values. Codecs are immutable, registering a skipper replaces the codec.
+ *
+ * @param <T> the data type.
+ */
+public final class DataCodec<T extends DataType<?>> {
+    private final int id;
+    private final Class<T> type;
+    private final DataReader<T> reader;
+    private final DataSkipper skipper;
+    private final int width;
+
+    /**
+     * @param id      the type id, from 0 to 255.
+     * @param type    the class of the data type.
+     * @param reader  reads a value.
+     * @param skipper skips a value, or {@code null} to skip values by reading them.
+     * @param width   the encoded size of every value without {@link DataFlags}, or {@code -1} if it varies.
+     */
+    public DataCodec(int id, Class<T> type, DataReader<T> reader, DataSkipper skipper, int width) {
+        if (id < 0 || id > 255) throw new IllegalArgumentException("Type id out of range: " + id);
+        if (type == null) throw new IllegalArgumentException("Type can't be null");
+        if (reader == null) throw new IllegalArgumentException("Reader can't be null");
+
+        this.id = id;
+        this.type = type;
+        this.reader = reader;
+        this.skipper = skipper != null ? skipper : reader::read;
+        this.width = width > 0 ? width : -1;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * @return the encoded size of every value without {@link DataFlags}, or {@code -1} if it varies.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return the codec with the skipper replaced.
+     */
+    public DataCodec<T> withSkipper(DataSkipper skipper) {
+        return new DataCodec<>(id, type, reader, skipper, width);
+    }
+
+    public T read(DataInput input) throws IOException {
+        return reader.read(input);
+    }
+
+    public void skip(DataInput input) throws IOException {
+        skipper.skip(input);
+    }
+
+    /**
+     * Skips consecutive values, fixed-size values in one go unless the input reads varints.
+     */
+    public void skip(int count, DataInput input) throws IOException {
+        if (width > 0 && !UboInput.isVarint(input)) {
+            BulkIo.skipFully(input, (long) count * width);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            skipper.skip(input);
+        }
+    }
+
+    public void write(T value, DataOutput output) throws IOException {
+        value.write(output);
+    }
+
+    /**
+     * @return the size {@link #write(DataType, DataOutput)} writes without {@link DataFlags}.
+     */
+    public long sizeInBytes(T value) {
+        return width > 0 ? width : value.sizeInBytes();
+    }
+}
@@ -0,0 +1,38 @@
+package dev.ultreon.ubo;
+
+/**
+ * Optional encodings of the binary format, stored in the high byte of the version in the header.
+ * <p>
+ * Data written without flags has the same header as before, data with flags is rejected by older readers as a future
+ * version. Flags are only used with data version 3, the indexed layout of version 4 doesn't support them.
+ *
+ * @see DataIo#write(dev.ultreon.ubo.types.DataType, java.io.DataOutput, int)
+ */
+public final class DataFlags {
+    /**
+     * Lengths are written as unsigned LEB128 varints, shorts, ints and longs as zigzag varints.
+     */
+    public static final int VARINT = 0x01;
+
+    /**
+     * Map keys are written once, later occurrences of the same key are written as a varint reference to it.
+     */
+    public static final int KEY_DICTIONARY = 0x02;
+
+    /**
+     * Lists of maps sharing the same keys and value types are written as a column per key.
+     */
+    public static final int COLUMNAR = 0x04;
+
+    /**
+     * Strings of 65535 bytes and more are written as the length {@code 0xFFFF} followed by an int length. Without this
+     * flag, or {@link #VARINT}, string lengths are a single unsigned short, so longer strings can't be written.
+     */
+    public static final int LONG_STRINGS = 0x08;
+
+    static final int ALL = VARINT | KEY_DICTIONARY | COLUMNAR | LONG_STRINGS;
+
+    private DataFlags() {
+        throw new UnsupportedOperationException("Cannot instantiate DataFlags");
+    }
+}
@@ -1,24 +1,108 @@
 package dev.ultreon.ubo;
 
 import dev.ultreon.ubo.types.DataType;
+import dev.ultreon.ubo.types.LazyMapType;
+import dev.ultreon.ubo.types.MapType;
+import dev.ultreon.ubo.util.ByteBufferInput;
+import dev.ultreon.ubo.util.ByteBufferOutput;
 import dev.ultreon.ubo.util.DataTypeVisitor;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class DataIo {
-    private static final short VERSION = 3;
-    private static final int HEADER = 0xff804269;
+    static final short VERSION = 3;
+    static final int HEADER = 0xff804269;
     private static final int BUFFER_SIZE = 4096;
+    static final int CHANNEL_BUFFER_SIZE = 65536;
+    private static final ThreadLocal<ByteBuffer> CHANNEL_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE));
 
     @SafeVarargs
     public static <T extends DataType<?>> T read(File file, T... type) throws IOException {
-        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE)) {
-            return read(stream, type);
+        return read(file.toPath(), type);
+    }
+
+    @SafeVarargs
+    public static <T extends DataType<?>> T read(Path path, T... type) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel, type);
+        }
+    }
+
+    /**
+     * Reads the data from the current position of the channel. The file is read into a heap buffer in chunks, it is
+     * never memory-mapped, so the returned data doesn't keep the file open or locked.
+     *
+     * @throws IOException when an I/O error occurs.
+     * @throws DataTypeException when the read data type is invalid.
+     */
+    @SafeVarargs
+    public static <T extends DataType<?>> T read(FileChannel channel, T... type) throws IOException {
+        long size = channel.size() - channel.position();
+        if (size > Integer.MAX_VALUE)
+            throw new DataTypeException("UBO data too large to be read at once: " + size + " bytes");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.position() < buffer.capacity()) {
+            // Limits every read, the JDK otherwise caches a temporary direct buffer as large as the whole file.
+            ((Buffer) buffer).limit(Math.min(buffer.capacity(), buffer.position() + CHANNEL_BUFFER_SIZE));
+            if (channel.read(buffer) < 0) throw new EOFException("Unexpected end of file");
+        }
+        ((Buffer) buffer).flip();
+        return read(buffer, type);
+    }
+
+    /**
+     * Reads the data from the channel, reading it until the end of stream first.
+     *
+     * @throws IOException when an I/O error occurs.
+     * @throws DataTypeException when the read data type is invalid.
+     */
+    @SafeVarargs
+    public static <T extends DataType<?>> T read(ReadableByteChannel channel, T... type) throws IOException {
+        if (channel instanceof FileChannel) {
+            return read((FileChannel) channel, type);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(CHANNEL_BUFFER_SIZE);
+        while (channel.read(buffer) >= 0) {
+            if (!buffer.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() << 1);
+                ((Buffer) buffer).flip();
+                buffer = grown.put(buffer);
+            }
         }
+        ((Buffer) buffer).flip();
+        return read(buffer, type);
+    }
+
+    /**
+     * Reads the data from the buffer's position, the position is moved past the read data.
+     *
+     * @throws IOException when an I/O error occurs.
+     * @throws DataTypeException when the read data type is invalid.
+     */
+    @SafeVarargs
+    public static <T extends DataType<?>> T read(ByteBuffer buffer, T... type) throws IOException {
+        ByteBufferInput input = new ByteBufferInput(buffer);
+        T read = read((DataInput) input, type);
+        ((Buffer) buffer).position(input.position());
+        return read;
     }
 
     @SafeVarargs
@@ -47,25 +131,156 @@ public class DataIo {
     @SafeVarargs
     @SuppressWarnings("unchecked")
     public static <T extends DataType<?>> T read(DataInput input, T... type) throws IOException {
+        int header = readHeader(input);
+
+        Class<T> componentType = (Class<T>) type.getClass().getComponentType();
+        int componentId = DataTypeRegistry.getId(componentType);
+        int id = input.readUnsignedByte();
+
+        if (componentId != id) {
+            throw new DataTypeException("The read data id " + id + " is different from the expected id: " + componentId);
+        }
+
+        if ((header & 0xFF) == IndexedFormat.VERSION) {
+            return (T) IndexedFormat.read(id, input);
+        }
+
+        return (T) DataTypeRegistry.read(id, withFlags(input, header));
+    }
+
+    /**
+     * Reads and validates the header.
+     *
+     * @return the data version in the low byte, either {@link #VERSION} or {@link IndexedFormat#VERSION}, and the
+     * {@link DataFlags} in the high byte.
+     */
+    private static int readHeader(DataInput input) throws IOException {
         int magic = input.readInt();
         if (magic != HEADER) {
             throw new StreamCorruptedException(String.format("Invalid header got 0x%08X (expected 0xFF804269)", magic));
         }
 
-        short readVersion = input.readShort();
-        if (readVersion > VERSION) {
-            throw new FutureVersionException(readVersion, VERSION);
+        int header = input.readUnsignedShort();
+        int flags = header >>> 8;
+        if ((header & 0xFF) > IndexedFormat.VERSION || (flags & ~DataFlags.ALL) != 0) {
+            throw new FutureVersionException((short) header, IndexedFormat.VERSION);
+        }
+        if (flags != 0 && (header & 0xFF) != VERSION) {
+            throw new StreamCorruptedException("Data flags are only valid with data version " + VERSION);
+        }
+        return header;
+    }
+
+    private static DataInput withFlags(DataInput input, int header) {
+        int flags = header >>> 8;
+        return flags == 0 ? input : new UboInput(input, flags);
+    }
+
+    /**
+     * Reads a map without decoding its values, they are decoded when accessed.
+     * The buffer's position is moved past the read data, its content must not be modified afterwards.
+     *
+     * @throws IOException when an I/O error occurs.
+     * @throws DataTypeException when the root isn't a map.
+     * @see LazyMapType
+     */
+    public static LazyMapType readLazy(ByteBuffer buffer) throws IOException {
+        ByteBufferInput input = new ByteBufferInput(buffer);
+        int header = readHeader(input);
+        if ((header & 0xFF) == IndexedFormat.VERSION) {
+            throw new DataTypeException("Indexed data can't be read lazily, use UboView instead");
+        }
+        if (header >>> 8 != 0) {
+            throw new DataTypeException("Data written with flags can't be read lazily");
         }
 
-        Class<T> componentType = (Class<T>) type.getClass().getComponentType();
-        int componentId = DataTypeRegistry.getId(componentType);
         int id = input.readUnsignedByte();
+        if (id != DataTypes.MAP) {
+            throw new DataTypeException("The read data id " + id + " is different from the expected id: " + DataTypes.MAP);
+        }
 
-        if (componentId != id) {
-            throw new DataTypeException("The read data id " + id + " is different from the expected id: " + componentId);
+        LazyMapType map = LazyMapType.read(input);
+        ((Buffer) buffer).position(input.position());
+        return map;
+    }
+
+    public static LazyMapType readLazy(byte[] bytes) throws IOException {
+        return readLazy(ByteBuffer.wrap(bytes));
+    }
+
+    public static LazyMapType readLazy(Path path) throws IOException {
+        return readLazy(Files.readAllBytes(path));
+    }
+
+    public static LazyMapType readLazy(File file) throws IOException {
+        return readLazy(file.toPath());
+    }
+
+    public static LazyMapType readLazy(InputStream stream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(CHANNEL_BUFFER_SIZE);
+        byte[] chunk = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = stream.read(chunk)) != -1) {
+            output.write(chunk, 0, read);
+        }
+        return readLazy(output.toByteArray());
+    }
+
+    /**
+     * Reads only the given key paths out of a map, everything else is skipped without being decoded.
+     * <p>
+     * Paths are keys separated by dots, {@code "Player.Position"} selects the {@code Position} entry of the
+     * {@code Player} map. The result holds the selected values in maps mirroring their nesting, paths that don't
+     * exist or pass through something other than a map are left out. Reading stops as soon as every top-level key
+     * of the paths was found, the rest of the input is left unread.
+     *
+     * @param input the input to read from.
+     * @param paths the key paths to read.
+     * @return a map holding the selected values.
+     * @throws IOException when an I/O error occurs.
+     * @throws DataTypeException when the root isn't a map.
+     * @throws IllegalArgumentException when a path is empty or has an empty key.
+     */
+    public static MapType readProjected(DataInput input, Set<String> paths) throws IOException {
+        Projection projection = Projection.of(paths);
+        int header = readHeader(input);
+        if ((header & 0xFF) == IndexedFormat.VERSION) {
+            throw new DataTypeException("Indexed data can't be read projected, use UboView instead");
         }
 
-        return (T) DataTypeRegistry.read(id, input);
+        int id = input.readUnsignedByte();
+        if (id != DataTypes.MAP) {
+            throw new DataTypeException("The read data id " + id + " is different from the expected id: " + DataTypes.MAP);
+        }
+
+        return projection.read(withFlags(input, header), false);
+    }
+
+    public static MapType readProjected(InputStream stream, Set<String> paths) throws IOException {
+        if (stream instanceof DataInput) {
+            return readProjected((DataInput) stream, paths);
+        }
+        return readProjected((DataInput) new DataInputStream(stream), paths);
+    }
+
+    /**
+     * Reads the key paths from the buffer's position, the buffer itself is left untouched.
+     *
+     * @throws IOException when an I/O error occurs.
+     * @see #readProjected(DataInput, Set)
+     */
+    public static MapType readProjected(ByteBuffer buffer, Set<String> paths) throws IOException {
+        return readProjected(new ByteBufferInput(buffer), paths);
+    }
+
+    public static MapType readProjected(Path path, Set<String> paths) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+            return readProjected(stream, paths);
+        }
+    }
+
+    public static MapType readProjected(File file, Set<String> paths) throws IOException {
+        return readProjected(file.toPath(), paths);
     }
 
     @SafeVarargs
@@ -89,8 +304,38 @@ public class DataIo {
     }
 
     public static void write(DataType<?> dataType, File file) throws IOException {
-        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE)) {
-            write(dataType, stream);
+        write(dataType, file.toPath());
+    }
+
+    public static void write(DataType<?> dataType, Path path) throws IOException {
+        write(dataType, path, 0);
+    }
+
+    public static void write(DataType<?> dataType, Path path, int flags) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(dataType, channel, flags);
+        }
+    }
+
+    /**
+     * Writes the data to the channel through a reused direct buffer.
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    public static void write(DataType<?> dataType, WritableByteChannel channel) throws IOException {
+        write(dataType, channel, 0);
+    }
+
+    public static void write(DataType<?> dataType, WritableByteChannel channel, int flags) throws IOException {
+        // Taken out of the thread local while in use, so a nested write gets its own buffer.
+        ByteBuffer buffer = CHANNEL_BUFFER.get();
+        CHANNEL_BUFFER.remove();
+        try {
+            ByteBufferOutput output = new ByteBufferOutput(channel, buffer);
+            write(dataType, output, flags);
+            output.flush();
+        } finally {
+            CHANNEL_BUFFER.set(buffer);
         }
     }
 
@@ -101,17 +346,75 @@ public class DataIo {
     }
 
     public static void write(DataType<?> dataType, OutputStream stream) throws IOException {
+        write(dataType, stream, 0);
+    }
+
+    public static void write(DataType<?> dataType, OutputStream stream, int flags) throws IOException {
+        if (flags != 0) {
+            // Varints are written a byte at a time, which is only cheap on a buffer.
+            write(dataType, Channels.newChannel(stream), flags);
+            return;
+        }
         if (stream instanceof DataOutput) {
-            write(dataType, (DataOutput) stream);
+            write(dataType, (DataOutput) stream, flags);
+            return;
         }
-        write(dataType, (DataOutput) new DataOutputStream(stream));
+        write(dataType, (DataOutput) new DataOutputStream(stream), flags);
     }
 
     public static void write(DataType<?> dataType, DataOutput output) throws IOException {
+        write(dataType, output, 0);
+    }
+
+    /**
+     * Writes the data with the given optional encodings, the read methods detect them from the header.
+     *
+     * @param flags the {@link DataFlags} to write with, {@code 0} writes the plain encoding.
+     * @throws IOException when an I/O error occurs.
+     * @throws IllegalArgumentException when the flags are unknown.
+     */
+    public static void write(DataType<?> dataType, DataOutput output, int flags) throws IOException {
+        if ((flags & ~DataFlags.ALL) != 0)
+            throw new IllegalArgumentException("Unknown data flags: 0x" + Integer.toHexString(flags));
+
         output.writeInt(HEADER);
-        output.writeShort(VERSION); // Version
+        output.writeShort(VERSION | flags << 8); // Version and flags
         output.writeByte(dataType.id()); // Type
-        dataType.write(output);
+        dataType.write(flags == 0 ? output : new UboOutput(output, flags));
+    }
+
+    /**
+     * Writes the data into a byte array allocated with the exact size from {@link DataType#sizeInBytes()}.
+     *
+     * @return the written bytes.
+     * @throws IOException when an I/O error occurs or the data doesn't fit in an array.
+     */
+    public static byte[] toBytes(DataType<?> dataType) throws IOException {
+        long size = 7 + dataType.sizeInBytes();
+        if (size > Integer.MAX_VALUE - 8) throw new IOException("Data is too large for a byte array: " + size + " bytes");
+
+        byte[] bytes = new byte[(int) size];
+        ByteBufferOutput output = new ByteBufferOutput(ByteBuffer.wrap(bytes));
+        write(dataType, output);
+
+        // A custom type reporting the wrong size makes the output outgrow the array.
+        if (output.written() != size) return output.toByteArray();
+        return bytes;
+    }
+
+    /**
+     * Writes the data with the given optional encodings into a byte array.
+     *
+     * @param flags the {@link DataFlags} to write with, {@code 0} writes the plain encoding.
+     * @return the written bytes.
+     * @throws IOException when an I/O error occurs.
+     */
+    public static byte[] toBytes(DataType<?> dataType, int flags) throws IOException {
+        if (flags == 0) return toBytes(dataType);
+
+        ByteBufferOutput output = new ByteBufferOutput(BUFFER_SIZE);
+        write(dataType, output, flags);
+        return output.toByteArray();
     }
 
     public static void writeCompressed(DataType<?> dataType, URL file) throws IOException {
@@ -133,6 +436,36 @@ public class DataIo {
         gzipStream.flush();
     }
 
+    /**
+     * Writes the data in the navigable layout of format version 4, which can be read with {@link UboView} without
+     * parsing it. {@link #read(ByteBuffer, DataType[])} and the other read methods read both versions.
+     *
+     * @return a buffer holding the written data.
+     * @throws IOException when an I/O error occurs.
+     */
+    public static ByteBuffer writeIndexed(DataType<?> dataType) throws IOException {
+        ByteBufferOutput output = new ByteBufferOutput(CHANNEL_BUFFER_SIZE);
+        output.writeInt(HEADER);
+        output.writeShort(IndexedFormat.VERSION);
+        output.writeByte(dataType.id());
+        IndexedFormat.write(dataType, output);
+        return output.toByteBuffer();
+    }
+
+    public static void writeIndexed(DataType<?> dataType, OutputStream stream) throws IOException {
+        ByteBuffer buffer = writeIndexed(dataType);
+        stream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
+    public static void writeIndexed(DataType<?> dataType, Path path) throws IOException {
+        ByteBuffer buffer = writeIndexed(dataType);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
     public static String toUso(DataType<?> dataType) {
         return dataType.writeUso();
     }
@@ -144,13 +477,29 @@ public class DataIo {
     @SuppressWarnings("unchecked")
     @SafeVarargs
     public static <T extends DataType<?>> T fromUso(String value, T... type) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new StringReader(value))) {
-            DataType<?> iDataType = readUso(reader.readLine());
-            return (T) iDataType;
-        }
+        return (T) new UsoParser(value).parse();
+    }
+
+    /**
+     * Parses USO from the reader, which is read through a fixed-size window and isn't closed.
+     *
+     * @throws IOException when an I/O error occurs, or the USO is invalid.
+     */
+    @SuppressWarnings("unchecked")
+    @SafeVarargs
+    public static <T extends DataType<?>> T readUso(Reader reader, T... type) throws IOException {
+        return (T) new UsoParser(reader).parse();
     }
 
-    private static DataType<?> readUso(String value) throws IOException {
-        return new UsoParser(value).parse();
+    /**
+     * Parses a UTF-8 USO file, reading it through a fixed-size window.
+     *
+     * @throws IOException when an I/O error occurs, or the USO is invalid.
+     */
+    @SafeVarargs
+    public static <T extends DataType<?>> T readUso(Path path, T... type) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+            return readUso(reader, type);
+        }
     }
 }
@@ -0,0 +1,14 @@
+package dev.ultreon.ubo;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Advances an input past a value of a data type without decoding it.
+ *
+ * @see DataTypeRegistry#skip(int, DataInput)
+ */
+@FunctionalInterface
+public interface DataSkipper {
+    void skip(DataInput input) throws IOException;
+}
@@ -4,70 +4,173 @@ import dev.ultreon.ubo.types.*;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Registry of the data types, by type id and by class.
+ * <p>
+ * Codecs are looked up by id in an array of 256 entries, and by class through a {@link ClassValue}. Registering
+ * publishes a new immutable snapshot of the codecs, so lookups never lock and see either the old or the new codec.
+ */
 public class DataTypeRegistry {
-    private static final Map<Integer, DataReader<? extends DataType<?>>> READERS = new HashMap<>();
-    private static final Map<Integer, Class<? extends DataType<?>>> TYPES = new HashMap<>();
-    private static final Map<String, Integer> ID_MAP = new HashMap<>();
+    private static final Object LOCK = new Object();
+    private static volatile DataCodec<?>[] codecs = new DataCodec<?>[256];
+    private static volatile Map<Class<?>, DataCodec<?>> byType = Collections.emptyMap();
+    private static final ClassValue<DataCodec<?>> TYPES = new ClassValue<DataCodec<?>>() {
+        @Override
+        protected DataCodec<?> computeValue(Class<?> type) {
+            return byType.get(type);
+        }
+    };
 
     static {
-        register(DataTypes.BYTE, ByteType::read);
-        register(DataTypes.SHORT, ShortType::read);
-        register(DataTypes.INT, IntType::read);
-        register(DataTypes.LONG, LongType::read);
-        register(DataTypes.BIG_INT, BigIntType::read);
-        register(DataTypes.FLOAT, FloatType::read);
-        register(DataTypes.DOUBLE, DoubleType::read);
-        register(DataTypes.BIG_DEC, BigDecType::read);
-        register(DataTypes.CHAR, CharType::read);
-        register(DataTypes.BOOLEAN, BooleanType::read);
-        register(DataTypes.STRING, StringType::read);
-        register(DataTypes.LIST, ListType::read);
-        register(DataTypes.MAP, MapType::read);
-        register(DataTypes.BYTE_ARRAY, ByteArrayType::read);
-        register(DataTypes.SHORT_ARRAY, ShortArrayType::read);
-        register(DataTypes.INT_ARRAY, IntArrayType::read);
-        register(DataTypes.LONG_ARRAY, LongArrayType::read);
-        register(DataTypes.FLOAT_ARRAY, FloatArrayType::read);
-        register(DataTypes.DOUBLE_ARRAY, DoubleArrayType::read);
-        register(DataTypes.CHAR_ARRAY, CharArrayType::read);
-        register(DataTypes.UUID, UUIDType::read);
-        register(DataTypes.BIT_SET, BitSetType::read);
+        register(new DataCodec<>(DataTypes.BYTE, ByteType.class, ByteType::read, ByteType::skip, 1));
+        register(new DataCodec<>(DataTypes.SHORT, ShortType.class, ShortType::read, ShortType::skip, 2));
+        register(new DataCodec<>(DataTypes.INT, IntType.class, IntType::read, IntType::skip, 4));
+        register(new DataCodec<>(DataTypes.LONG, LongType.class, LongType::read, LongType::skip, 8));
+        register(new DataCodec<>(DataTypes.BIG_INT, BigIntType.class, BigIntType::read, BigIntType::skip, -1));
+        register(new DataCodec<>(DataTypes.FLOAT, FloatType.class, FloatType::read, FloatType::skip, 4));
+        register(new DataCodec<>(DataTypes.DOUBLE, DoubleType.class, DoubleType::read, DoubleType::skip, 8));
+        register(new DataCodec<>(DataTypes.BIG_DEC, BigDecType.class, BigDecType::read, BigDecType::skip, -1));
+        register(new DataCodec<>(DataTypes.CHAR, CharType.class, CharType::read, CharType::skip, 2));
+        register(new DataCodec<>(DataTypes.BOOLEAN, BooleanType.class, BooleanType::read, BooleanType::skip, 1));
+        register(new DataCodec<>(DataTypes.STRING, StringType.class, StringType::read, StringType::skip, -1));
+        register(new DataCodec<>(DataTypes.LIST, listType(), ListType::read, ListType::skip, -1));
+        register(new DataCodec<>(DataTypes.MAP, MapType.class, MapType::read, MapType::skip, -1));
+        register(new DataCodec<>(DataTypes.BYTE_ARRAY, ByteArrayType.class, ByteArrayType::read, ByteArrayType::skip, -1));
+        register(new DataCodec<>(DataTypes.SHORT_ARRAY, ShortArrayType.class, ShortArrayType::read, ShortArrayType::skip, -1));
+        register(new DataCodec<>(DataTypes.INT_ARRAY, IntArrayType.class, IntArrayType::read, IntArrayType::skip, -1));
+        register(new DataCodec<>(DataTypes.LONG_ARRAY, LongArrayType.class, LongArrayType::read, LongArrayType::skip, -1));
+        register(new DataCodec<>(DataTypes.FLOAT_ARRAY, FloatArrayType.class, FloatArrayType::read, FloatArrayType::skip, -1));
+        register(new DataCodec<>(DataTypes.DOUBLE_ARRAY, DoubleArrayType.class, DoubleArrayType::read, DoubleArrayType::skip, -1));
+        register(new DataCodec<>(DataTypes.CHAR_ARRAY, CharArrayType.class, CharArrayType::read, CharArrayType::skip, -1));
+        register(new DataCodec<>(DataTypes.UUID, UUIDType.class, UUIDType::read, UUIDType::skip, 16));
+        register(new DataCodec<>(DataTypes.BIT_SET, BitSetType.class, BitSetType::read, BitSetType::skip, -1));
     }
 
+    @SuppressWarnings("unchecked")
+    private static Class<ListType<?>> listType() {
+        return (Class<ListType<?>>) (Class<?>) ListType.class;
+    }
+
+    /**
+     * Registers a codec, replacing the codec registered for its id before.
+     */
+    public static void register(DataCodec<?> codec) {
+        synchronized (LOCK) {
+            DataCodec<?>[] codecs = DataTypeRegistry.codecs.clone();
+            DataCodec<?> old = codecs[codec.id()];
+            codecs[codec.id()] = codec;
+
+            Map<Class<?>, DataCodec<?>> byType = new HashMap<>(DataTypeRegistry.byType);
+            if (old != null && byType.get(old.type()) == old) byType.remove(old.type());
+            byType.put(codec.type(), codec);
+
+            DataTypeRegistry.codecs = codecs;
+            DataTypeRegistry.byType = Collections.unmodifiableMap(byType);
+            if (old != null) TYPES.remove(old.type());
+            TYPES.remove(codec.type());
+        }
+    }
+
+    /**
+     * Registers a type, its values are skipped by reading them until a skipper is registered.
+     */
     @SafeVarargs
     @SuppressWarnings("unchecked")
     public static <T extends DataType<?>> void register(int id, DataReader<T> reader, T... type) {
-        Class<? extends T> componentType = (Class<? extends T>) type.getClass().getComponentType();
-        READERS.put(id, reader);
-        TYPES.put(id, componentType);
-        ID_MAP.put(componentType.getName(), id);
+        register(new DataCodec<>(id, (Class<T>) type.getClass().getComponentType(), reader, null, -1));
     }
 
-    public static DataType<?> read(int id, DataInput input) throws IOException {
-        if (!READERS.containsKey(id))
+    /**
+     * Registers how to skip values of an already registered type without decoding them.
+     */
+    public static void registerSkipper(int id, DataSkipper skipper) {
+        synchronized (LOCK) {
+            DataCodec<?> codec = codec(id);
+            if (codec == null)
+                throw new IllegalArgumentException("No type registered for id " + id);
+
+            register(codec.withSkipper(skipper));
+        }
+    }
+
+    /**
+     * @return the codec registered for the id, or {@code null} if there is none.
+     */
+    public static DataCodec<?> codec(int id) {
+        return id >= 0 && id < 256 ? codecs[id] : null;
+    }
+
+    /**
+     * @return the codec registered for the class, or {@code null} if there is none.
+     */
+    public static DataCodec<?> codec(Class<?> type) {
+        return TYPES.get(type);
+    }
+
+    private static DataCodec<?> codecOrThrow(int id) throws DataTypeException {
+        DataCodec<?> codec = codec(id);
+        if (codec == null)
             throw new DataTypeException("Unknown datatype id: " + id);
+        return codec;
+    }
+
+    public static DataType<?> read(int id, DataInput input) throws IOException {
+        return codecOrThrow(id).read(input);
+    }
+
+    /**
+     * Advances the input past a value without decoding it.
+     *
+     * @param id    the type id of the value.
+     * @param input the input positioned at the start of the value.
+     * @throws IOException when an I/O error occurs.
+     */
+    public static void skip(int id, DataInput input) throws IOException {
+        codecOrThrow(id).skip(input);
+    }
 
-        return READERS.get(id).read(input);
+    /**
+     * Advances the input past consecutive values of the same type, like the elements of a list. Built-in fixed-size
+     * types are skipped in one go, unless the input reads varints.
+     *
+     * @param id    the type id of the values.
+     * @param count the amount of values.
+     * @param input the input positioned at the start of the first value.
+     * @throws IOException when an I/O error occurs.
+     */
+    public static void skip(int id, int count, DataInput input) throws IOException {
+        codecOrThrow(id).skip(count, input);
     }
 
+    /**
+     * @return the encoded size of every value of a built-in fixed-size type without {@link DataFlags}, or {@code -1}
+     * for other types.
+     */
+    public static int fixedWidth(int id) {
+        DataCodec<?> codec = codec(id);
+        return codec == null ? -1 : codec.width();
+    }
+
+    @SuppressWarnings("unchecked")
     public static Class<? extends DataType<?>> getType(int id) {
-        return TYPES.get(id);
+        DataCodec<?> codec = codec(id);
+        return codec == null ? null : (Class<? extends DataType<?>>) codec.type();
     }
 
     public static int getId(Class<?> componentType) {
-        return ID_MAP.get(componentType.getName());
+        return getIdOrThrow(componentType);
     }
 
     public static int getIdOrThrow(Class<?> componentType) {
-        String name = componentType.getName();
-        Integer id = ID_MAP.get(name);
+        DataCodec<?> codec = TYPES.get(componentType);
 
-        if (id == null)
-            throw new IllegalArgumentException("No type registered for " + name);
+        if (codec == null)
+            throw new IllegalArgumentException("No type registered for " + componentType.getName());
 
-        return id;
+        return codec.id();
     }
 }
@@ -0,0 +1,198 @@
+package dev.ultreon.ubo;
+
+import dev.ultreon.ubo.types.ConcurrentListType;
+import dev.ultreon.ubo.types.ConcurrentMapType;
+import dev.ultreon.ubo.types.DataType;
+import dev.ultreon.ubo.types.ListType;
+import dev.ultreon.ubo.types.MapType;
+import dev.ultreon.ubo.types.PersistentMapType;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.ByteBufferOutput;
+import dev.ultreon.ubo.util.CompactMap;
+import dev.ultreon.ubo.util.KeyInterner;
+import dev.ultreon.ubo.util.Utf8;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.*;
+
+/**
+ * Codec for the navigable layout of format version {@value #VERSION}, see {@link UboView}.
+ * <p>
+ * Only maps and lists differ from version 3, every other value is stored exactly as its {@link DataType#write} writes
+ * it. Offsets are relative to the start of the map or list they belong to, which is its length field.
+ * <pre>
+ * map:  int length, int count, count * (int keyOffset, int valueOffset, byte typeId), keys, values
+ * list: int length, byte elementId, int count, count * int valueOffset, values
+ * </pre>
+ * The length counts the bytes following the length field. Map entries are sorted by the unsigned bytes of their
+ * modified UTF-8 key, keys are stored like {@link java.io.DataOutput#writeUTF(String)} writes them, keys and values
+ * are stored in entry order.
+ */
+final class IndexedFormat {
+    static final short VERSION = 4;
+
+    static final int MAP_HEADER = 8;
+    static final int MAP_ENTRY = 9;
+    static final int LIST_HEADER = 9;
+    static final int LIST_ENTRY = 4;
+
+    private IndexedFormat() {
+        throw new UnsupportedOperationException("Cannot instantiate IndexedFormat");
+    }
+
+    static void write(DataType<?> value, ByteBufferOutput output) throws IOException {
+        if (value instanceof ConcurrentMapType) value = ((ConcurrentMapType) value).snapshot();
+        else if (value instanceof ConcurrentListType<?>) value = ((ConcurrentListType<?>) value).snapshot();
+
+        if (value.id() == DataTypes.MAP && value instanceof MapType) {
+            writeMap(((MapType) value).getValue(), output);
+        } else if (value instanceof PersistentMapType) {
+            writeMap(((PersistentMapType) value).getValue(), output);
+        } else if (value.id() == DataTypes.LIST && value instanceof ListType<?>) {
+            ListType<?> list = (ListType<?>) value;
+            writeList(list.type(), list.getValue(), output);
+        } else {
+            value.write(output);
+        }
+    }
+
+    private static void writeMap(Map<String, DataType<?>> map, ByteBufferOutput output) throws IOException {
+        int count = map.size();
+        byte[][] keys = new byte[count][];
+        DataType<?>[] values = new DataType<?>[count];
+        Integer[] order = new Integer[count];
+
+        int index = 0;
+        for (Map.Entry<String, DataType<?>> entry : map.entrySet()) {
+            keys[index] = encodeKey(entry.getKey());
+            values[index] = entry.getValue();
+            order[index] = index;
+            index++;
+        }
+        Arrays.sort(order, (a, b) -> compare(keys[a], keys[b]));
+
+        int start = (int) output.written();
+        output.writeInt(0);
+        output.writeInt(count);
+        int table = (int) output.written();
+        for (int i = 0; i < count; i++) {
+            output.writeInt(0);
+            output.writeInt(0);
+            output.writeByte(values[order[i]].id());
+        }
+
+        for (int i = 0; i < count; i++) {
+            byte[] key = keys[order[i]];
+            output.putInt(table + i * MAP_ENTRY, (int) output.written() - start);
+            output.writeShort(key.length);
+            output.write(key);
+        }
+
+        for (int i = 0; i < count; i++) {
+            output.putInt(table + i * MAP_ENTRY + 4, (int) output.written() - start);
+            write(values[order[i]], output);
+        }
+
+        output.putInt(start, (int) output.written() - start - 4);
+    }
+
+    private static void writeList(int elementId, List<? extends DataType<?>> list, ByteBufferOutput output) throws IOException {
+        int count = list.size();
+        int start = (int) output.written();
+        output.writeInt(0);
+        output.writeByte(elementId);
+        output.writeInt(count);
+        int table = (int) output.written();
+        for (int i = 0; i < count; i++) {
+            output.writeInt(0);
+        }
+
+        for (int i = 0; i < count; i++) {
+            output.putInt(table + i * LIST_ENTRY, (int) output.written() - start);
+            write(list.get(i), output);
+        }
+
+        output.putInt(start, (int) output.written() - start - 4);
+    }
+
+    /**
+     * Reads a value sequentially, ignoring the offset tables.
+     */
+    static DataType<?> read(int id, DataInput input) throws IOException {
+        if (id == DataTypes.MAP) {
+            input.readInt();
+            int count = input.readInt();
+            if (count < 0) throw new DataTypeException("Invalid map size: " + count);
+
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                BulkIo.skipFully(input, 8);
+                ids[i] = input.readUnsignedByte();
+            }
+
+            String[] keys = new String[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = KeyInterner.readUTF(input);
+            }
+
+            Map<String, DataType<?>> map = new CompactMap<>(count);
+            for (int i = 0; i < count; i++) {
+                map.put(keys[i], read(ids[i], input));
+            }
+            return new MapType(map);
+        }
+
+        if (id == DataTypes.LIST) {
+            input.readInt();
+            int elementId = input.readUnsignedByte();
+            int count = input.readInt();
+            if (count < 0) throw new DataTypeException("Invalid list size: " + count);
+
+            BulkIo.skipFully(input, (long) count * LIST_ENTRY);
+            ListType<DataType<?>> list = new ListType<>(elementId);
+            for (int i = 0; i < count; i++) {
+                list.add(read(elementId, input));
+            }
+            return list;
+        }
+
+        return DataTypeRegistry.read(id, input);
+    }
+
+    /**
+     * Encodes a key like {@link java.io.DataOutput#writeUTF(String)}, without the length.
+     */
+    static byte[] encodeKey(String key) throws UTFDataFormatException {
+        int len = key.length();
+        int utfLen = Utf8.modifiedLength(key);
+        if (utfLen > 0xFFFF) throw new UTFDataFormatException("Encoded key too long: " + utfLen + " bytes");
+
+        byte[] bytes = new byte[utfLen];
+        int at = 0;
+        for (int i = 0; i < len; i++) {
+            char c = key.charAt(i);
+            if (c != 0 && c < 0x80) {
+                bytes[at++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[at++] = (byte) (0xC0 | c >> 6);
+                bytes[at++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                bytes[at++] = (byte) (0xE0 | c >> 12);
+                bytes[at++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[at++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return bytes;
+    }
+
+    static int compare(byte[] a, byte[] b) {
+        int len = Math.min(a.length, b.length);
+        for (int i = 0; i < len; i++) {
+            int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return a.length - b.length;
+    }
+}
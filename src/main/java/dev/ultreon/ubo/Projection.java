@@ -0,0 +1,150 @@
+package dev.ultreon.ubo;
+
+import dev.ultreon.ubo.types.MapType;
+import dev.ultreon.ubo.util.UboInput;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tree of the key paths requested from {@link DataIo#readProjected(DataInput, Set)}.
+ * <p>
+ * A node either selects its whole value, or the children it has. Requesting a path also requested as part of a
+ * shorter one has no effect, the shorter path already selects it.
+ */
+final class Projection {
+    private final Map<String, Projection> children = new HashMap<>();
+    private boolean whole;
+
+    // The children keyed by their encoded keys, so keys in the input are matched without decoding them.
+    private String[] names;
+    private byte[][] keys;
+    private Projection[] nodes;
+    private byte[] scratch = new byte[32];
+
+    private Projection() {
+
+    }
+
+    /**
+     * @param paths the key paths, with the keys of nested maps separated by dots.
+     * @return the root of the tree.
+     * @throws IllegalArgumentException when a path is empty or has an empty key.
+     */
+    static Projection of(Set<String> paths) {
+        Projection root = new Projection();
+        for (String path : paths) {
+            Projection node = root;
+            int start = 0;
+            while (!node.whole) {
+                int end = path.indexOf('.', start);
+                if (end < 0) end = path.length();
+                if (end == start) throw new IllegalArgumentException("Invalid key path: \"" + path + "\"");
+
+                node = node.children.computeIfAbsent(path.substring(start, end), key -> new Projection());
+                if (end == path.length()) {
+                    node.whole = true;
+                    node.children.clear();
+                }
+                start = end + 1;
+            }
+        }
+
+        root.index();
+        return root;
+    }
+
+    private void index() {
+        names = new String[children.size()];
+        keys = new byte[children.size()][];
+        nodes = new Projection[children.size()];
+        int index = 0;
+        for (Map.Entry<String, Projection> entry : children.entrySet()) {
+            try {
+                keys[index] = IndexedFormat.encodeKey(entry.getKey());
+            } catch (UTFDataFormatException e) {
+                throw new IllegalArgumentException("Key is too long: \"" + entry.getKey() + "\"", e);
+            }
+            names[index] = entry.getKey();
+            nodes[index] = entry.getValue();
+            nodes[index].index();
+            index++;
+        }
+    }
+
+    /**
+     * @return the index of the child with the given encoded key, or {@code -1} if not selected.
+     */
+    private int find(byte[] key, int len) {
+        for (int i = 0; i < keys.length; i++) {
+            byte[] candidate = keys[i];
+            if (candidate.length != len) continue;
+
+            int at = 0;
+            while (at < len && candidate[at] == key[at]) at++;
+            if (at == len) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the child with the given key, or {@code -1} if not selected.
+     */
+    private int find(String key) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(key)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a map, decoding only the selected entries and skipping the others.
+     *
+     * @param input  the input positioned at the start of the map.
+     * @param finish whether to read up to the end of the map, otherwise reading stops once every child was found.
+     * @return the map holding the selected entries, maps in between are left out if nothing was selected in them.
+     * @throws IOException when an I/O error occurs.
+     */
+    MapType read(DataInput input, boolean finish) throws IOException {
+        MapType map = new MapType();
+        int len = UboInput.readLength(input);
+        boolean dictionary = UboInput.isKeyDictionary(input);
+        int found = 0;
+        for (int i = 0; i < len; i++) {
+            if (!finish && found == nodes.length) break;
+
+            int index;
+            if (dictionary) {
+                // Keys are decoded anyway to fill the dictionary.
+                index = find(UboInput.readKey(input));
+            } else {
+                int keyLen = input.readUnsignedShort();
+                if (keyLen > scratch.length) scratch = new byte[Math.max(keyLen, scratch.length * 2)];
+                input.readFully(scratch, 0, keyLen);
+                index = find(scratch, keyLen);
+            }
+            int id = input.readUnsignedByte();
+            if (index < 0) {
+                DataTypeRegistry.skip(id, input);
+                continue;
+            }
+
+            found++;
+            String key = names[index];
+            Projection child = nodes[index];
+            if (child.whole) {
+                map.put(key, DataTypeRegistry.read(id, input));
+            } else if (id == DataTypes.MAP) {
+                MapType projected = child.read(input, true);
+                if (!projected.isEmpty()) map.put(key, projected);
+            } else {
+                DataTypeRegistry.skip(id, input);
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,575 @@
+package dev.ultreon.ubo;
+
+import dev.ultreon.ubo.types.*;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.ByteBufferInput;
+import dev.ultreon.ubo.util.UboInput;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+
+/**
+ * Streaming pull parser for UBO data.
+ * <p>
+ * Instead of building the whole {@link MapType}/{@link ListType} tree like {@link DataIo#read(InputStream, DataType[])},
+ * the reader walks the data one event at a time, so huge files can be scanned in constant memory:
+ * <pre>{@code
+ * try (UboReader reader = UboReader.open(path)) {
+ *     reader.next(); // START_MAP
+ *     while (reader.next() == UboReader.Event.KEY) {
+ *         if (reader.key().equals("Health") && reader.typeId() == DataTypes.INT) {
+ *             reader.next(); // VALUE
+ *             health = reader.readInt();
+ *         } else {
+ *             reader.skipValue();
+ *         }
+ *     }
+ * }
+ * }</pre>
+ * Values that aren't read before calling {@link #next()} again are skipped without being decoded.
+ */
+public class UboReader implements Closeable {
+    private static final int INITIAL_DEPTH = 16;
+
+    private final DataInput input;
+    private final Closeable closeable;
+
+    private boolean[] maps = new boolean[INITIAL_DEPTH];
+    private int[] remaining = new int[INITIAL_DEPTH];
+    private int[] elementIds = new int[INITIAL_DEPTH];
+    private int depth;
+
+    private Event event;
+    private boolean valueNext;
+    private boolean consumed;
+    private int typeId;
+    private int length = -1;
+    private int elementId = -1;
+    private String key;
+
+    public UboReader(InputStream stream) throws IOException {
+        this(stream instanceof DataInput ? (DataInput) stream : new DataInputStream(stream), stream);
+    }
+
+    public UboReader(ByteBuffer buffer) throws IOException {
+        this(new ByteBufferInput(buffer), null);
+    }
+
+    public UboReader(DataInput input) throws IOException {
+        this(input, input instanceof Closeable ? (Closeable) input : null);
+    }
+
+    private UboReader(DataInput input, Closeable closeable) throws IOException {
+        this.input = input;
+        this.closeable = closeable;
+
+        int magic = input.readInt();
+        if (magic != DataIo.HEADER) {
+            throw new StreamCorruptedException(String.format("Invalid header got 0x%08X (expected 0xFF804269)", magic));
+        }
+
+        short readVersion = input.readShort();
+        if (readVersion == IndexedFormat.VERSION) {
+            throw new DataTypeException("Indexed data can't be streamed, use UboView instead");
+        }
+        if ((readVersion & 0xFF) == DataIo.VERSION && (readVersion & 0xFF00) != 0) {
+            throw new DataTypeException("Data written with flags can't be streamed");
+        }
+        if (readVersion > DataIo.VERSION) {
+            throw new FutureVersionException(readVersion, DataIo.VERSION);
+        }
+
+        this.typeId = input.readUnsignedByte();
+        this.valueNext = true;
+    }
+
+    /**
+     * Opens a buffered reader for the given file.
+     *
+     * @param path the file to read.
+     * @return the reader, positioned before the root value.
+     * @throws IOException when an I/O error occurs.
+     */
+    public static UboReader open(Path path) throws IOException {
+        InputStream stream = new BufferedInputStream(Files.newInputStream(path), 65536);
+        try {
+            return new UboReader(stream);
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the next event, skipping the current value if it wasn't read.
+     *
+     * @return the next event.
+     * @throws IOException when an I/O error occurs.
+     */
+    public Event next() throws IOException {
+        if (event == Event.VALUE && !consumed) {
+            skipPayload();
+        }
+
+        if (valueNext) {
+            valueNext = false;
+            return event = beginValue(typeId);
+        }
+
+        if (depth == 0) {
+            key = null;
+            return event = Event.END_DOCUMENT;
+        }
+
+        int top = depth - 1;
+        if (remaining[top] == 0) {
+            depth--;
+            key = null;
+            return event = Event.END;
+        }
+
+        remaining[top]--;
+        if (maps[top]) {
+            key = UboInput.readKey(input);
+            typeId = input.readUnsignedByte();
+            valueNext = true;
+            return event = Event.KEY;
+        }
+
+        key = null;
+        return event = beginValue(elementIds[top]);
+    }
+
+    private Event beginValue(int id) throws IOException {
+        typeId = id;
+        elementId = -1;
+        if (id == DataTypes.MAP) {
+            length = input.readInt();
+            push(true, length, -1);
+            return Event.START_MAP;
+        }
+
+        if (id == DataTypes.LIST) {
+            elementId = input.readUnsignedByte();
+            length = input.readInt();
+            push(false, length, elementId);
+            return Event.START_LIST;
+        }
+
+        length = isArray(id) ? input.readInt() : -1;
+        consumed = false;
+        return Event.VALUE;
+    }
+
+    private void push(boolean map, int count, int elementId) {
+        if (depth == maps.length) {
+            maps = Arrays.copyOf(maps, depth << 1);
+            remaining = Arrays.copyOf(remaining, depth << 1);
+            elementIds = Arrays.copyOf(elementIds, depth << 1);
+        }
+
+        maps[depth] = map;
+        remaining[depth] = count;
+        elementIds[depth] = elementId;
+        depth++;
+    }
+
+    /**
+     * Skips the current value without decoding it.
+     * <ul>
+     *     <li>On {@link Event#KEY} the value of that key is skipped.</li>
+     *     <li>On {@link Event#VALUE} the value's content is skipped.</li>
+     *     <li>On {@link Event#START_MAP} or {@link Event#START_LIST} the rest of the container is skipped, the event
+     *     becomes {@link Event#END}.</li>
+     * </ul>
+     *
+     * @throws IOException when an I/O error occurs.
+     * @throws IllegalStateException when not positioned on a value.
+     */
+    public void skipValue() throws IOException {
+        if (event == Event.KEY && valueNext) {
+            valueNext = false;
+            DataTypeRegistry.skip(typeId, input);
+        } else if (event == Event.VALUE) {
+            if (!consumed) skipPayload();
+        } else if (event == Event.START_MAP || event == Event.START_LIST) {
+            skipContainer();
+            depth--;
+            key = null;
+            event = Event.END;
+        } else if (event == null && valueNext) {
+            valueNext = false;
+            DataTypeRegistry.skip(typeId, input);
+            event = Event.END_DOCUMENT;
+        } else {
+            throw new IllegalStateException("Not positioned on a value: " + event);
+        }
+    }
+
+    private void skipContainer() throws IOException {
+        int top = depth - 1;
+        int count = remaining[top];
+        remaining[top] = 0;
+        if (maps[top]) {
+            for (int i = 0; i < count; i++) {
+                BulkIo.skipFully(input, input.readUnsignedShort());
+                DataTypeRegistry.skip(input.readUnsignedByte(), input);
+            }
+        } else {
+            DataTypeRegistry.skip(elementIds[top], count, input);
+        }
+    }
+
+    private void skipPayload() throws IOException {
+        consumed = true;
+        if (length >= 0) {
+            BulkIo.skipFully(input, (long) length * arrayWidth(typeId));
+        } else {
+            DataTypeRegistry.skip(typeId, input);
+        }
+    }
+
+    private static boolean isArray(int id) {
+        return arrayWidth(id) > 0;
+    }
+
+    private static int arrayWidth(int id) {
+        if (id == DataTypes.BYTE_ARRAY) return 1;
+        if (id == DataTypes.SHORT_ARRAY || id == DataTypes.CHAR_ARRAY) return 2;
+        if (id == DataTypes.INT_ARRAY || id == DataTypes.FLOAT_ARRAY) return 4;
+        if (id == DataTypes.LONG_ARRAY || id == DataTypes.DOUBLE_ARRAY) return 8;
+        return -1;
+    }
+
+    /**
+     * @return the current event, or {@code null} before the first call to {@link #next()}.
+     */
+    public Event event() {
+        return event;
+    }
+
+    /**
+     * @return the type id of the current value, or of the value following the current key.
+     */
+    public int typeId() {
+        return typeId;
+    }
+
+    /**
+     * @return the current key, set on {@link Event#KEY} and the value that follows it. {@code null} otherwise.
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * @return the amount of entries on {@link Event#START_MAP}, elements on {@link Event#START_LIST} or array
+     * elements on an array {@link Event#VALUE}. Otherwise {@code -1}.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return the type id of the list elements on {@link Event#START_LIST}, otherwise {@code -1}.
+     */
+    public int elementId() {
+        return elementId;
+    }
+
+    /**
+     * @return the amount of maps and lists the reader is currently inside of.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Reads the current value as a data type.
+     * <ul>
+     *     <li>On {@link Event#KEY} the value of that key is read.</li>
+     *     <li>On {@link Event#VALUE} the value itself is read.</li>
+     *     <li>On {@link Event#START_MAP} or {@link Event#START_LIST} the whole container is read, the event becomes
+     *     {@link Event#END}.</li>
+     * </ul>
+     *
+     * @return the read value.
+     * @throws IOException when an I/O error occurs.
+     * @throws IllegalStateException when not positioned on a value.
+     */
+    public DataType<?> readValue() throws IOException {
+        if (event == Event.KEY && valueNext || event == null && valueNext) {
+            valueNext = false;
+            if (event == null) event = Event.END_DOCUMENT;
+            return DataTypeRegistry.read(typeId, input);
+        }
+
+        if (event == Event.START_MAP) {
+            int top = depth - 1;
+            MapType map = new MapType();
+            for (int i = remaining[top]; i > 0; i--) {
+                String entryKey = UboInput.readKey(input);
+                map.put(entryKey, DataTypeRegistry.read(input.readUnsignedByte(), input));
+            }
+
+            closeContainer();
+            return map;
+        }
+
+        if (event == Event.START_LIST) {
+            int top = depth - 1;
+            ListType<DataType<?>> list = new ListType<>(elementIds[top]);
+            for (int i = remaining[top]; i > 0; i--) {
+                list.add(DataTypeRegistry.read(elementIds[top], input));
+            }
+
+            closeContainer();
+            return list;
+        }
+
+        expectValue();
+        if (typeId == DataTypes.BYTE_ARRAY) return new ByteArrayType(readByteArray());
+        if (typeId == DataTypes.SHORT_ARRAY) return new ShortArrayType(readShortArray());
+        if (typeId == DataTypes.INT_ARRAY) return new IntArrayType(readIntArray());
+        if (typeId == DataTypes.LONG_ARRAY) return new LongArrayType(readLongArray());
+        if (typeId == DataTypes.FLOAT_ARRAY) return new FloatArrayType(readFloatArray());
+        if (typeId == DataTypes.DOUBLE_ARRAY) return new DoubleArrayType(readDoubleArray());
+        if (typeId == DataTypes.CHAR_ARRAY) return new CharArrayType(readCharArray());
+
+        consumed = true;
+        return DataTypeRegistry.read(typeId, input);
+    }
+
+    private void closeContainer() {
+        remaining[depth - 1] = 0;
+        depth--;
+        key = null;
+        event = Event.END;
+    }
+
+    private void expectValue() {
+        if (event != Event.VALUE || consumed)
+            throw new IllegalStateException("Not positioned on an unread value: " + event);
+    }
+
+    private void expect(int id) throws DataTypeException {
+        expectValue();
+        if (typeId != id)
+            throw new DataTypeException("Expected a value of type " + id + " but got " + typeId);
+        consumed = true;
+    }
+
+    public byte readByte() throws IOException {
+        expect(DataTypes.BYTE);
+        return input.readByte();
+    }
+
+    public short readShort() throws IOException {
+        expect(DataTypes.SHORT);
+        return input.readShort();
+    }
+
+    public int readInt() throws IOException {
+        expect(DataTypes.INT);
+        return input.readInt();
+    }
+
+    public long readLong() throws IOException {
+        expect(DataTypes.LONG);
+        return input.readLong();
+    }
+
+    public float readFloat() throws IOException {
+        expect(DataTypes.FLOAT);
+        return input.readFloat();
+    }
+
+    public double readDouble() throws IOException {
+        expect(DataTypes.DOUBLE);
+        return input.readDouble();
+    }
+
+    public char readChar() throws IOException {
+        expect(DataTypes.CHAR);
+        return input.readChar();
+    }
+
+    public boolean readBoolean() throws IOException {
+        expect(DataTypes.BOOLEAN);
+        return input.readBoolean();
+    }
+
+    public String readString() throws IOException {
+        expect(DataTypes.STRING);
+        return StringType.read(input).getValue();
+    }
+
+    public BigInteger readBigInt() throws IOException {
+        expect(DataTypes.BIG_INT);
+        return BigIntType.read(input).getValue();
+    }
+
+    public BigDecimal readBigDec() throws IOException {
+        expect(DataTypes.BIG_DEC);
+        return BigDecType.read(input).getValue();
+    }
+
+    public UUID readUUID() throws IOException {
+        expect(DataTypes.UUID);
+        return new UUID(input.readLong(), input.readLong());
+    }
+
+    public BitSet readBitSet() throws IOException {
+        expect(DataTypes.BIT_SET);
+        return BitSetType.read(input).getValue();
+    }
+
+    public byte[] readByteArray() throws IOException {
+        byte[] array = new byte[checkArray(DataTypes.BYTE_ARRAY)];
+        readByteArrayInto(array);
+        return array;
+    }
+
+    public int readByteArrayInto(byte[] dst) throws IOException {
+        int len = prepareArray(DataTypes.BYTE_ARRAY, dst.length);
+        BulkIo.readBytes(input, dst, 0, len);
+        return len;
+    }
+
+    public short[] readShortArray() throws IOException {
+        short[] array = new short[checkArray(DataTypes.SHORT_ARRAY)];
+        readShortArrayInto(array);
+        return array;
+    }
+
+    public int readShortArrayInto(short[] dst) throws IOException {
+        int len = prepareArray(DataTypes.SHORT_ARRAY, dst.length);
+        BulkIo.readShorts(input, dst, 0, len);
+        return len;
+    }
+
+    public char[] readCharArray() throws IOException {
+        char[] array = new char[checkArray(DataTypes.CHAR_ARRAY)];
+        readCharArrayInto(array);
+        return array;
+    }
+
+    public int readCharArrayInto(char[] dst) throws IOException {
+        int len = prepareArray(DataTypes.CHAR_ARRAY, dst.length);
+        BulkIo.readChars(input, dst, 0, len);
+        return len;
+    }
+
+    public int[] readIntArray() throws IOException {
+        int[] array = new int[checkArray(DataTypes.INT_ARRAY)];
+        readIntArrayInto(array);
+        return array;
+    }
+
+    public int readIntArrayInto(int[] dst) throws IOException {
+        int len = prepareArray(DataTypes.INT_ARRAY, dst.length);
+        BulkIo.readInts(input, dst, 0, len);
+        return len;
+    }
+
+    public long[] readLongArray() throws IOException {
+        long[] array = new long[checkArray(DataTypes.LONG_ARRAY)];
+        readLongArrayInto(array);
+        return array;
+    }
+
+    /**
+     * Reads the current long array into the given array, without allocating.
+     *
+     * @param dst the array to read into, must hold at least {@link #length()} elements.
+     * @return the amount of elements read.
+     * @throws IOException when an I/O error occurs.
+     */
+    public int readLongArrayInto(long[] dst) throws IOException {
+        int len = prepareArray(DataTypes.LONG_ARRAY, dst.length);
+        BulkIo.readLongs(input, dst, 0, len);
+        return len;
+    }
+
+    public float[] readFloatArray() throws IOException {
+        float[] array = new float[checkArray(DataTypes.FLOAT_ARRAY)];
+        readFloatArrayInto(array);
+        return array;
+    }
+
+    public int readFloatArrayInto(float[] dst) throws IOException {
+        int len = prepareArray(DataTypes.FLOAT_ARRAY, dst.length);
+        BulkIo.readFloats(input, dst, 0, len);
+        return len;
+    }
+
+    public double[] readDoubleArray() throws IOException {
+        double[] array = new double[checkArray(DataTypes.DOUBLE_ARRAY)];
+        readDoubleArrayInto(array);
+        return array;
+    }
+
+    public int readDoubleArrayInto(double[] dst) throws IOException {
+        int len = prepareArray(DataTypes.DOUBLE_ARRAY, dst.length);
+        BulkIo.readDoubles(input, dst, 0, len);
+        return len;
+    }
+
+    private int checkArray(int id) throws DataTypeException {
+        expectValue();
+        if (typeId != id)
+            throw new DataTypeException("Expected a value of type " + id + " but got " + typeId);
+        return length;
+    }
+
+    private int prepareArray(int id, int capacity) throws DataTypeException {
+        int len = checkArray(id);
+        if (capacity < len)
+            throw new IllegalArgumentException("Array too small, needs " + len + " elements but holds " + capacity);
+        consumed = true;
+        return len;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeable != null) closeable.close();
+    }
+
+    /**
+     * The events reported by {@link UboReader#next()}.
+     */
+    public enum Event {
+        /**
+         * Start of a map, {@link UboReader#length()} holds the amount of entries.
+         */
+        START_MAP,
+        /**
+         * A map key, {@link UboReader#key()} holds the key and {@link UboReader#typeId()} the type of its value.
+         */
+        KEY,
+        /**
+         * Start of a list, {@link UboReader#elementId()} holds the element type and {@link UboReader#length()} the
+         * amount of elements.
+         */
+        START_LIST,
+        /**
+         * Any value that is not a map or list, {@link UboReader#typeId()} holds its type.
+         */
+        VALUE,
+        /**
+         * End of the current map or list.
+         */
+        END,
+        /**
+         * End of the data, the root value was fully read.
+         */
+        END_DOCUMENT
+    }
+}
@@ -0,0 +1,375 @@
+package dev.ultreon.ubo;
+
+import dev.ultreon.ubo.types.DataType;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A single memory-mapped file holding many UBO records, each in its own slot.
+ * <p>
+ * The file starts with a header table holding the sector offset, sector count, byte length, flags and timestamp of
+ * every slot. Records are stored in {@value #SECTOR_SIZE} byte sectors, each as the bytes {@link DataIo#write} would
+ * write, optionally GZIP compressed. When a record is rewritten it stays in place if it still fits, releasing any
+ * sectors it no longer needs, otherwise it moves to the first run of free sectors that fits. Trailing free sectors
+ * are cut off when the file is opened, before it is mapped, as a mapped file can't be truncated on every platform.
+ * <p>
+ * All methods are synchronized, the file must not be opened more than once at the same time.
+ */
+public class UboRegionFile implements Closeable {
+    public static final int SECTOR_SIZE = 4096;
+    public static final int DEFAULT_SLOTS = 1024;
+
+    private static final int MAGIC = 0x55424F52;
+    private static final short VERSION = 1;
+    private static final int FILE_HEADER = 16;
+    private static final int ENTRY_SIZE = 24;
+    private static final int FLAG_GZIP = 1;
+    private static final int MIN_GROWTH = 1 << 20;
+    private static final long MAX_SIZE = Integer.MAX_VALUE / SECTOR_SIZE * (long) SECTOR_SIZE;
+
+    private final FileChannel channel;
+    private final int slots;
+    private final int headerSectors;
+    private final BitSet used = new BitSet();
+
+    private final int[] offsets;
+    private final int[] sectors;
+    private final int[] lengths;
+    private final int[] flags;
+    private final long[] timestamps;
+
+    private MappedByteBuffer map;
+
+    private UboRegionFile(FileChannel channel, int slots) {
+        this.channel = channel;
+        this.slots = slots;
+        this.headerSectors = (FILE_HEADER + slots * ENTRY_SIZE + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        this.offsets = new int[slots];
+        this.sectors = new int[slots];
+        this.lengths = new int[slots];
+        this.flags = new int[slots];
+        this.timestamps = new long[slots];
+        this.used.set(0, headerSectors);
+    }
+
+    public static UboRegionFile open(Path path) throws IOException {
+        return open(path, DEFAULT_SLOTS);
+    }
+
+    /**
+     * Opens a region file, creating it if it doesn't exist.
+     *
+     * @param path  the region file.
+     * @param slots the amount of slots for a new file, existing files keep the amount they were created with.
+     * @return the opened region file.
+     * @throws IOException when an I/O error occurs or the file is corrupt.
+     */
+    public static UboRegionFile open(Path path, int slots) throws IOException {
+        if (slots <= 0) throw new IllegalArgumentException("Slot count must be positive: " + slots);
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            if (channel.size() == 0) {
+                UboRegionFile file = new UboRegionFile(channel, slots);
+                file.ensureCapacity((long) file.headerSectors * SECTOR_SIZE);
+                file.map.putInt(0, MAGIC);
+                file.map.putShort(4, VERSION);
+                file.map.putInt(8, slots);
+                return file;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) throw new EOFException("Region file header is truncated");
+            }
+
+            int magic = header.getInt(0);
+            if (magic != MAGIC)
+                throw new StreamCorruptedException(String.format("Invalid region file header got 0x%08X (expected 0x%08X)", magic, MAGIC));
+            short version = header.getShort(4);
+            if (version > VERSION) throw new FutureVersionException(version, VERSION);
+            int fileSlots = header.getInt(8);
+            if (fileSlots <= 0) throw new StreamCorruptedException("Invalid region file slot count: " + fileSlots);
+
+            UboRegionFile file = new UboRegionFile(channel, fileSlots);
+            file.loadTable();
+            long end = (long) Math.max(file.headerSectors, file.used.length()) * SECTOR_SIZE;
+            if (channel.size() > end) channel.truncate(end);
+            file.ensureCapacity(Math.max(channel.size(), (long) file.headerSectors * SECTOR_SIZE));
+            return file;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the slot table through the channel, the file isn't mapped yet.
+     */
+    private void loadTable() throws IOException {
+        long size = channel.size();
+        ByteBuffer table = ByteBuffer.allocate(FILE_HEADER + slots * ENTRY_SIZE);
+        while (table.hasRemaining()) {
+            if (channel.read(table, table.position()) < 0) throw new EOFException("Region file header is truncated");
+        }
+
+        for (int slot = 0; slot < slots; slot++) {
+            int entry = FILE_HEADER + slot * ENTRY_SIZE;
+            offsets[slot] = table.getInt(entry);
+            sectors[slot] = table.getInt(entry + 4);
+            lengths[slot] = table.getInt(entry + 8);
+            flags[slot] = table.getInt(entry + 12);
+            timestamps[slot] = table.getLong(entry + 16);
+            if (sectors[slot] == 0) continue;
+
+            int offset = offsets[slot];
+            int count = sectors[slot];
+            if (offset < headerSectors || count < 0 || lengths[slot] < 0 || lengths[slot] > (long) count * SECTOR_SIZE
+                    || (long) offset * SECTOR_SIZE + lengths[slot] > size) {
+                throw new StreamCorruptedException("Invalid region file entry for slot " + slot);
+            }
+
+            int overlap = used.nextSetBit(offset);
+            if (overlap >= 0 && overlap < offset + count)
+                throw new StreamCorruptedException("Slot " + slot + " overlaps another slot at sector " + overlap);
+            used.set(offset, offset + count);
+        }
+    }
+
+    /**
+     * Grows the file and its mapping to at least the given size.
+     */
+    private void ensureCapacity(long size) throws IOException {
+        if (map != null && map.capacity() >= size) return;
+        if (size > MAX_SIZE) throw new IOException("Region file can't grow beyond " + MAX_SIZE + " bytes");
+
+        long grown = map == null ? size : Math.max(size, (long) map.capacity() + Math.max(MIN_GROWTH, map.capacity() >> 1));
+        grown = Math.min(MAX_SIZE, (grown + SECTOR_SIZE - 1) / SECTOR_SIZE * SECTOR_SIZE);
+        if (channel.size() < grown) {
+            channel.write(ByteBuffer.allocate(1), grown - 1);
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= slots) throw new IndexOutOfBoundsException("Slot " + slot + " out of bounds for " + slots + " slots");
+        if (map == null) throw new IllegalStateException("Region file is closed");
+    }
+
+    /**
+     * @return the amount of slots in this file.
+     */
+    public int slots() {
+        return slots;
+    }
+
+    public synchronized boolean has(int slot) {
+        checkSlot(slot);
+        return sectors[slot] != 0;
+    }
+
+    /**
+     * @return the time the slot was last written in milliseconds since the epoch, or {@code 0} if empty.
+     */
+    public synchronized long timestamp(int slot) {
+        checkSlot(slot);
+        return timestamps[slot];
+    }
+
+    /**
+     * @return the stored length of the slot's record in bytes, after compression.
+     */
+    public synchronized int length(int slot) {
+        checkSlot(slot);
+        return lengths[slot];
+    }
+
+    /**
+     * @return the amount of sectors in use, including the header.
+     */
+    public synchronized int usedSectors() {
+        return used.cardinality();
+    }
+
+    /**
+     * Reads the record of the slot.
+     *
+     * @param slot the slot to read.
+     * @return the read record, or {@code null} if the slot is empty.
+     * @throws IOException when an I/O error occurs.
+     * @throws DataTypeException when the read data type is invalid.
+     */
+    @SafeVarargs
+    public final synchronized <T extends DataType<?>> T read(int slot, T... type) throws IOException {
+        checkSlot(slot);
+        if (sectors[slot] == 0) return null;
+
+        ByteBuffer record = map.duplicate();
+        int start = offsets[slot] * SECTOR_SIZE;
+        ((Buffer) record).limit(start + lengths[slot]);
+        ((Buffer) record).position(start);
+
+        if ((flags[slot] & FLAG_GZIP) != 0) {
+            return DataIo.read(new GZIPInputStream(new BufferStream(record)), type);
+        }
+        return DataIo.read(record, type);
+    }
+
+    public synchronized void write(int slot, DataType<?> value) throws IOException {
+        write(slot, value, false);
+    }
+
+    /**
+     * Writes the record of the slot, replacing the previous record.
+     *
+     * @param slot     the slot to write.
+     * @param value    the record.
+     * @param compress whether to GZIP compress the record.
+     * @throws IOException when an I/O error occurs.
+     */
+    public synchronized void write(int slot, DataType<?> value, boolean compress) throws IOException {
+        checkSlot(slot);
+
+        ByteBuffer payload;
+        if (compress) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (GZIPOutputStream stream = new GZIPOutputStream(bytes)) {
+                DataIo.write(value, stream);
+            }
+            payload = ByteBuffer.wrap(bytes.toByteArray());
+        } else {
+            payload = ByteBuffer.wrap(DataIo.toBytes(value));
+        }
+
+        int length = payload.remaining();
+        int count = Math.max(1, (length + SECTOR_SIZE - 1) / SECTOR_SIZE);
+        int oldOffset = offsets[slot];
+        int oldCount = sectors[slot];
+        int offset = allocate(slot, count);
+
+        // Nothing is marked in use or freed before the file can hold the record, growing it may fail.
+        ensureCapacity((long) (offset + count) * SECTOR_SIZE);
+        ByteBuffer target = map.duplicate();
+        ((Buffer) target).position(offset * SECTOR_SIZE);
+        target.put(payload);
+
+        setEntry(slot, offset, count, length, compress ? FLAG_GZIP : 0, System.currentTimeMillis());
+        if (oldCount != 0) used.clear(oldOffset, oldOffset + oldCount);
+        used.set(offset, offset + count);
+    }
+
+    /**
+     * Finds room for the slot's new record, in place if it fits, without marking any sectors.
+     *
+     * @return the sector offset for the record.
+     */
+    private int allocate(int slot, int count) {
+        int offset = offsets[slot];
+        int old = sectors[slot];
+        if (old >= count) return offset;
+
+        // The record's own sectors count as free, it may move into them.
+        if (old != 0) used.clear(offset, offset + old);
+
+        int start = used.nextClearBit(headerSectors);
+        while (true) {
+            int end = used.nextSetBit(start);
+            if (end < 0 || end - start >= count) break;
+            start = used.nextClearBit(end);
+        }
+
+        if (old != 0) used.set(offset, offset + old);
+        return start;
+    }
+
+    /**
+     * Empties the slot, its sectors can be used by other records.
+     */
+    public synchronized void delete(int slot) {
+        checkSlot(slot);
+        if (sectors[slot] == 0) return;
+
+        used.clear(offsets[slot], offsets[slot] + sectors[slot]);
+        setEntry(slot, 0, 0, 0, 0, 0);
+    }
+
+    private void setEntry(int slot, int offset, int count, int length, int flag, long timestamp) {
+        offsets[slot] = offset;
+        sectors[slot] = count;
+        lengths[slot] = length;
+        flags[slot] = flag;
+        timestamps[slot] = timestamp;
+
+        int entry = FILE_HEADER + slot * ENTRY_SIZE;
+        map.putInt(entry, offset);
+        map.putInt(entry + 4, count);
+        map.putInt(entry + 8, length);
+        map.putInt(entry + 12, flag);
+        map.putLong(entry + 16, timestamp);
+    }
+
+    /**
+     * Forces all written records to the storage device.
+     */
+    public synchronized void flush() {
+        if (map != null) map.force();
+    }
+
+    /**
+     * Flushes and closes the file. The free sectors at its end are kept until the file is opened again, truncating it
+     * while it is still mapped fails on some platforms.
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (map == null) return;
+
+        try {
+            map.force();
+            map = null;
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Input stream over the remaining bytes of a buffer, used for compressed records.
+     */
+    private static final class BufferStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package dev.ultreon.ubo;
+
+import dev.ultreon.ubo.types.DataType;
+import dev.ultreon.ubo.types.StringType;
+import dev.ultreon.ubo.util.ByteBufferInput;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.UUID;
+
+/**
+ * Read-only view on data written with {@link DataIo#writeIndexed(DataType)}.
+ * <p>
+ * Maps store a table of their keys sorted with value offsets and lists store the offsets of their elements, so a view
+ * finds a key with a binary search and jumps straight to its value. Nothing is parsed or copied up front:
+ * <pre>{@code
+ * UboView root = UboView.of(buffer);
+ * int health = root.getInt("Health", 20);
+ * UboView inventory = root.getList("Inventory");
+ * for (int i = 0; i < inventory.size(); i++) {
+ *     String id = inventory.valueAt(i).getString("Id");
+ * }
+ * }</pre>
+ * The buffer must not be modified while views on it are in use.
+ */
+public final class UboView {
+    private final ByteBuffer buffer;
+    private final int position;
+    private final int typeId;
+
+    private UboView(ByteBuffer buffer, int position, int typeId) {
+        this.buffer = buffer;
+        this.position = position;
+        this.typeId = typeId;
+    }
+
+    /**
+     * Creates a view on the root value of the indexed data at the buffer's position.
+     *
+     * @param buffer the buffer holding the data, its position and limit are left untouched.
+     * @return the view on the root value.
+     * @throws IOException when the data isn't in the indexed format.
+     */
+    public static UboView of(ByteBuffer buffer) throws IOException {
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int start = data.position();
+        if (data.remaining() < 7) throw new StreamCorruptedException("Not enough data for a header");
+
+        int magic = data.getInt(start);
+        if (magic != DataIo.HEADER) {
+            throw new StreamCorruptedException(String.format("Invalid header got 0x%08X (expected 0xFF804269)", magic));
+        }
+
+        short version = data.getShort(start + 4);
+        if (version > IndexedFormat.VERSION) throw new FutureVersionException(version, IndexedFormat.VERSION);
+        if (version != IndexedFormat.VERSION)
+            throw new DataTypeException("Data version " + version + " has no index, only version " + IndexedFormat.VERSION + " can be viewed");
+
+        return new UboView(data, start + 7, data.get(start + 6) & 0xFF);
+    }
+
+    /**
+     * @return the type id of the viewed value.
+     */
+    public int typeId() {
+        return typeId;
+    }
+
+    public boolean isMap() {
+        return typeId == DataTypes.MAP;
+    }
+
+    public boolean isList() {
+        return typeId == DataTypes.LIST;
+    }
+
+    /**
+     * @return the amount of entries of a map, elements of a list or array, or {@code -1} for other values.
+     */
+    public int size() {
+        if (typeId == DataTypes.MAP) return buffer.getInt(position + 4);
+        if (typeId == DataTypes.LIST) return buffer.getInt(position + 5);
+        if (isArray()) return buffer.getInt(position);
+        return -1;
+    }
+
+    private boolean isArray() {
+        return typeId == DataTypes.BYTE_ARRAY || typeId == DataTypes.SHORT_ARRAY || typeId == DataTypes.INT_ARRAY
+                || typeId == DataTypes.LONG_ARRAY || typeId == DataTypes.FLOAT_ARRAY
+                || typeId == DataTypes.DOUBLE_ARRAY || typeId == DataTypes.CHAR_ARRAY;
+    }
+
+    /**
+     * @return the type id of the list elements.
+     * @throws IllegalStateException when not viewing a list.
+     */
+    public int elementId() {
+        expect(DataTypes.LIST);
+        return buffer.get(position + 4) & 0xFF;
+    }
+
+    private void expect(int id) {
+        if (typeId != id) throw new IllegalStateException("Viewed value has type " + typeId + ", expected " + id);
+    }
+
+    private int entry(int index) {
+        return position + IndexedFormat.MAP_HEADER + index * IndexedFormat.MAP_ENTRY;
+    }
+
+    /**
+     * Binary searches the key table.
+     *
+     * @return the entry index of the key, or {@code -1} if absent.
+     */
+    private int find(String key) {
+        expect(DataTypes.MAP);
+
+        byte[] encoded = null;
+        int low = 0;
+        int high = buffer.getInt(position + 4) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int keyAt = position + buffer.getInt(entry(mid));
+
+            int cmp = compareAscii(keyAt, key);
+            if (cmp == Integer.MIN_VALUE) {
+                if (encoded == null) encoded = encode(key);
+                cmp = compareEncoded(keyAt, encoded);
+            }
+
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Compares the stored key with a plain ASCII key without encoding it.
+     *
+     * @return the comparison result, or {@link Integer#MIN_VALUE} if the key isn't plain ASCII.
+     */
+    private int compareAscii(int keyAt, String key) {
+        int storedLen = buffer.getShort(keyAt) & 0xFFFF;
+        int len = key.length();
+        int common = Math.min(storedLen, len);
+        for (int i = 0; i < common; i++) {
+            char c = key.charAt(i);
+            if (c == 0 || c >= 0x80) return Integer.MIN_VALUE;
+
+            int cmp = (buffer.get(keyAt + 2 + i) & 0xFF) - c;
+            if (cmp != 0) return cmp;
+        }
+
+        for (int i = common; i < len; i++) {
+            char c = key.charAt(i);
+            if (c == 0 || c >= 0x80) return Integer.MIN_VALUE;
+        }
+        return storedLen - len;
+    }
+
+    private int compareEncoded(int keyAt, byte[] key) {
+        int storedLen = buffer.getShort(keyAt) & 0xFFFF;
+        int common = Math.min(storedLen, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = (buffer.get(keyAt + 2 + i) & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return storedLen - key.length;
+    }
+
+    private static byte[] encode(String key) {
+        try {
+            return IndexedFormat.encodeKey(key);
+        } catch (UTFDataFormatException e) {
+            // Longer than any stored key can be.
+            return new byte[0x10000];
+        }
+    }
+
+    public boolean containsKey(String key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return the type id of the value of the key, or {@code -1} if absent.
+     */
+    public int typeOf(String key) {
+        int index = find(key);
+        return index < 0 ? -1 : buffer.get(entry(index) + 8) & 0xFF;
+    }
+
+    /**
+     * @return a view on the value of the key, or {@code null} if absent.
+     */
+    public UboView get(String key) {
+        int index = find(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    /**
+     * @param index the index of the map entry, in key order.
+     * @return the key of the entry.
+     */
+    public String keyAt(int index) {
+        expect(DataTypes.MAP);
+        checkIndex(index);
+        try {
+            return input(position + buffer.getInt(entry(index))).readKey();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param index the index of the map entry, in key order, or of the list element.
+     * @return a view on the value.
+     */
+    public UboView valueAt(int index) {
+        checkIndex(index);
+        if (typeId == DataTypes.LIST) {
+            int offset = buffer.getInt(position + IndexedFormat.LIST_HEADER + index * IndexedFormat.LIST_ENTRY);
+            return new UboView(buffer, position + offset, buffer.get(position + 4) & 0xFF);
+        }
+
+        expect(DataTypes.MAP);
+        int entry = entry(index);
+        return new UboView(buffer, position + buffer.getInt(entry + 4), buffer.get(entry + 8) & 0xFF);
+    }
+
+    private void checkIndex(int index) {
+        int size = size();
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+
+    /**
+     * @return the absolute position of the value of the key if it has the given type, otherwise {@code -1}.
+     */
+    private int valuePosition(String key, int id) {
+        int index = find(key);
+        if (index < 0) return -1;
+
+        int entry = entry(index);
+        if ((buffer.get(entry + 8) & 0xFF) != id) return -1;
+        return position + buffer.getInt(entry + 4);
+    }
+
+    public byte getByte(String key, byte def) {
+        int at = valuePosition(key, DataTypes.BYTE);
+        return at < 0 ? def : buffer.get(at);
+    }
+
+    public short getShort(String key, short def) {
+        int at = valuePosition(key, DataTypes.SHORT);
+        return at < 0 ? def : buffer.getShort(at);
+    }
+
+    public int getInt(String key, int def) {
+        int at = valuePosition(key, DataTypes.INT);
+        return at < 0 ? def : buffer.getInt(at);
+    }
+
+    public long getLong(String key, long def) {
+        int at = valuePosition(key, DataTypes.LONG);
+        return at < 0 ? def : buffer.getLong(at);
+    }
+
+    public float getFloat(String key, float def) {
+        int at = valuePosition(key, DataTypes.FLOAT);
+        return at < 0 ? def : buffer.getFloat(at);
+    }
+
+    public double getDouble(String key, double def) {
+        int at = valuePosition(key, DataTypes.DOUBLE);
+        return at < 0 ? def : buffer.getDouble(at);
+    }
+
+    public char getChar(String key, char def) {
+        int at = valuePosition(key, DataTypes.CHAR);
+        return at < 0 ? def : buffer.getChar(at);
+    }
+
+    public boolean getBoolean(String key, boolean def) {
+        int at = valuePosition(key, DataTypes.BOOLEAN);
+        return at < 0 ? def : buffer.get(at) != 0;
+    }
+
+    public String getString(String key) {
+        int at = valuePosition(key, DataTypes.STRING);
+        return at < 0 ? null : new UboView(buffer, at, DataTypes.STRING).asString();
+    }
+
+    public UUID getUUID(String key) {
+        int at = valuePosition(key, DataTypes.UUID);
+        return at < 0 ? null : new UUID(buffer.getLong(at), buffer.getLong(at + 8));
+    }
+
+    /**
+     * @return a view on the map of the key, or {@code null} if absent or not a map.
+     */
+    public UboView getMap(String key) {
+        int at = valuePosition(key, DataTypes.MAP);
+        return at < 0 ? null : new UboView(buffer, at, DataTypes.MAP);
+    }
+
+    /**
+     * @return a view on the list of the key, or {@code null} if absent or not a list.
+     */
+    public UboView getList(String key) {
+        int at = valuePosition(key, DataTypes.LIST);
+        return at < 0 ? null : new UboView(buffer, at, DataTypes.LIST);
+    }
+
+    public byte asByte() {
+        expect(DataTypes.BYTE);
+        return buffer.get(position);
+    }
+
+    public short asShort() {
+        expect(DataTypes.SHORT);
+        return buffer.getShort(position);
+    }
+
+    public int asInt() {
+        expect(DataTypes.INT);
+        return buffer.getInt(position);
+    }
+
+    public long asLong() {
+        expect(DataTypes.LONG);
+        return buffer.getLong(position);
+    }
+
+    public float asFloat() {
+        expect(DataTypes.FLOAT);
+        return buffer.getFloat(position);
+    }
+
+    public double asDouble() {
+        expect(DataTypes.DOUBLE);
+        return buffer.getDouble(position);
+    }
+
+    public char asChar() {
+        expect(DataTypes.CHAR);
+        return buffer.getChar(position);
+    }
+
+    public boolean asBoolean() {
+        expect(DataTypes.BOOLEAN);
+        return buffer.get(position) != 0;
+    }
+
+    public String asString() {
+        expect(DataTypes.STRING);
+        try {
+            return StringType.read(input(position)).getValue();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public UUID asUUID() {
+        expect(DataTypes.UUID);
+        return new UUID(buffer.getLong(position), buffer.getLong(position + 8));
+    }
+
+    /**
+     * Decodes the viewed value, including everything inside it.
+     *
+     * @return the decoded value.
+     * @throws IOException when the data is invalid.
+     */
+    public DataType<?> toDataType() throws IOException {
+        return IndexedFormat.read(typeId, input(position));
+    }
+
+    private ByteBufferInput input(int at) {
+        return new ByteBufferInput(buffer, at, buffer.limit());
+    }
+
+    @Override
+    public String toString() {
+        return "UboView[type=" + typeId + ", position=" + position + "]";
+    }
+}
@@ -0,0 +1,422 @@
+package dev.ultreon.ubo;
+
+import dev.ultreon.ubo.types.*;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.ByteBufferOutput;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+
+/**
+ * Streaming push writer for UBO data.
+ * <p>
+ * Writes the exact bytes {@link DataIo#write(DataType, DataOutput)} would produce for the equivalent
+ * {@link MapType}/{@link ListType} tree, without creating the tree:
+ * <pre>{@code
+ * try (UboWriter writer = UboWriter.open(path)) {
+ *     writer.beginMap(2);
+ *     writer.key("Health").writeInt(health);
+ *     writer.key("Inventory").beginList(DataTypes.MAP, items.size());
+ *     for (Item item : items) {
+ *         writer.beginMap(1).key("Id").writeString(item.getId()).end();
+ *     }
+ *     writer.end().end();
+ * }
+ * }</pre>
+ * Maps and lists have to declare their size up front, like the binary format does. With validation enabled the
+ * writer checks that the declared sizes are met and that list elements have the declared type.
+ */
+public class UboWriter implements Closeable, Flushable {
+    private static final int INITIAL_DEPTH = 16;
+
+    private final DataOutput output;
+    private final Closeable closeable;
+    private final boolean validate;
+
+    private boolean[] maps = new boolean[INITIAL_DEPTH];
+    private int[] remaining = new int[INITIAL_DEPTH];
+    private int[] elementIds = new int[INITIAL_DEPTH];
+    private int depth;
+
+    private boolean keyPending;
+    private boolean rootWritten;
+
+    public UboWriter(OutputStream stream) {
+        this(stream, false);
+    }
+
+    public UboWriter(OutputStream stream, boolean validate) {
+        this(stream instanceof DataOutput ? (DataOutput) stream : new DataOutputStream(stream), stream, validate);
+    }
+
+    public UboWriter(DataOutput output) {
+        this(output, false);
+    }
+
+    public UboWriter(DataOutput output, boolean validate) {
+        this(output, output instanceof Closeable ? (Closeable) output : null, validate);
+    }
+
+    private UboWriter(DataOutput output, Closeable closeable, boolean validate) {
+        this.output = output;
+        this.closeable = closeable;
+        this.validate = validate;
+    }
+
+    /**
+     * Opens a writer for the given file, truncating it if it exists.
+     *
+     * @param path     the file to write.
+     * @param validate whether to validate declared sizes and list element types.
+     * @return the writer.
+     * @throws IOException when an I/O error occurs.
+     */
+    public static UboWriter open(Path path, boolean validate) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBufferOutput output = new ByteBufferOutput(channel, ByteBuffer.allocateDirect(DataIo.CHANNEL_BUFFER_SIZE));
+        return new UboWriter(output, () -> {
+            try {
+                output.flush();
+            } finally {
+                channel.close();
+            }
+        }, validate);
+    }
+
+    public static UboWriter open(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    /**
+     * Starts a value of the given type, writing the header, the map entry type id or checking the list element type.
+     */
+    private void begin(int id) throws IOException {
+        if (depth == 0) {
+            if (rootWritten) throw new IllegalStateException("Root value already written");
+            rootWritten = true;
+            output.writeInt(DataIo.HEADER);
+            output.writeShort(DataIo.VERSION);
+            output.writeByte(id);
+            return;
+        }
+
+        int top = depth - 1;
+        if (maps[top] && !keyPending)
+            throw new IllegalStateException("Expected a key before the value");
+        if (!maps[top] && validate && id != elementIds[top])
+            throw new IllegalStateException("List of type " + elementIds[top] + " can't contain type " + id);
+        if (validate && remaining[top] == 0)
+            throw new IllegalStateException((maps[top] ? "Map" : "List") + " has more entries than declared");
+
+        remaining[top]--;
+        if (maps[top]) {
+            keyPending = false;
+            output.writeByte(id);
+        }
+    }
+
+    private void push(boolean map, int size, int elementId) {
+        if (depth == maps.length) {
+            maps = Arrays.copyOf(maps, depth << 1);
+            remaining = Arrays.copyOf(remaining, depth << 1);
+            elementIds = Arrays.copyOf(elementIds, depth << 1);
+        }
+
+        maps[depth] = map;
+        remaining[depth] = size;
+        elementIds[depth] = elementId;
+        depth++;
+    }
+
+    /**
+     * Starts a map, which has to be closed with {@link #end()}.
+     *
+     * @param size the amount of entries that will be written.
+     * @return this writer.
+     * @throws IOException when an I/O error occurs.
+     */
+    public UboWriter beginMap(int size) throws IOException {
+        if (size < 0) throw new IllegalArgumentException("Size can't be negative: " + size);
+        begin(DataTypes.MAP);
+        output.writeInt(size);
+        push(true, size, -1);
+        return this;
+    }
+
+    /**
+     * Starts a list, which has to be closed with {@link #end()}.
+     *
+     * @param elementId the type id of the elements.
+     * @param size      the amount of elements that will be written.
+     * @return this writer.
+     * @throws IOException when an I/O error occurs.
+     */
+    public UboWriter beginList(int elementId, int size) throws IOException {
+        if (size < 0) throw new IllegalArgumentException("Size can't be negative: " + size);
+        begin(DataTypes.LIST);
+        output.writeByte(elementId);
+        output.writeInt(size);
+        push(false, size, elementId);
+        return this;
+    }
+
+    /**
+     * Ends the current map or list.
+     *
+     * @return this writer.
+     * @throws IllegalStateException when not inside a map or list, or a key has no value yet.
+     */
+    public UboWriter end() {
+        if (depth == 0) throw new IllegalStateException("Not inside a map or list");
+        if (keyPending) throw new IllegalStateException("Key without value");
+
+        int top = depth - 1;
+        if (validate && remaining[top] != 0)
+            throw new IllegalStateException((maps[top] ? "Map" : "List") + " is missing " + remaining[top] + " declared entries");
+        depth--;
+        return this;
+    }
+
+    /**
+     * Writes the key of the next map entry, the value has to be written next.
+     *
+     * @param key the key.
+     * @return this writer.
+     * @throws IOException when an I/O error occurs.
+     */
+    public UboWriter key(String key) throws IOException {
+        if (depth == 0 || !maps[depth - 1]) throw new IllegalStateException("Keys can only be written in a map");
+        if (keyPending) throw new IllegalStateException("Previous key has no value yet");
+        if (key == null) throw new IllegalArgumentException("Key can't be null");
+
+        output.writeUTF(key);
+        keyPending = true;
+        return this;
+    }
+
+    /**
+     * Writes an already built value.
+     *
+     * @param value the value to write.
+     * @return this writer.
+     * @throws IOException when an I/O error occurs.
+     */
+    public UboWriter value(DataType<?> value) throws IOException {
+        begin(value.id());
+        value.write(output);
+        return this;
+    }
+
+    public UboWriter writeByte(int value) throws IOException {
+        begin(DataTypes.BYTE);
+        output.writeByte(value);
+        return this;
+    }
+
+    public UboWriter writeShort(int value) throws IOException {
+        begin(DataTypes.SHORT);
+        output.writeShort(value);
+        return this;
+    }
+
+    public UboWriter writeInt(int value) throws IOException {
+        begin(DataTypes.INT);
+        output.writeInt(value);
+        return this;
+    }
+
+    public UboWriter writeLong(long value) throws IOException {
+        begin(DataTypes.LONG);
+        output.writeLong(value);
+        return this;
+    }
+
+    public UboWriter writeFloat(float value) throws IOException {
+        begin(DataTypes.FLOAT);
+        output.writeFloat(value);
+        return this;
+    }
+
+    public UboWriter writeDouble(double value) throws IOException {
+        begin(DataTypes.DOUBLE);
+        output.writeDouble(value);
+        return this;
+    }
+
+    public UboWriter writeChar(char value) throws IOException {
+        begin(DataTypes.CHAR);
+        output.writeChar(value);
+        return this;
+    }
+
+    public UboWriter writeBoolean(boolean value) throws IOException {
+        begin(DataTypes.BOOLEAN);
+        output.writeBoolean(value);
+        return this;
+    }
+
+    public UboWriter writeString(String value) throws IOException {
+        begin(DataTypes.STRING);
+        StringType.write(output, value);
+        return this;
+    }
+
+    public UboWriter writeBigInt(BigInteger value) throws IOException {
+        begin(DataTypes.BIG_INT);
+        BigIntType.write(output, value);
+        return this;
+    }
+
+    public UboWriter writeBigDec(BigDecimal value) throws IOException {
+        begin(DataTypes.BIG_DEC);
+        BigDecType.write(output, value);
+        return this;
+    }
+
+    public UboWriter writeUUID(UUID value) throws IOException {
+        begin(DataTypes.UUID);
+        UUIDType.write(output, value);
+        return this;
+    }
+
+    public UboWriter writeBitSet(BitSet value) throws IOException {
+        begin(DataTypes.BIT_SET);
+        BitSetType.write(output, value);
+        return this;
+    }
+
+    public UboWriter writeByteArray(byte[] array) throws IOException {
+        return writeByteArray(array, 0, array.length);
+    }
+
+    public UboWriter writeByteArray(byte[] array, int off, int len) throws IOException {
+        checkRange(array.length, off, len);
+        begin(DataTypes.BYTE_ARRAY);
+        output.writeInt(len);
+        BulkIo.writeBytes(output, array, off, len);
+        return this;
+    }
+
+    public UboWriter writeShortArray(short[] array) throws IOException {
+        return writeShortArray(array, 0, array.length);
+    }
+
+    public UboWriter writeShortArray(short[] array, int off, int len) throws IOException {
+        checkRange(array.length, off, len);
+        begin(DataTypes.SHORT_ARRAY);
+        output.writeInt(len);
+        BulkIo.writeShorts(output, array, off, len);
+        return this;
+    }
+
+    public UboWriter writeCharArray(char[] array) throws IOException {
+        return writeCharArray(array, 0, array.length);
+    }
+
+    public UboWriter writeCharArray(char[] array, int off, int len) throws IOException {
+        checkRange(array.length, off, len);
+        begin(DataTypes.CHAR_ARRAY);
+        output.writeInt(len);
+        BulkIo.writeChars(output, array, off, len);
+        return this;
+    }
+
+    public UboWriter writeIntArray(int[] array) throws IOException {
+        return writeIntArray(array, 0, array.length);
+    }
+
+    public UboWriter writeIntArray(int[] array, int off, int len) throws IOException {
+        checkRange(array.length, off, len);
+        begin(DataTypes.INT_ARRAY);
+        output.writeInt(len);
+        BulkIo.writeInts(output, array, off, len);
+        return this;
+    }
+
+    public UboWriter writeLongArray(long[] array) throws IOException {
+        return writeLongArray(array, 0, array.length);
+    }
+
+    /**
+     * Writes a range of a long array as a {@link LongArrayType}.
+     *
+     * @param array the array holding the values.
+     * @param off   the index of the first value to write.
+     * @param len   the amount of values to write.
+     * @return this writer.
+     * @throws IOException when an I/O error occurs.
+     */
+    public UboWriter writeLongArray(long[] array, int off, int len) throws IOException {
+        checkRange(array.length, off, len);
+        begin(DataTypes.LONG_ARRAY);
+        output.writeInt(len);
+        BulkIo.writeLongs(output, array, off, len);
+        return this;
+    }
+
+    public UboWriter writeFloatArray(float[] array) throws IOException {
+        return writeFloatArray(array, 0, array.length);
+    }
+
+    public UboWriter writeFloatArray(float[] array, int off, int len) throws IOException {
+        checkRange(array.length, off, len);
+        begin(DataTypes.FLOAT_ARRAY);
+        output.writeInt(len);
+        BulkIo.writeFloats(output, array, off, len);
+        return this;
+    }
+
+    public UboWriter writeDoubleArray(double[] array) throws IOException {
+        return writeDoubleArray(array, 0, array.length);
+    }
+
+    public UboWriter writeDoubleArray(double[] array, int off, int len) throws IOException {
+        checkRange(array.length, off, len);
+        begin(DataTypes.DOUBLE_ARRAY);
+        output.writeInt(len);
+        BulkIo.writeDoubles(output, array, off, len);
+        return this;
+    }
+
+    private static void checkRange(int length, int off, int len) {
+        if (off < 0 || len < 0 || off > length - len)
+            throw new IndexOutOfBoundsException("Range [" + off + ", " + off + " + " + len + ") out of bounds for length " + length);
+    }
+
+    /**
+     * @return the amount of maps and lists that are currently open.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (output instanceof Flushable) ((Flushable) output).flush();
+    }
+
+    /**
+     * Flushes and closes the underlying output.
+     *
+     * @throws IOException when an I/O error occurs.
+     * @throws IllegalStateException when validating and a map or list wasn't ended.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (closeable != null) closeable.close();
+        }
+
+        if (validate && depth != 0) throw new IllegalStateException(depth + " maps or lists weren't ended");
+    }
+}
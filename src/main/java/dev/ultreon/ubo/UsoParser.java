@@ -1,26 +1,62 @@
 package dev.ultreon.ubo;
 
 import dev.ultreon.ubo.types.*;
+import dev.ultreon.ubo.util.KeyInterner;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.UUID;
 
+/**
+ * Parses USO, reading the characters one by one from a {@link CharBuffer} or through a fixed-size window of a
+ * {@link Reader}, so documents never have to be held in memory as a whole. Whitespace, including newlines, is allowed
+ * between any two values and separators.
+ */
 public class UsoParser {
-    private final String input;
-    private final char[] chars;
-    private int pos;
-    private char c;
+    private static final int WINDOW_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] window;
+    private final CharBuffer buffer;
+    private final StringBuilder keyBuilder = new StringBuilder();
+    private long pos;
+    private int last = -1;
+    private boolean unread;
 
     public UsoParser(String input) {
-        this.input = input;
-        this.chars = input.toCharArray();
+        this(new StringReader(input));
+    }
+
+    /**
+     * Parses the remaining characters of the buffer, moving its position along.
+     */
+    public UsoParser(CharBuffer input) {
+        this.reader = null;
+        this.window = null;
+        this.buffer = input;
+    }
+
+    /**
+     * Parses the characters of the reader, read through a window of {@value #WINDOW_SIZE} characters. The reader isn't
+     * closed.
+     */
+    public UsoParser(Reader input) {
+        this.reader = input;
+        this.window = new char[WINDOW_SIZE];
+        this.buffer = CharBuffer.wrap(window);
+        ((Buffer) this.buffer).limit(0);
     }
 
     private DataType<?> readUso() throws IOException {
+        readWhitespace();
         int read = read();
         switch (read) {
             case '[':
@@ -42,7 +78,7 @@ public class UsoParser {
                 this.unread();
                 return readBoolean();
             default:
-                if (Character.isDigit(read)) return readNumber(read);
+                if (Character.isDigit(read) || read == '-') return readNumber(read);
                 throw new IOException("Invalid USO: " + (char) read);
         }
     }
@@ -97,8 +133,10 @@ public class UsoParser {
     }
 
     private CharArrayType readCharArray() throws IOException {
-        char[] chars = new char[0];
+        char[] chars = new char[16];
+        int count = 0;
         while (true) {
+            readWhitespace();
             int r;
             if ((r = read()) == -1) {
                 throw new EOFException("Invalid character: EOF");
@@ -110,210 +148,150 @@ public class UsoParser {
 
             char c = readChar();
 
+            readWhitespace();
             r = read();
 
-            chars = add(chars, c);
+            if (count == chars.length) chars = Arrays.copyOf(chars, count * 2);
+            chars[count++] = c;
 
             if (r == ',') continue;
             if (r == ')') break;
             throw new IOException("Invalid array: expected , or ) but got " + (char) r);
         }
 
-        return new CharArrayType(chars);
+        return new CharArrayType(Arrays.copyOf(chars, count));
     }
 
     private ByteArrayType readByteArray() throws IOException {
-        byte[] bytes = new byte[0];
+        byte[] bytes = new byte[16];
+        int count = 0;
+        StringBuilder builder = new StringBuilder();
         while (true) {
-            StringBuilder builder = new StringBuilder();
-            int r;
-            boolean first = true;
-            while (true) {
-                r = read();
-                if (first && r == '-') {
-                    builder.append((char) r);
-                    first = false;
-                    continue;
-                }
-                if (!Character.isDigit(r)) break;
-                builder.append((char) r);
-                first = false;
-            }
-
+            builder.setLength(0);
+            int r = readArrayNumber(builder, false);
             if (r == -1) {
                 throw new IOException("Invalid number");
             }
 
-
-            byte number = Byte.parseByte(builder.toString());
-            bytes = add(bytes, number);
+            if (count == bytes.length) bytes = Arrays.copyOf(bytes, count * 2);
+            bytes[count++] = Byte.parseByte(builder.toString());
 
             if (r == ',') continue;
             if (r == ')') break;
             throw new IOException("Invalid array: expected ',' or ')' but got " + (char) r);
         }
 
-        return new ByteArrayType(bytes);
+        return new ByteArrayType(Arrays.copyOf(bytes, count));
     }
 
     private ShortArrayType readShortArray() throws IOException {
-        short[] shorts = new short[0];
+        short[] shorts = new short[16];
+        int count = 0;
+        StringBuilder builder = new StringBuilder();
         while (true) {
-            StringBuilder builder = new StringBuilder();
-            int r;
-            boolean first = true;
-            while (true) {
-                r = read();
-                if (first && r == '-') {
-                    builder.append((char) r);
-                    first = false;
-                    continue;
-                }
-                if (!Character.isDigit(r)) break;
-                builder.append((char) r);
-            }
-
+            builder.setLength(0);
+            int r = readArrayNumber(builder, false);
             if (r == -1) {
                 throw new IOException("Invalid number");
             }
 
-            short number = Short.parseShort(builder.toString());
-            shorts = add(shorts, number);
+            if (count == shorts.length) shorts = Arrays.copyOf(shorts, count * 2);
+            shorts[count++] = Short.parseShort(builder.toString());
 
             if (r == ',') continue;
             if (r == ')') break;
             throw new IOException("Invalid array: expected ',' or ')' but got " + (char) r);
         }
 
-        return new ShortArrayType(shorts);
+        return new ShortArrayType(Arrays.copyOf(shorts, count));
     }
 
     private IntArrayType readIntArray() throws IOException {
-        int[] ints = new int[0];
+        int[] ints = new int[16];
+        int count = 0;
+        StringBuilder builder = new StringBuilder();
         while (true) {
-            StringBuilder builder = new StringBuilder();
-            int r;
-            boolean first = true;
-            while (true) {
-                r = read();
-                if (first && r == '-') {
-                    builder.append((char) r);
-                    first = false;
-                    continue;
-                }
-                if (!Character.isDigit(r)) break;
-                builder.append((char) r);
-            }
-
+            builder.setLength(0);
+            int r = readArrayNumber(builder, false);
             if (r == -1) {
                 throw new IOException("Invalid number");
             }
 
-            int number = Integer.parseInt(builder.toString());
-            ints = add(ints, number);
+            if (count == ints.length) ints = Arrays.copyOf(ints, count * 2);
+            ints[count++] = Integer.parseInt(builder.toString());
 
             if (r == ',') continue;
             if (r == ')') break;
             throw new IOException("Invalid array: expected ',' or ')' but got " + (char) r);
         }
 
-        return new IntArrayType(ints);
+        return new IntArrayType(Arrays.copyOf(ints, count));
     }
 
     private LongArrayType readLongArray() throws IOException {
-        long[] longs = new long[0];
+        long[] longs = new long[16];
+        int count = 0;
+        StringBuilder builder = new StringBuilder();
         while (true) {
-            StringBuilder builder = new StringBuilder();
-            int r;
-            boolean first = true;
-            while (true) {
-                r = read();
-                if (first && r == '-') {
-                    builder.append((char) r);
-                    first = false;
-                    continue;
-                }
-                if (!Character.isDigit(r)) break;
-                builder.append((char) r);
-            }
-
+            builder.setLength(0);
+            int r = readArrayNumber(builder, false);
             if (r == -1) {
                 throw new IOException("Invalid number");
             }
 
-            long number = Long.parseLong(builder.toString());
-            longs = add(longs, number);
+            if (count == longs.length) longs = Arrays.copyOf(longs, count * 2);
+            longs[count++] = Long.parseLong(builder.toString());
 
             if (r == ',') continue;
             if (r == ')') break;
             throw new IOException("Invalid array: expected ',' or ')' but got " + (char) r);
         }
 
-        return new LongArrayType(longs);
+        return new LongArrayType(Arrays.copyOf(longs, count));
     }
 
     private FloatArrayType readFloatArray() throws IOException {
-        float[] floats = new float[0];
+        float[] floats = new float[16];
+        int count = 0;
+        StringBuilder builder = new StringBuilder();
         while (true) {
-            StringBuilder builder = new StringBuilder();
-            int r;
-            boolean first = true;
-            while (true) {
-                r = read();
-                if (first && r == '-') {
-                    builder.append((char) r);
-                    first = false;
-                    continue;
-                }
-                if (!Character.isDigit(r) && r != '.') break;
-                builder.append((char) r);
-            }
-
+            builder.setLength(0);
+            int r = readArrayNumber(builder, true);
             if (r == -1) {
                 throw new IOException("Invalid number");
             }
 
-            float number = Float.parseFloat(builder.toString());
-            floats = add(floats, number);
+            if (count == floats.length) floats = Arrays.copyOf(floats, count * 2);
+            floats[count++] = Float.parseFloat(builder.toString());
 
             if (r == ',') continue;
             if (r == ')') break;
             throw new IOException("Invalid array: expected ',' or ')' but got " + (char) r);
         }
 
-        return new FloatArrayType(floats);
+        return new FloatArrayType(Arrays.copyOf(floats, count));
     }
 
     private DoubleArrayType readDoubleArray() throws IOException {
-        double[] doubles = new double[0];
+        double[] doubles = new double[16];
+        int count = 0;
+        StringBuilder builder = new StringBuilder();
         while (true) {
-            StringBuilder builder = new StringBuilder();
-            int r;
-            boolean first = true;
-            while (true) {
-                r = read();
-                if (first && r == '-') {
-                    builder.append((char) r);
-                    first = false;
-                    continue;
-                }
-                if (!Character.isDigit(r) && r != '.') break;
-                builder.append((char) r);
-            }
-
+            builder.setLength(0);
+            int r = readArrayNumber(builder, true);
             if (r == -1) {
                 throw new IOException("Invalid number");
             }
 
-            double number = Double.parseDouble(builder.toString());
-            doubles = add(doubles, number);
+            if (count == doubles.length) doubles = Arrays.copyOf(doubles, count * 2);
+            doubles[count++] = Double.parseDouble(builder.toString());
 
             if (r == ',') continue;
             if (r == ')') break;
             throw new IOException("Invalid array: expected ',' or ')' but got " + (char) r);
         }
 
-        return new DoubleArrayType(doubles);
+        return new DoubleArrayType(Arrays.copyOf(doubles, count));
     }
 
     private char readChar() throws IOException {
@@ -346,53 +324,28 @@ public class UsoParser {
         return (char) read;
     }
 
-    private byte[] add(byte[] bytes, byte number) {
-        byte[] newBytes = new byte[bytes.length + 1];
-        System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-        newBytes[bytes.length] = number;
-        return newBytes;
-    }
-
-    private short[] add(short[] bytes, short number) {
-        short[] newBytes = new short[bytes.length + 1];
-        System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-        newBytes[bytes.length] = number;
-        return newBytes;
-    }
-
-    private int[] add(int[] bytes, int number) {
-        int[] newBytes = new int[bytes.length + 1];
-        System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-        newBytes[bytes.length] = number;
-        return newBytes;
-    }
-
-    private long[] add(long[] bytes, long number) {
-        long[] newBytes = new long[bytes.length + 1];
-        System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-        newBytes[bytes.length] = number;
-        return newBytes;
-    }
-
-    private float[] add(float[] bytes, float number) {
-        float[] newBytes = new float[bytes.length + 1];
-        System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-        newBytes[bytes.length] = number;
-        return newBytes;
-    }
-
-    private double[] add(double[] bytes, double number) {
-        double[] newBytes = new double[bytes.length + 1];
-        System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-        newBytes[bytes.length] = number;
-        return newBytes;
-    }
+    /**
+     * Reads a number of an array into the builder.
+     *
+     * @return the character after the number and the whitespace around it.
+     */
+    private int readArrayNumber(StringBuilder builder, boolean decimal) throws IOException {
+        readWhitespace();
+        int r = read();
+        if (r == '-') {
+            builder.append('-');
+            r = read();
+        }
+        while (Character.isDigit(r) || decimal && r == '.') {
+            builder.append((char) r);
+            r = read();
+        }
 
-    private char[] add(char[] bytes, char number) {
-        char[] newBytes = new char[bytes.length + 1];
-        System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-        newBytes[bytes.length] = number;
-        return newBytes;
+        if (Character.isWhitespace(r)) {
+            readWhitespace();
+            r = read();
+        }
+        return r;
     }
 
     private BitSetType readBitSet() throws IOException {
@@ -464,6 +417,7 @@ public class UsoParser {
         }
 
         int id = dataType.id();
+        readWhitespace();
         int read = read();
         if (read == ']') {
             ListType<DataType<?>> list = new ListType<>(id);
@@ -509,28 +463,25 @@ public class UsoParser {
 
     private DataType<?> readMap() throws IOException {
         MapType map = new MapType();
+        readWhitespace();
         int read = read();
         while (read != '}') {
             if (read != '"') throw new IOException("Invalid map: expected '\"' but got " + (char) read);
-            StringType key = readString();
+            String key = readKey();
 
             readWhitespace();
-            if (read() != ':') throw new IOException("Invalid map: expected ':' but got " + (char) read);
-            read();
-            readWhitespace();
+            read = read();
+            if (read != ':') throw new IOException("Invalid map: expected ':' but got " + (char) read);
             DataType<?> value = readUso();
 
-            map.put(key.getValue(), value);
+            map.put(key, value);
 
             readWhitespace();
             read = read();
             if (read == ',') {
                 readWhitespace();
                 read = read();
-                if (read == '}') {
-                    read();
-                    break;
-                }
+                if (read == '}') break;
             } else if (read == '}') {
                 break;
             } else {
@@ -541,10 +492,22 @@ public class UsoParser {
         return map;
     }
 
-    private StringType readString() {
-        StringBuilder builder = new StringBuilder();
+    private StringType readString() throws IOException {
+        return new StringType(readChars(new StringBuilder()).toString());
+    }
+
+    /**
+     * Reads a map key through the {@link KeyInterner}, reusing the same builder for every key.
+     */
+    private String readKey() throws IOException {
+        keyBuilder.setLength(0);
+        return KeyInterner.intern(readChars(keyBuilder));
+    }
+
+    private StringBuilder readChars(StringBuilder builder) throws IOException {
         int read = read();
         while (read != '"') {
+            if (read == -1) throw new EOFException("Invalid string: EOF");
             builder.append((char) read);
             if (read == '\\') {
                 read = read();
@@ -571,10 +534,10 @@ public class UsoParser {
             }
             read = read();
         }
-        return new StringType(builder.toString());
+        return builder;
     }
 
-    private void readWhitespace() {
+    private void readWhitespace() throws IOException {
         while (true) {
             int read = read();
             if (!Character.isWhitespace(read)) {
@@ -604,25 +567,51 @@ public class UsoParser {
         }
     }
 
-    private int unread() {
-        if (this.pos <= 0) {
-            return -1;
-        }
-
-        return this.c = this.chars[--this.pos];
+    /**
+     * Steps back one character, the next {@link #read()} returns the last character read again.
+     */
+    private void unread() {
+        if (unread) throw new IllegalStateException("Can't unread more than one character");
+        unread = true;
+        pos--;
     }
 
-    private int read() {
-        if (this.pos >= this.chars.length) {
-            return -1;
+    private int read() throws IOException {
+        pos++;
+        if (unread) {
+            unread = false;
+            return last;
         }
 
-        return this.c = this.chars[this.pos++];
+        if (!buffer.hasRemaining() && !fill()) return last = -1;
+        return last = buffer.get();
+    }
+
+    /**
+     * Moves the next window of the reader into the buffer.
+     *
+     * @return whether any characters were read.
+     */
+    private boolean fill() throws IOException {
+        if (reader == null) return false;
+
+        int read;
+        do {
+            read = reader.read(window, 0, window.length);
+        } while (read == 0);
+        if (read < 0) return false;
+
+        ((Buffer) buffer).position(0).limit(read);
+        return true;
     }
 
     public DataType<?> parse() throws IOException {
         try {
-            return readUso();
+            DataType<?> value = readUso();
+            readWhitespace();
+            int read = read();
+            if (read != -1) throw new IOException("Invalid USO: expected end of document but got " + (char) read);
+            return value;
         } catch (Exception e) {
             throw new IOException("Unable to parse USO at pos " + pos + ": " + e.getMessage(), e);
         }
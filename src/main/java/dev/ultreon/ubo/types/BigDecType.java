@@ -1,6 +1,9 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -37,25 +40,36 @@ public class BigDecType implements DataType<BigDecimal> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        byte[] bytes = obj.unscaledValue().toByteArray();
-        output.writeInt(bytes.length);
-        output.writeInt(obj.scale());
-        for (byte aByte : bytes) {
-            output.writeByte(aByte);
-        }
+        write(output, obj);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 8L + obj.unscaledValue().bitLength() / 8 + 1;
+    }
+
+    public static void write(DataOutput output, BigDecimal value) throws IOException {
+        byte[] bytes = value.unscaledValue().toByteArray();
+        UboOutput.writeLength(output, bytes.length);
+        UboOutput.writeInt(output, value.scale());
+        output.write(bytes);
     }
 
     public static BigDecType read(DataInput input) throws IOException {
-        int len = input.readInt();
-        int scale = input.readInt();
+        int len = UboInput.readLength(input);
+        int scale = UboInput.readInt(input);
         byte[] bytes = new byte[len];
-        for (int i = 0; i < len; i++) {
-            bytes[i] = input.readByte();
-        }
+        input.readFully(bytes);
 
         return new BigDecType(new BigDecimal(new BigInteger(bytes), scale));
     }
 
+    public static void skip(DataInput input) throws IOException {
+        int len = UboInput.readLength(input);
+        UboInput.skipValues(input, 1, Integer.BYTES);
+        BulkIo.skipFully(input, len);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -1,6 +1,9 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -36,23 +39,32 @@ public class BigIntType implements DataType<BigInteger> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        byte[] bytes = obj.toByteArray();
-        output.writeInt(bytes.length);
-        for (byte aByte : bytes) {
-            output.writeByte(aByte);
-        }
+        write(output, obj);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L + obj.bitLength() / 8 + 1;
+    }
+
+    public static void write(DataOutput output, BigInteger value) throws IOException {
+        byte[] bytes = value.toByteArray();
+        UboOutput.writeLength(output, bytes.length);
+        output.write(bytes);
     }
 
     public static BigIntType read(DataInput input) throws IOException {
-        int len = input.readInt();
+        int len = UboInput.readLength(input);
         byte[] bytes = new byte[len];
-        for (int i = 0; i < len; i++) {
-            bytes[i] = input.readByte();
-        }
+        input.readFully(bytes);
 
         return new BigIntType(new BigInteger(bytes));
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, UboInput.readLength(input));
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -1,6 +1,7 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -11,6 +12,11 @@ import java.util.Objects;
 public class BitSetType implements DataType<BitSet> {
     private BitSet obj;
 
+    /**
+     * Whether the value is shared with a copy on write, it's copied before it's handed out.
+     */
+    private boolean shared;
+
     public BitSetType(byte[] bits) {
         this.obj = BitSet.valueOf(bits);
     }
@@ -32,6 +38,10 @@ public class BitSetType implements DataType<BitSet> {
 
     @Override
     public BitSet getValue() {
+        if (shared) {
+            obj = (BitSet) obj.clone();
+            shared = false;
+        }
         return obj;
     }
 
@@ -39,6 +49,7 @@ public class BitSetType implements DataType<BitSet> {
     public void setValue(BitSet obj) {
         if (obj == null) throw new IllegalArgumentException("Value can't be set to null");
         this.obj = obj;
+        this.shared = false;
     }
 
     @Override
@@ -48,23 +59,32 @@ public class BitSetType implements DataType<BitSet> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        byte[] arr = this.obj.toByteArray();
+        write(output, obj);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 2L + (obj.length() + 7) / 8;
+    }
+
+    public static void write(DataOutput output, BitSet value) throws IOException {
+        byte[] arr = value.toByteArray();
         if (arr.length >= 32768) throw new IllegalArgumentException("Bitset is too big to be written");
         output.writeShort(arr.length);
-        for (byte b : arr) {
-            output.writeByte(b);
-        }
+        output.write(arr);
     }
 
     public static BitSetType read(DataInput input) throws IOException {
         int len = input.readUnsignedShort();
         byte[] arr = new byte[len];
-        for (int i = 0; i < len; i++) {
-            arr[i] = input.readByte();
-        }
+        input.readFully(arr);
         return new BitSetType(arr);
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, input.readUnsignedShort());
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -83,6 +103,17 @@ public class BitSetType implements DataType<BitSet> {
         return new BitSetType((BitSet) this.obj.clone());
     }
 
+    /**
+     * Shares the value with the copy until either side hands it out.
+     */
+    @Override
+    public BitSetType copyOnWrite() {
+        BitSetType copy = new BitSetType(obj);
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
     @Override
     public String writeUso() {
         StringBuilder builder = new StringBuilder("x");
@@ -94,8 +125,8 @@ public class BitSetType implements DataType<BitSet> {
     }
 
     public void setBit(int index, boolean value) {
-        if (value) obj.set(index);
-        else obj.clear(index);
+        if (value) getValue().set(index);
+        else getValue().clear(index);
     }
 
     public boolean getBit(int index) {
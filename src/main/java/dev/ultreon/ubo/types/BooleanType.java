@@ -1,6 +1,7 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -34,10 +35,19 @@ public class BooleanType implements DataType<Boolean> {
         output.writeBoolean(obj);
     }
 
+    @Override
+    public long sizeInBytes() {
+        return 1;
+    }
+
     public static BooleanType read(DataInput input) throws IOException {
         return new BooleanType(input.readBoolean());
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, 1);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -1,6 +1,9 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -13,6 +16,11 @@ import java.util.Arrays;
 public class ByteArrayType implements DataType<byte[]> {
     private byte[] obj;
 
+    /**
+     * Whether the value is shared with a copy on write, it's copied before it's handed out.
+     */
+    private boolean shared;
+
     public ByteArrayType(byte[] obj) {
         this.obj = obj;
     }
@@ -47,6 +55,10 @@ public class ByteArrayType implements DataType<byte[]> {
 
     @Override
     public byte[] getValue() {
+        if (shared) {
+            obj = obj.clone();
+            shared = false;
+        }
         return obj;
     }
 
@@ -54,6 +66,7 @@ public class ByteArrayType implements DataType<byte[]> {
     public void setValue(byte[] obj) {
         if (obj == null) throw new IllegalArgumentException("Value can't be set to null");
         this.obj = obj;
+        this.shared = false;
     }
 
     @Override
@@ -63,21 +76,26 @@ public class ByteArrayType implements DataType<byte[]> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeInt(obj.length);
-        for (byte b : obj) {
-            output.writeByte(b);
-        }
+        UboOutput.writeLength(output, obj.length);
+        BulkIo.writeBytes(output, obj, 0, obj.length);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L + obj.length;
     }
 
     public static ByteArrayType read(DataInput input) throws IOException {
-        int len = input.readInt();
+        int len = UboInput.readLength(input);
         byte[] arr = new byte[len];
-        for (int i = 0; i < len; i++) {
-            arr[i] = input.readByte();
-        }
+        BulkIo.readBytes(input, arr, 0, len);
         return new ByteArrayType(arr);
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, UboInput.readLength(input));
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -96,6 +114,17 @@ public class ByteArrayType implements DataType<byte[]> {
         return new ByteArrayType(obj.clone());
     }
 
+    /**
+     * Shares the value with the copy until either side hands it out.
+     */
+    @Override
+    public ByteArrayType copyOnWrite() {
+        ByteArrayType copy = new ByteArrayType(obj);
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
     @Override
     public String writeUso() {
         StringBuilder builder = new StringBuilder("(b;");
@@ -1,6 +1,7 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -38,10 +39,19 @@ public class ByteType implements DataType<Byte> {
         output.writeByte(obj);
     }
 
+    @Override
+    public long sizeInBytes() {
+        return 1;
+    }
+
     public static ByteType read(DataInput input) throws IOException {
         return new ByteType(input.readByte());
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, 1);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -2,6 +2,9 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -11,12 +14,21 @@ import java.util.Arrays;
 public class CharArrayType implements DataType<char[]> {
     private char[] obj;
 
+    /**
+     * Whether the value is shared with a copy on write, it's copied before it's handed out.
+     */
+    private boolean shared;
+
     public CharArrayType(char[] obj) {
         this.obj = obj;
     }
 
     @Override
     public char[] getValue() {
+        if (shared) {
+            obj = obj.clone();
+            shared = false;
+        }
         return obj;
     }
 
@@ -24,6 +36,7 @@ public class CharArrayType implements DataType<char[]> {
     public void setValue(char[] obj) {
         if (obj == null) throw new IllegalArgumentException("Value can't be set to null");
         this.obj = obj;
+        this.shared = false;
     }
 
     @Override
@@ -33,21 +46,26 @@ public class CharArrayType implements DataType<char[]> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeInt(obj.length);
-        for (char i : obj) {
-            output.writeChar(i);
-        }
+        UboOutput.writeLength(output, obj.length);
+        BulkIo.writeChars(output, obj, 0, obj.length);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L + obj.length * 2L;
     }
 
     public static CharArrayType read(DataInput input) throws IOException {
-        int len = input.readInt();
+        int len = UboInput.readLength(input);
         char[] arr = new char[len];
-        for (int i = 0; i < len; i++) {
-            arr[i] = input.readChar();
-        }
+        BulkIo.readChars(input, arr, 0, len);
         return new CharArrayType(arr);
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, UboInput.readLength(input) * 2L);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -66,6 +84,17 @@ public class CharArrayType implements DataType<char[]> {
         return new CharArrayType(obj.clone());
     }
 
+    /**
+     * Shares the value with the copy until either side hands it out.
+     */
+    @Override
+    public CharArrayType copyOnWrite() {
+        CharArrayType copy = new CharArrayType(obj);
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
     @Override
     public String writeUso() {
         StringBuilder builder = new StringBuilder("(c;");
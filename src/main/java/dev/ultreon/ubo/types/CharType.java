@@ -1,6 +1,7 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -34,10 +35,19 @@ public class CharType implements DataType<Character> {
         output.writeChar(obj);
     }
 
+    @Override
+    public long sizeInBytes() {
+        return 2;
+    }
+
     public static CharType read(DataInput input) throws IOException {
         return new CharType(input.readChar());
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, 2);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -0,0 +1,74 @@
+package dev.ultreon.ubo.types;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link ListType} that can be read and changed from multiple threads, backed by a {@link CopyOnWriteArrayList}.
+ * <p>
+ * Reading never locks, every change copies the backing array, so it suits lists that are read far more often than
+ * changed. Iterating, writing, {@link #copy()} and {@link #snapshot()} see the elements at one moment and never throw
+ * a {@link java.util.ConcurrentModificationException}. Elements themselves aren't synchronized, replace them with
+ * {@link #set(int, DataType)} instead of changing them.
+ */
+public class ConcurrentListType<T extends DataType<?>> extends ListType<T> {
+    @SafeVarargs
+    public ConcurrentListType(T... type) {
+        super(new CopyOnWriteArrayList<>(), type);
+    }
+
+    private ConcurrentListType(List<T> list, int id) {
+        super(list, id);
+    }
+
+    @Override
+    List<T> store(List<T> list) {
+        return new CopyOnWriteArrayList<>(list);
+    }
+
+    /**
+     * @return a regular list holding the elements at this moment, the elements are not copied.
+     */
+    public ListType<T> snapshot() {
+        return new ListType<>(new ArrayList<>(getValue()), type());
+    }
+
+    /**
+     * Writes a snapshot, so the count always matches the elements written.
+     */
+    @Override
+    public void write(DataOutput output) throws IOException {
+        snapshot().write(output);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return snapshot().sizeInBytes();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ConcurrentListType<T> copy() {
+        List<T> copy = new ArrayList<>();
+        for (T t : getValue()) {
+            copy.add((T) t.copy());
+        }
+        return new ConcurrentListType<>(new CopyOnWriteArrayList<>(copy), type());
+    }
+
+    /**
+     * Copies the elements like {@link #copy()}, the list is changed in place from other threads so it can't be shared.
+     */
+    @Override
+    public ConcurrentListType<T> copyOnWrite() {
+        return copy();
+    }
+
+    @Override
+    public String writeUso() {
+        return snapshot().writeUso();
+    }
+}
@@ -0,0 +1,157 @@
+package dev.ultreon.ubo.types;
+
+import dev.ultreon.ubo.DataTypeRegistry;
+import dev.ultreon.ubo.util.CompactMap;
+import dev.ultreon.ubo.util.UboInput;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link MapType} that can be read and changed from multiple threads, backed by a {@link ConcurrentHashMap}.
+ * <p>
+ * Single operations are atomic, {@link #putIfAbsent(String, DataType)}, {@link #compute(String, BiFunction)} and the
+ * other helpers change a value atomically based on its current value. Values themselves aren't synchronized, replace
+ * them instead of changing them. Writing, {@link #copy()} and {@link #snapshot()} are weakly consistent: they see
+ * every entry that isn't changed meanwhile, and never throw a {@link java.util.ConcurrentModificationException}.
+ * Null values aren't permitted.
+ */
+public class ConcurrentMapType extends MapType {
+    public ConcurrentMapType() {
+        super(new ConcurrentHashMap<>());
+    }
+
+    public ConcurrentMapType(Map<String, DataType<?>> map) {
+        super(map);
+    }
+
+    private ConcurrentMap<String, DataType<?>> map() {
+        return (ConcurrentMap<String, DataType<?>>) getValue();
+    }
+
+    /**
+     * Copies the map into a concurrent map, unless it already is one.
+     */
+    @Override
+    public void setValue(Map<String, DataType<?>> obj) {
+        super.setValue(obj instanceof ConcurrentHashMap ? obj : new ConcurrentHashMap<>(obj));
+    }
+
+    /**
+     * @return the current value, or {@code null} if the value was put.
+     */
+    public DataType<?> putIfAbsent(String key, DataType<?> value) {
+        return map().putIfAbsent(key, value);
+    }
+
+    /**
+     * @return whether the key had the expected value, and was set to the new value.
+     */
+    public boolean replace(String key, DataType<?> expected, DataType<?> value) {
+        return map().replace(key, expected, value);
+    }
+
+    /**
+     * Atomically sets the key to the result of the function, or removes it if the result is {@code null}.
+     *
+     * @return the new value.
+     */
+    public DataType<?> compute(String key, BiFunction<String, ? super DataType<?>, ? extends DataType<?>> function) {
+        return map().compute(key, function);
+    }
+
+    /**
+     * @return the current value, or the one the function created if the key had none.
+     */
+    public DataType<?> computeIfAbsent(String key, Function<String, ? extends DataType<?>> function) {
+        return map().computeIfAbsent(key, function);
+    }
+
+    /**
+     * Atomically adds to an int value, a missing or non-int value counts as zero.
+     *
+     * @return the new value.
+     */
+    public int addInt(String key, int delta) {
+        DataType<?> value = compute(key, (k, old) -> new IntType((old instanceof IntType ? ((IntType) old).getValue() : 0) + delta));
+        return ((IntType) value).getValue();
+    }
+
+    /**
+     * Atomically adds to a long value, a missing or non-long value counts as zero.
+     *
+     * @return the new value.
+     */
+    public long addLong(String key, long delta) {
+        DataType<?> value = compute(key, (k, old) -> new LongType((old instanceof LongType ? ((LongType) old).getValue() : 0) + delta));
+        return ((LongType) value).getValue();
+    }
+
+    /**
+     * @return the concurrent map under the key, created if the key had no map.
+     */
+    public ConcurrentMapType computeMapIfAbsent(String key) {
+        DataType<?> value = compute(key, (k, old) -> old instanceof ConcurrentMapType ? old : new ConcurrentMapType());
+        return (ConcurrentMapType) value;
+    }
+
+    /**
+     * @return a regular map holding the entries at the moment they're iterated, the values are not copied.
+     */
+    public MapType snapshot() {
+        return MapType.owning(new CompactMap<>(map()));
+    }
+
+    public static ConcurrentMapType read(DataInput input) throws IOException {
+        int len = UboInput.readLength(input);
+        Map<String, DataType<?>> map = new ConcurrentHashMap<>(len);
+        for (int i = 0; i < len; i++) {
+            String key = UboInput.readKey(input);
+            int id = input.readUnsignedByte();
+            map.put(key, DataTypeRegistry.read(id, input));
+        }
+
+        return new ConcurrentMapType(map);
+    }
+
+    /**
+     * Writes a snapshot, so the count always matches the entries written.
+     */
+    @Override
+    public void write(DataOutput output) throws IOException {
+        snapshot().write(output);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return snapshot().sizeInBytes();
+    }
+
+    @Override
+    public ConcurrentMapType copy() {
+        ConcurrentHashMap<String, DataType<?>> copy = new ConcurrentHashMap<>(size());
+        for (Map.Entry<String, DataType<?>> entry : map().entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return new ConcurrentMapType(copy);
+    }
+
+    /**
+     * Copies the entries like {@link #copy()}, the map is changed in place from other threads so it can't be shared.
+     */
+    @Override
+    public ConcurrentMapType copyOnWrite() {
+        return copy();
+    }
+
+    @Override
+    public String writeUso() {
+        return snapshot().writeUso();
+    }
+}
@@ -3,7 +3,10 @@ package dev.ultreon.ubo.types;
 import dev.ultreon.ubo.util.DataTypeVisitor;
 
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 
 public interface DataType<T> {
     T getValue();
@@ -14,12 +17,55 @@ public interface DataType<T> {
 
     void write(DataOutput output) throws IOException;
 
+    /**
+     * Computes the exact amount of bytes {@link #write(DataOutput)} writes, without the type id and without
+     * {@link dev.ultreon.ubo.DataFlags}.
+     * <p>
+     * Built-in types compute this without encoding anything, the default implementation writes the value to a
+     * counting sink.
+     *
+     * @return the serialized size in bytes.
+     */
+    default long sizeInBytes() {
+        long[] count = new long[1];
+        try {
+            write(new DataOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    count[0]++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    count[0] += len;
+                }
+            }));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count[0];
+    }
+
     boolean equals(Object other);
 
     int hashCode();
 
     DataType<T> copy();
 
+    /**
+     * Copies the value for reading or changing it separately, maps, lists and arrays in constant time by sharing their
+     * contents until either side changes them. Changes made through either side afterwards never show in the other.
+     * <p>
+     * Values that were taken out before copying, such as a nested map or an int, are still shared: changing them
+     * changes the copy as well. Use {@link #copy()} to isolate them too. Two values sharing contents must not be
+     * changed concurrently.
+     *
+     * @return a copy of this value, by default {@link #copy()}.
+     */
+    default DataType<T> copyOnWrite() {
+        return copy();
+    }
+
     String writeUso();
 
     default <R> R accept(DataTypeVisitor<R> visitor) {
@@ -1,6 +1,9 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -10,12 +13,21 @@ import java.util.Arrays;
 public class DoubleArrayType implements DataType<double[]> {
     private double[] obj;
 
+    /**
+     * Whether the value is shared with a copy on write, it's copied before it's handed out.
+     */
+    private boolean shared;
+
     public DoubleArrayType(double[] obj) {
         this.obj = obj;
     }
 
     @Override
     public double[] getValue() {
+        if (shared) {
+            obj = obj.clone();
+            shared = false;
+        }
         return obj;
     }
 
@@ -23,6 +35,7 @@ public class DoubleArrayType implements DataType<double[]> {
     public void setValue(double[] obj) {
         if (obj == null) throw new IllegalArgumentException("Value can't be set to null");
         this.obj = obj;
+        this.shared = false;
     }
 
     @Override
@@ -32,21 +45,26 @@ public class DoubleArrayType implements DataType<double[]> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeInt(obj.length);
-        for (double i : obj) {
-            output.writeDouble(i);
-        }
+        UboOutput.writeLength(output, obj.length);
+        BulkIo.writeDoubles(output, obj, 0, obj.length);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L + obj.length * 8L;
     }
 
     public static DoubleArrayType read(DataInput input) throws IOException {
-        int len = input.readInt();
+        int len = UboInput.readLength(input);
         double[] arr = new double[len];
-        for (int i = 0; i < len; i++) {
-            arr[i] = input.readDouble();
-        }
+        BulkIo.readDoubles(input, arr, 0, len);
         return new DoubleArrayType(arr);
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, UboInput.readLength(input) * 8L);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -65,6 +83,17 @@ public class DoubleArrayType implements DataType<double[]> {
         return new DoubleArrayType(obj.clone());
     }
 
+    /**
+     * Shares the value with the copy until either side hands it out.
+     */
+    @Override
+    public DoubleArrayType copyOnWrite() {
+        DoubleArrayType copy = new DoubleArrayType(obj);
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
     public int size() {
         return obj.length;
     }
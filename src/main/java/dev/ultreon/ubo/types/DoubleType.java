@@ -1,6 +1,7 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -34,10 +35,19 @@ public class DoubleType implements DataType<Double> {
         output.writeDouble(obj);
     }
 
+    @Override
+    public long sizeInBytes() {
+        return 8;
+    }
+
     public static DoubleType read(DataInput input) throws IOException {
         return new DoubleType(input.readDouble());
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, 8);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
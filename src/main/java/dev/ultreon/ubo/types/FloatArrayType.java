@@ -1,6 +1,9 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -10,12 +13,21 @@ import java.util.Arrays;
 public class FloatArrayType implements DataType<float[]> {
     private float[] obj;
 
+    /**
+     * Whether the value is shared with a copy on write, it's copied before it's handed out.
+     */
+    private boolean shared;
+
     public FloatArrayType(float[] obj) {
         this.obj = obj;
     }
 
     @Override
     public float[] getValue() {
+        if (shared) {
+            obj = obj.clone();
+            shared = false;
+        }
         return obj;
     }
 
@@ -23,6 +35,7 @@ public class FloatArrayType implements DataType<float[]> {
     public void setValue(float[] obj) {
         if (obj == null) throw new IllegalArgumentException("Value can't be set to null");
         this.obj = obj;
+        this.shared = false;
     }
 
     @Override
@@ -32,21 +45,26 @@ public class FloatArrayType implements DataType<float[]> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeInt(obj.length);
-        for (float i : obj) {
-            output.writeFloat(i);
-        }
+        UboOutput.writeLength(output, obj.length);
+        BulkIo.writeFloats(output, obj, 0, obj.length);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L + obj.length * 4L;
     }
 
     public static FloatArrayType read(DataInput input) throws IOException {
-        int len = input.readInt();
+        int len = UboInput.readLength(input);
         float[] arr = new float[len];
-        for (int i = 0; i < len; i++) {
-            arr[i] = input.readFloat();
-        }
+        BulkIo.readFloats(input, arr, 0, len);
         return new FloatArrayType(arr);
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, UboInput.readLength(input) * 4L);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -65,6 +83,17 @@ public class FloatArrayType implements DataType<float[]> {
         return new FloatArrayType(obj.clone());
     }
 
+    /**
+     * Shares the value with the copy until either side hands it out.
+     */
+    @Override
+    public FloatArrayType copyOnWrite() {
+        FloatArrayType copy = new FloatArrayType(obj);
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
     public int size() {
         return obj.length;
     }
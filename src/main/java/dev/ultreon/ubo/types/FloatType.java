@@ -1,6 +1,7 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -34,10 +35,19 @@ public class FloatType implements DataType<Float> {
         output.writeFloat(obj);
     }
 
+    @Override
+    public long sizeInBytes() {
+        return 4;
+    }
+
     public static FloatType read(DataInput input) throws IOException {
         return new FloatType(input.readFloat());
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, 4);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -1,6 +1,8 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -10,12 +12,21 @@ import java.util.Arrays;
 public class IntArrayType implements DataType<int[]> {
     private int[] obj;
 
+    /**
+     * Whether the value is shared with a copy on write, it's copied before it's handed out.
+     */
+    private boolean shared;
+
     public IntArrayType(int[] obj) {
         this.obj = obj;
     }
 
     @Override
     public int[] getValue() {
+        if (shared) {
+            obj = obj.clone();
+            shared = false;
+        }
         return obj;
     }
 
@@ -23,6 +34,7 @@ public class IntArrayType implements DataType<int[]> {
     public void setValue(int[] obj) {
         if (obj == null) throw new IllegalArgumentException("Value can't be set to null");
         this.obj = obj;
+        this.shared = false;
     }
 
     @Override
@@ -32,21 +44,26 @@ public class IntArrayType implements DataType<int[]> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeInt(obj.length);
-        for (int i : obj) {
-            output.writeInt(i);
-        }
+        UboOutput.writeLength(output, obj.length);
+        UboOutput.writeInts(output, obj, 0, obj.length);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L + obj.length * 4L;
     }
 
     public static IntArrayType read(DataInput input) throws IOException {
-        int len = input.readInt();
+        int len = UboInput.readLength(input);
         int[] arr = new int[len];
-        for (int i = 0; i < len; i++) {
-            arr[i] = input.readInt();
-        }
+        UboInput.readInts(input, arr, 0, len);
         return new IntArrayType(arr);
     }
 
+    public static void skip(DataInput input) throws IOException {
+        UboInput.skipValues(input, UboInput.readLength(input), Integer.BYTES);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -65,6 +82,17 @@ public class IntArrayType implements DataType<int[]> {
         return new IntArrayType(obj.clone());
     }
 
+    /**
+     * Shares the value with the copy until either side hands it out.
+     */
+    @Override
+    public IntArrayType copyOnWrite() {
+        IntArrayType copy = new IntArrayType(obj);
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
     public int size() {
         return obj.length;
     }
@@ -1,6 +1,8 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -31,11 +33,20 @@ public class IntType implements DataType<Integer> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeInt(obj);
+        UboOutput.writeInt(output, obj);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4;
     }
 
     public static IntType read(DataInput input) throws IOException {
-        return new IntType(input.readInt());
+        return new IntType(UboInput.readInt(input));
+    }
+
+    public static void skip(DataInput input) throws IOException {
+        UboInput.skipValues(input, 1, Integer.BYTES);
     }
 
     @Override
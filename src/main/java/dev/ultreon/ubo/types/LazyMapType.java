@@ -0,0 +1,267 @@
+package dev.ultreon.ubo.types;
+
+import dev.ultreon.ubo.DataTypeException;
+import dev.ultreon.ubo.DataTypeRegistry;
+import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.ByteBufferInput;
+import dev.ultreon.ubo.util.CompactMap;
+import dev.ultreon.ubo.util.UboOutput;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A {@link MapType} that keeps its values as undecoded bytes until they are accessed.
+ * <p>
+ * Reading only indexes the keys, every value other than a fixed-size primitive stays a slice of the source buffer.
+ * {@link #get(String)} and the typed getters decode a value on first access, nested maps are lazy again.
+ * Values that are never accessed are written back by copying their bytes verbatim. Calling {@link #getValue()}
+ * decodes everything, as does anything built on it ({@link #entries()}, {@link #values()}, {@link #equals(Object)}).
+ * <p>
+ * The source buffer must not be modified while the map still holds undecoded values.
+ *
+ * @see dev.ultreon.ubo.DataIo#readLazy(ByteBuffer)
+ */
+public class LazyMapType extends MapType {
+    private int undecoded;
+
+    private LazyMapType(Map<String, DataType<?>> map, int undecoded) {
+        super(map);
+        this.undecoded = undecoded;
+    }
+
+    /**
+     * Reads a map from the input, keeping its values undecoded.
+     *
+     * @param input the input positioned at the start of the map.
+     * @return the lazy map.
+     * @throws IOException when an I/O error occurs.
+     */
+    public static LazyMapType read(ByteBufferInput input) throws IOException {
+        int len = input.readInt();
+        if (len < 0) throw new DataTypeException("Invalid map size: " + len);
+
+        Map<String, DataType<?>> map = new CompactMap<>(Math.min(len, input.remaining() / 3));
+        int undecoded = 0;
+        for (int i = 0; i < len; i++) {
+            String key = input.readKey();
+            int id = input.readUnsignedByte();
+            if (DataTypeRegistry.fixedWidth(id) > 0) {
+                map.put(key, DataTypeRegistry.read(id, input));
+                continue;
+            }
+
+            int start = input.position();
+            DataTypeRegistry.skip(id, input);
+            map.put(key, new Raw(id, input.buffer(), start, input.position()));
+            undecoded++;
+        }
+
+        return new LazyMapType(map, undecoded);
+    }
+
+    /**
+     * @return the amount of values that weren't decoded yet.
+     */
+    public int undecoded() {
+        return undecoded;
+    }
+
+    @Override
+    public DataType<?> get(String key) {
+        DataType<?> value = super.get(key);
+        if (!(value instanceof Raw)) return value;
+
+        DataType<?> decoded = ((Raw) value).decode();
+        super.put(key, decoded);
+        undecoded--;
+        return decoded;
+    }
+
+    @Override
+    DataType<?> peek(String key) {
+        return get(key);
+    }
+
+    @Override
+    public DataType<?> pop(String key) {
+        DataType<?> value = super.pop(key);
+        if (!(value instanceof Raw)) return value;
+
+        undecoded--;
+        return ((Raw) value).decode();
+    }
+
+    @Override
+    public void put(String key, DataType<?> dataType) {
+        if (super.get(key) instanceof Raw) undecoded--;
+        super.put(key, dataType);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        undecoded = 0;
+    }
+
+    /**
+     * Decodes all remaining values first.
+     */
+    @Override
+    public Map<String, DataType<?>> getValue() {
+        Map<String, DataType<?>> map = super.getValue();
+        if (undecoded > 0) {
+            for (Map.Entry<String, DataType<?>> entry : map.entrySet()) {
+                if (entry.getValue() instanceof Raw) {
+                    entry.setValue(((Raw) entry.getValue()).decode());
+                }
+            }
+            undecoded = 0;
+        }
+        return map;
+    }
+
+    @Override
+    Map<String, DataType<?>> view() {
+        return getValue();
+    }
+
+    @Override
+    public void setValue(Map<String, DataType<?>> obj) {
+        super.setValue(obj);
+        undecoded = 0;
+    }
+
+    /**
+     * Copies the map, undecoded values are shared as they can't be modified.
+     */
+    @Override
+    public LazyMapType copy() {
+        return copy(DataType::copy);
+    }
+
+    /**
+     * Copies the map in time linear in the amount of entries, decoded values are copied on write.
+     */
+    @Override
+    public LazyMapType copyOnWrite() {
+        return copy(DataType::copyOnWrite);
+    }
+
+    private LazyMapType copy(Function<DataType<?>, DataType<?>> copier) {
+        Map<String, DataType<?>> map = super.getValue();
+        Map<String, DataType<?>> copy = new CompactMap<>(map.size());
+        for (Map.Entry<String, DataType<?>> entry : map.entrySet()) {
+            DataType<?> value = entry.getValue();
+            copy.put(entry.getKey(), value instanceof Raw ? value : copier.apply(value));
+        }
+        return new LazyMapType(copy, undecoded);
+    }
+
+    /**
+     * An undecoded value, never handed out of the map.
+     */
+    private static final class Raw implements DataType<ByteBuffer> {
+        private final int id;
+        private final ByteBuffer source;
+        private final int start;
+        private final int end;
+
+        Raw(int id, ByteBuffer source, int start, int end) {
+            this.id = id;
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        private ByteBuffer bytes() {
+            ByteBuffer bytes = source.duplicate();
+            ((Buffer) bytes).limit(end);
+            ((Buffer) bytes).position(start);
+            return bytes;
+        }
+
+        DataType<?> decode() {
+            ByteBufferInput input = new ByteBufferInput(source, start, end);
+            try {
+                if (id == DataTypes.MAP) return LazyMapType.read(input);
+                return DataTypeRegistry.read(id, input);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to decode lazy value of type " + id, e);
+            }
+        }
+
+        @Override
+        public ByteBuffer getValue() {
+            return bytes().slice().asReadOnlyBuffer();
+        }
+
+        @Override
+        public void setValue(ByteBuffer obj) {
+            throw new UnsupportedOperationException("Raw values can't be modified");
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+
+        /**
+         * Copies the plain bytes, unless the output writes with {@link dev.ultreon.ubo.DataFlags}: the value is then
+         * decoded and written in the output's encoding.
+         */
+        @Override
+        public void write(DataOutput output) throws IOException {
+            if (output instanceof UboOutput && ((UboOutput) output).flags() != 0) {
+                decode().write(output);
+                return;
+            }
+
+            if (source.hasArray()) {
+                output.write(source.array(), source.arrayOffset() + start, end - start);
+                return;
+            }
+
+            ByteBuffer bytes = bytes();
+            byte[] chunk = new byte[Math.min(bytes.remaining(), 8192)];
+            while (bytes.hasRemaining()) {
+                int count = Math.min(chunk.length, bytes.remaining());
+                bytes.get(chunk, 0, count);
+                output.write(chunk, 0, count);
+            }
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return end - start;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Raw)) return false;
+            Raw raw = (Raw) other;
+            return id == raw.id && bytes().equals(raw.bytes());
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id + bytes().hashCode();
+        }
+
+        @Override
+        public Raw copy() {
+            return this;
+        }
+
+        @Override
+        public String writeUso() {
+            return decode().writeUso();
+        }
+    }
+}
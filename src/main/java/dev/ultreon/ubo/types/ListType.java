@@ -2,20 +2,27 @@ package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypeRegistry;
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ListType<T extends DataType<?>> implements DataType<List<T>>, Iterable<T> {
     private final int id;
     Class<?> componentType;
     private List<T> obj;
+    /**
+     * Whether the backing list is shared with a copy on write, it's copied before anything can change it.
+     */
+    private boolean shared;
 
     public ListType(int id) {
-        this(new ArrayList<>(), id);
+        this(storage(id, 0), id);
     }
 
     @SafeVarargs
@@ -31,7 +38,7 @@ public class ListType<T extends DataType<?>> implements DataType<List<T>>, Itera
     }
 
     private ListType(Class<?> type) {
-        this(new ArrayList<>(), DataTypeRegistry.getIdOrThrow(type));
+        this(DataTypeRegistry.getIdOrThrow(type));
     }
 
     private ListType(List<T> obj, Class<?> type) {
@@ -40,21 +47,55 @@ public class ListType<T extends DataType<?>> implements DataType<List<T>>, Itera
         this.componentType = type;
     }
 
-    private ListType(List<T> list, int id) {
-        setValue(list);
+    /**
+     * Uses the list as it is, it must only hold elements of the given type.
+     */
+    ListType(List<T> list, int id) {
+        this.obj = list;
         this.id = id;
         this.componentType = DataTypeRegistry.getType(id);
     }
 
+    /**
+     * @return a packed list for primitive elements, otherwise a regular list.
+     */
+    private static <T extends DataType<?>> List<T> storage(int id, int capacity) {
+        PackedList<T> packed = PackedList.create(id, capacity);
+        return packed != null ? packed : new ArrayList<>(capacity);
+    }
+
     @Override
     public List<T> getValue() {
+        return own();
+    }
+
+    /**
+     * Stops sharing the backing list with copies, the elements are copied on write which is cheap for maps, lists
+     * and arrays as they're shared again.
+     *
+     * @return the backing list, owned by this list.
+     */
+    @SuppressWarnings("unchecked")
+    private List<T> own() {
+        if (shared) {
+            if (obj instanceof PackedList) {
+                obj = ((PackedList<T>) obj).copy();
+            } else {
+                List<T> copy = new ArrayList<>(obj.size());
+                for (T t : obj) {
+                    copy.add((T) t.copyOnWrite());
+                }
+                obj = copy;
+            }
+            shared = false;
+        }
         return obj;
     }
 
     @Override
     public void setValue(List<T> obj) {
         int id = -1;
-        List<T> list = new ArrayList<>();
+        List<T> list = storage(obj.isEmpty() || obj.get(0).id() == this.id ? this.id : -1, obj.size());
         for (int i = 0, objSize = obj.size(); i < objSize; i++) {
             T iType = obj.get(i);
             if (id == -1) {
@@ -67,7 +108,15 @@ public class ListType<T extends DataType<?>> implements DataType<List<T>>, Itera
             list.add(iType);
         }
 
-        this.obj = list;
+        this.obj = store(list);
+        this.shared = false;
+    }
+
+    /**
+     * @return the list to keep as the value, after {@link #setValue(List)} filled it with the elements.
+     */
+    List<T> store(List<T> list) {
+        return list;
     }
 
     @Override
@@ -78,16 +127,45 @@ public class ListType<T extends DataType<?>> implements DataType<List<T>>, Itera
     @Override
     public void write(DataOutput output) throws IOException {
         output.writeByte(id);
-        output.writeInt(obj.size());
+        UboOutput.writeLength(output, obj.size());
+        if (obj instanceof PackedList) {
+            ((PackedList<?>) obj).write(output);
+            return;
+        }
+        if (id == DataTypes.MAP && UboOutput.isColumnar(output)) {
+            MapColumns.write(obj, output);
+            return;
+        }
         for (DataType<?> l : obj) {
             l.write(output);
         }
     }
 
+    @Override
+    public long sizeInBytes() {
+        if (obj instanceof PackedList) return 5 + (long) obj.size() * DataTypeRegistry.fixedWidth(id);
+
+        long size = 5;
+        for (DataType<?> l : obj) {
+            size += l.sizeInBytes();
+        }
+        return size;
+    }
+
     public static ListType<?> read(DataInput input) throws IOException {
         int id = input.readUnsignedByte();
-        int len = input.readInt();
+        int len = UboInput.readLength(input);
+        PackedList<DataType<?>> packed = PackedList.create(id, 0);
+        if (packed != null) {
+            packed.read(input, len);
+            return new ListType<>(packed, id);
+        }
+
         List<DataType<?>> list = new ArrayList<>(len);
+        if (id == DataTypes.MAP && UboInput.isColumnar(input)) {
+            MapColumns.read(list, len, input);
+            return new ListType<>(list, id);
+        }
         for (int i = 0; i < len; i++) {
             list.add(DataTypeRegistry.read(id, input));
         }
@@ -95,32 +173,141 @@ public class ListType<T extends DataType<?>> implements DataType<List<T>>, Itera
         return new ListType<>(list, id);
     }
 
+    public static void skip(DataInput input) throws IOException {
+        int id = input.readUnsignedByte();
+        int len = UboInput.readLength(input);
+        if (id == DataTypes.MAP && UboInput.isColumnar(input)) MapColumns.skip(len, input);
+        else DataTypeRegistry.skip(id, len, input);
+    }
+
     public void add(T type) {
         if (type.id() != id)
             throw new IllegalArgumentException("Type has invalid id: " + type.id() + " (expected " + id + ")");
-        obj.add(type);
+        own().add(type);
+    }
+
+    public byte getByte(int index) {
+        if (obj instanceof PackedList.Bytes) return ((PackedList.Bytes) obj).getByte(index);
+        return ((ByteType) obj.get(index)).getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void addByte(byte value) {
+        if (obj instanceof PackedList.Bytes) ((PackedList.Bytes) own()).addByte(value);
+        else add((T) new ByteType(value));
+    }
+
+    public short getShort(int index) {
+        if (obj instanceof PackedList.Shorts) return ((PackedList.Shorts) obj).getShort(index);
+        return ((ShortType) obj.get(index)).getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void addShort(short value) {
+        if (obj instanceof PackedList.Shorts) ((PackedList.Shorts) own()).addShort(value);
+        else add((T) new ShortType(value));
+    }
+
+    public int getInt(int index) {
+        if (obj instanceof PackedList.Ints) return ((PackedList.Ints) obj).getInt(index);
+        return ((IntType) obj.get(index)).getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void addInt(int value) {
+        if (obj instanceof PackedList.Ints) ((PackedList.Ints) own()).addInt(value);
+        else add((T) new IntType(value));
     }
 
+    public long getLong(int index) {
+        if (obj instanceof PackedList.Longs) return ((PackedList.Longs) obj).getLong(index);
+        return ((LongType) obj.get(index)).getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void addLong(long value) {
+        if (obj instanceof PackedList.Longs) ((PackedList.Longs) own()).addLong(value);
+        else add((T) new LongType(value));
+    }
+
+    public float getFloat(int index) {
+        if (obj instanceof PackedList.Floats) return ((PackedList.Floats) obj).getFloat(index);
+        return ((FloatType) obj.get(index)).getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void addFloat(float value) {
+        if (obj instanceof PackedList.Floats) ((PackedList.Floats) own()).addFloat(value);
+        else add((T) new FloatType(value));
+    }
+
+    public double getDouble(int index) {
+        if (obj instanceof PackedList.Doubles) return ((PackedList.Doubles) obj).getDouble(index);
+        return ((DoubleType) obj.get(index)).getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void addDouble(double value) {
+        if (obj instanceof PackedList.Doubles) ((PackedList.Doubles) own()).addDouble(value);
+        else add((T) new DoubleType(value));
+    }
+
+    public boolean getBoolean(int index) {
+        if (obj instanceof PackedList.Booleans) return ((PackedList.Booleans) obj).getBoolean(index);
+        return ((BooleanType) obj.get(index)).getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void addBoolean(boolean value) {
+        if (obj instanceof PackedList.Booleans) ((PackedList.Booleans) own()).addBoolean(value);
+        else add((T) new BooleanType(value));
+    }
+
+    public char getChar(int index) {
+        if (obj instanceof PackedList.Chars) return ((PackedList.Chars) obj).getChar(index);
+        return ((CharType) obj.get(index)).getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void addChar(char value) {
+        if (obj instanceof PackedList.Chars) ((PackedList.Chars) own()).addChar(value);
+        else add((T) new CharType(value));
+    }
+
+    /**
+     * @return the backing list for handing out elements, packed lists wrap them so they're never shared.
+     */
+    private List<T> elements() {
+        return obj instanceof PackedList ? obj : own();
+    }
+
+    /**
+     * Iterates the list without copying it, changing the list while iterating throws a
+     * {@link ConcurrentModificationException}.
+     */
     @Override
     public Iterator<T> iterator() {
-        return new Iterator<T>() {
-            private final List<T> list = new ArrayList<>(getValue());
-            private int index = 0;
+        return Collections.unmodifiableList(elements()).iterator();
+    }
 
-            @Override
-            public boolean hasNext() {
-                return index < list.size();
-            }
+    /**
+     * Splits the list in halves of indices, changing the list while traversing throws a
+     * {@link ConcurrentModificationException}.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Collections.unmodifiableList(elements()).spliterator();
+    }
 
-            @Override
-            public T next() {
-                int oldIdx = index++;
-                if (oldIdx >= list.size())
-                    throw new NoSuchElementException("No more elements in list");
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
 
-                return list.get(oldIdx);
-            }
-        };
+    /**
+     * Streams the elements in parallel on the common fork-join pool.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
     }
 
     public int type() {
@@ -135,12 +322,12 @@ public class ListType<T extends DataType<?>> implements DataType<List<T>>, Itera
     @SuppressWarnings("unchecked")
     final <C extends DataType<?>> ListType<C> cast(Class<?> type) {
         ListType<C> cs = new ListType<>(type);
-        cs.setValue((List<C>) obj);
+        cs.setValue((List<C>) own());
         return cs;
     }
 
     public T get(int index) {
-        return obj.get(index);
+        return elements().get(index);
     }
 
     public boolean remove(int index) {
@@ -150,12 +337,12 @@ public class ListType<T extends DataType<?>> implements DataType<List<T>>, Itera
             index = obj.size() + index;
         if (index < 0)
             throw new IndexOutOfBoundsException("Index out of bounds: " + index);
-        obj.remove(index);
+        own().remove(index);
         return true;
     }
 
     public T pop(int index) {
-        return obj.remove(index);
+        return own().remove(index);
     }
 
     @Override
@@ -174,13 +361,33 @@ public class ListType<T extends DataType<?>> implements DataType<List<T>>, Itera
     @Override
     @SuppressWarnings("unchecked")
     public ListType<T> copy() {
-        return new ListType<>(obj.stream().map(t -> (T) t.copy()).collect(Collectors.toList()));
+        if (obj instanceof PackedList) return new ListType<>(((PackedList<T>) obj).copy(), id);
+
+        List<T> list = new ArrayList<>(obj.size());
+        for (T t : obj) {
+            list.add((T) t.copy());
+        }
+        return new ListType<>(list, id);
+    }
+
+    /**
+     * Copies the list in constant time, the copy shares the elements until either list is changed.
+     * <p>
+     * The copy can be read or written on another thread while this list is being changed, two lists sharing elements
+     * must not be changed concurrently.
+     */
+    @Override
+    public ListType<T> copyOnWrite() {
+        ListType<T> copy = new ListType<>(obj, id);
+        copy.shared = true;
+        shared = true;
+        return copy;
     }
 
     @Override
     public String writeUso() {
         StringBuilder builder = new StringBuilder("[");
-        for (T t : this)
+        for (T t : obj)
             builder.append(t.writeUso()).append(", ");
 
         if (this.obj.size() > 0)
@@ -194,17 +401,19 @@ public class ListType<T extends DataType<?>> implements DataType<List<T>>, Itera
     }
 
     public void clear() {
-        obj.clear();
+        if (shared) obj = storage(id, 0);
+        else obj.clear();
+        shared = false;
     }
 
     public T set(int index, T type) {
         if (type.id() != id)
             throw new IllegalArgumentException("Type at index " + index + " has invalid id: " + type.id() + " (expected " + id + ")");
-        return obj.set(index, type);
+        return own().set(index, type);
     }
 
     public T remove(T type) {
-        obj.remove(type);
+        own().remove(type);
         return type;
     }
 
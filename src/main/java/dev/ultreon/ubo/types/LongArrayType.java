@@ -1,6 +1,8 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -10,12 +12,21 @@ import java.util.Arrays;
 public class LongArrayType implements DataType<long[]> {
     private long[] obj;
 
+    /**
+     * Whether the value is shared with a copy on write, it's copied before it's handed out.
+     */
+    private boolean shared;
+
     public LongArrayType(long[] obj) {
         this.obj = obj;
     }
 
     @Override
     public long[] getValue() {
+        if (shared) {
+            obj = obj.clone();
+            shared = false;
+        }
         return obj;
     }
 
@@ -23,6 +34,7 @@ public class LongArrayType implements DataType<long[]> {
     public void setValue(long[] obj) {
         if (obj == null) throw new IllegalArgumentException("Value can't be set to null");
         this.obj = obj;
+        this.shared = false;
     }
 
     @Override
@@ -32,21 +44,26 @@ public class LongArrayType implements DataType<long[]> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeInt(obj.length);
-        for (long l : obj) {
-            output.writeLong(l);
-        }
+        UboOutput.writeLength(output, obj.length);
+        UboOutput.writeLongs(output, obj, 0, obj.length);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L + obj.length * 8L;
     }
 
     public static LongArrayType read(DataInput input) throws IOException {
-        int len = input.readInt();
+        int len = UboInput.readLength(input);
         long[] arr = new long[len];
-        for (int i = 0; i < len; i++) {
-            arr[i] = input.readLong();
-        }
+        UboInput.readLongs(input, arr, 0, len);
         return new LongArrayType(arr);
     }
 
+    public static void skip(DataInput input) throws IOException {
+        UboInput.skipValues(input, UboInput.readLength(input), Long.BYTES);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -65,6 +82,17 @@ public class LongArrayType implements DataType<long[]> {
         return new LongArrayType(obj.clone());
     }
 
+    /**
+     * Shares the value with the copy until either side hands it out.
+     */
+    @Override
+    public LongArrayType copyOnWrite() {
+        LongArrayType copy = new LongArrayType(obj);
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
     public int size() {
         return obj.length;
     }
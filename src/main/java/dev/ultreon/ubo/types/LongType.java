@@ -1,6 +1,8 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -31,11 +33,20 @@ public class LongType implements DataType<Long> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeLong(obj);
+        UboOutput.writeLong(output, obj);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 8;
     }
 
     public static LongType read(DataInput input) throws IOException {
-        return new LongType(input.readLong());
+        return new LongType(UboInput.readLong(input));
+    }
+
+    public static void skip(DataInput input) throws IOException {
+        UboInput.skipValues(input, 1, Long.BYTES);
     }
 
     @Override
@@ -0,0 +1,186 @@
+package dev.ultreon.ubo.types;
+
+import dev.ultreon.ubo.DataTypeException;
+import dev.ultreon.ubo.DataTypeRegistry;
+import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.CompactMap;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar layout of a list of maps, used when writing with {@link dev.ultreon.ubo.DataFlags#COLUMNAR}.
+ * <p>
+ * The elements of the list start with a layout byte. Maps that all have the same keys with the same value types are
+ * written as columns: the key count, the keys and type ids once, then the values of every key one after the other.
+ * A column holds exactly the bytes its values would write, int, long and double columns are written and read in bulk.
+ * Lists of other maps are written row by row, like without the flag.
+ */
+final class MapColumns {
+    private static final int ROWS = 0;
+    private static final int COLUMNS = 1;
+
+    private MapColumns() {
+        throw new UnsupportedOperationException("Cannot instantiate MapColumns");
+    }
+
+    static void write(List<? extends DataType<?>> rows, DataOutput output) throws IOException {
+        String[] keys = schema(rows);
+        if (keys == null) {
+            output.writeByte(ROWS);
+            for (DataType<?> row : rows) {
+                row.write(output);
+            }
+            return;
+        }
+
+        output.writeByte(COLUMNS);
+        MapType first = (MapType) rows.get(0);
+        UboOutput.writeLength(output, keys.length);
+        for (String key : keys) {
+            UboOutput.writeKey(output, key);
+            output.writeByte(first.peek(key).id());
+        }
+
+        for (String key : keys) {
+            int id = first.peek(key).id();
+            if (id == DataTypes.INT) {
+                int[] column = new int[rows.size()];
+                for (int i = 0; i < column.length; i++) {
+                    column[i] = ((IntType) value(rows, i, key)).getValue();
+                }
+                UboOutput.writeInts(output, column, 0, column.length);
+            } else if (id == DataTypes.LONG) {
+                long[] column = new long[rows.size()];
+                for (int i = 0; i < column.length; i++) {
+                    column[i] = ((LongType) value(rows, i, key)).getValue();
+                }
+                UboOutput.writeLongs(output, column, 0, column.length);
+            } else if (id == DataTypes.DOUBLE) {
+                double[] column = new double[rows.size()];
+                for (int i = 0; i < column.length; i++) {
+                    column[i] = ((DoubleType) value(rows, i, key)).getValue();
+                }
+                BulkIo.writeDoubles(output, column, 0, column.length);
+            } else {
+                for (int i = 0; i < rows.size(); i++) {
+                    value(rows, i, key).write(output);
+                }
+            }
+        }
+    }
+
+    private static DataType<?> value(List<? extends DataType<?>> rows, int index, String key) {
+        return ((MapType) rows.get(index)).peek(key);
+    }
+
+    /**
+     * @return the shared keys of the maps, or {@code null} if they differ in keys or value types, or aren't all
+     * {@link MapType}s that can't change while being written.
+     */
+    private static String[] schema(List<? extends DataType<?>> rows) {
+        if (rows.size() < 2) return null;
+        for (DataType<?> row : rows) {
+            if (!(row instanceof MapType) || row instanceof ConcurrentMapType) return null;
+        }
+
+        MapType first = (MapType) rows.get(0);
+        String[] keys = first.view().keySet().toArray(new String[0]);
+        int[] ids = new int[keys.length];
+        for (int k = 0; k < keys.length; k++) {
+            ids[k] = first.peek(keys[k]).id();
+        }
+
+        for (int i = 1; i < rows.size(); i++) {
+            MapType row = (MapType) rows.get(i);
+            if (row.size() != keys.length) return null;
+            for (int k = 0; k < keys.length; k++) {
+                DataType<?> value = row.peek(keys[k]);
+                if (value == null || value.id() != ids[k]) return null;
+            }
+        }
+        return keys;
+    }
+
+    static void read(List<DataType<?>> list, int len, DataInput input) throws IOException {
+        int layout = input.readUnsignedByte();
+        if (layout == ROWS) {
+            for (int i = 0; i < len; i++) {
+                list.add(MapType.read(input));
+            }
+            return;
+        }
+        if (layout != COLUMNS) throw new DataTypeException("Invalid list layout: " + layout);
+
+        int count = UboInput.readLength(input);
+        String[] keys = new String[count];
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = UboInput.readKey(input);
+            ids[i] = input.readUnsignedByte();
+        }
+
+        Map<String, DataType<?>>[] rows = rows(len, count);
+
+        for (int c = 0; c < count; c++) {
+            String key = keys[c];
+            int id = ids[c];
+            if (id == DataTypes.INT) {
+                int[] column = new int[len];
+                UboInput.readInts(input, column, 0, len);
+                for (int i = 0; i < len; i++) rows[i].put(key, new IntType(column[i]));
+            } else if (id == DataTypes.LONG) {
+                long[] column = new long[len];
+                UboInput.readLongs(input, column, 0, len);
+                for (int i = 0; i < len; i++) rows[i].put(key, new LongType(column[i]));
+            } else if (id == DataTypes.DOUBLE) {
+                double[] column = new double[len];
+                BulkIo.readDoubles(input, column, 0, len);
+                for (int i = 0; i < len; i++) rows[i].put(key, new DoubleType(column[i]));
+            } else {
+                for (int i = 0; i < len; i++) rows[i].put(key, DataTypeRegistry.read(id, input));
+            }
+        }
+
+        for (Map<String, DataType<?>> row : rows) {
+            list.add(MapType.owning(row));
+        }
+    }
+
+    static void skip(int len, DataInput input) throws IOException {
+        int layout = input.readUnsignedByte();
+        if (layout == ROWS) {
+            DataTypeRegistry.skip(DataTypes.MAP, len, input);
+            return;
+        }
+        if (layout != COLUMNS) throw new DataTypeException("Invalid list layout: " + layout);
+
+        int count = UboInput.readLength(input);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            UboInput.skipKey(input);
+            ids[i] = input.readUnsignedByte();
+        }
+        for (int id : ids) {
+            DataTypeRegistry.skip(id, len, input);
+        }
+    }
+
+    /**
+     * @return {@code len} empty maps, sized for {@code count} entries.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Map<String, DataType<?>>[] rows(int len, int count) {
+        Map<String, DataType<?>>[] rows = new Map[len];
+        for (int i = 0; i < len; i++) {
+            rows[i] = new CompactMap<>(count);
+        }
+        return rows;
+    }
+}
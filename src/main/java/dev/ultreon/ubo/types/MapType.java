@@ -2,6 +2,10 @@ package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypeRegistry;
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.CompactMap;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
+import dev.ultreon.ubo.util.Utf8;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -10,13 +14,25 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
 
 public class MapType implements DataType<Map<String, DataType<?>>> {
     private Map<String, DataType<?>> obj;
+    /**
+     * Cached size of the keys and type ids of all entries, {@code -1} when unknown.
+     * Not used once the backing map was handed out.
+     */
+    private long keyBytes = -1;
+    /**
+     * Whether the backing map came from or was handed out to the caller, who can change it without this map knowing.
+     */
+    private boolean exposed;
+    /**
+     * Whether the backing map is shared with a copy on write, it's copied before anything can change it.
+     */
+    private boolean shared;
 
     public MapType() {
-        obj = new HashMap<>();
+        obj = new CompactMap<>();
     }
 
     public MapType(Map<String, DataType<?>> map) {
@@ -24,30 +40,76 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public MapType(String key, DataType<?> value) {
-        obj = new HashMap<>();
+        obj = new CompactMap<>();
         obj.put(key, value);
     }
 
+    /**
+     * Uses the map as it is, it must not be changed from outside, so the size of the keys can be cached.
+     */
+    static MapType owning(Map<String, DataType<?>> map) {
+        MapType type = new MapType(map);
+        type.exposed = false;
+        return type;
+    }
+
     @Override
     public Map<String, DataType<?>> getValue() {
-        return obj;
+        exposed = true;
+        return own();
     }
 
     @Override
     public void setValue(Map<String, DataType<?>> obj) {
         this.obj = obj;
+        keyBytes = -1;
+        exposed = true;
+        shared = false;
+    }
+
+    /**
+     * Stops sharing the backing map with copies, the entries are copied on write which is cheap for maps, lists and
+     * arrays as they're shared again.
+     *
+     * @return the backing map, owned by this map.
+     */
+    private Map<String, DataType<?>> own() {
+        if (shared) {
+            Map<String, DataType<?>> copy = new CompactMap<>(obj.size());
+            for (Entry<String, DataType<?>> entry : obj.entrySet()) {
+                copy.put(entry.getKey(), entry.getValue().copyOnWrite());
+            }
+            obj = copy;
+            shared = false;
+        }
+        return obj;
+    }
+
+    /**
+     * @return the backing map for reading only, it may be shared with copies.
+     */
+    Map<String, DataType<?>> view() {
+        return obj;
+    }
+
+    /**
+     * Gets a value that is only read, so the backing map is not copied when it's shared.
+     */
+    DataType<?> peek(String key) {
+        return obj.get(key);
     }
 
     public Set<String> keys() {
-        return obj.keySet();
+        exposed = true;
+        return own().keySet();
     }
 
     public Set<Entry<String, DataType<?>>> entries() {
-        return obj.entrySet();
+        return getValue().entrySet();
     }
 
     public Collection<DataType<?>> values() {
-        return obj.values();
+        return getValue().values();
     }
 
     @Override
@@ -57,42 +119,75 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeInt(obj.size());
+        UboOutput.writeLength(output, obj.size());
         for (Entry<String, DataType<?>> e : obj.entrySet()) {
-            output.writeUTF(e.getKey());
+            UboOutput.writeKey(output, e.getKey());
             DataType<?> value = e.getValue();
             output.writeByte(value.id());
             value.write(output);
         }
     }
 
+    @Override
+    public long sizeInBytes() {
+        long keys = keyBytes;
+        if (exposed || keys < 0) {
+            keys = 0;
+            for (String key : obj.keySet()) {
+                keys += entrySize(key);
+            }
+            if (!exposed) keyBytes = keys;
+        }
+
+        long size = 4 + keys;
+        for (DataType<?> value : obj.values()) {
+            size += value.sizeInBytes();
+        }
+        return size;
+    }
+
+    /**
+     * @return the size of the key and type id of an entry.
+     */
+    private static long entrySize(String key) {
+        return 3 + Utf8.modifiedLength(key);
+    }
+
     public static MapType read(DataInput input) throws IOException {
-        int len = input.readInt();
-        Map<String, DataType<?>> map = new HashMap<>(len);
+        int len = UboInput.readLength(input);
+        Map<String, DataType<?>> map = new CompactMap<>(len);
         for (int i = 0; i < len; i++) {
-            String key = input.readUTF();
+            String key = UboInput.readKey(input);
             int id = input.readUnsignedByte();
             map.put(key, DataTypeRegistry.read(id, input));
         }
 
-        return new MapType(map);
+        return owning(map);
+    }
+
+    public static void skip(DataInput input) throws IOException {
+        int len = UboInput.readLength(input);
+        for (int i = 0; i < len; i++) {
+            UboInput.skipKey(input);
+            DataTypeRegistry.skip(input.readUnsignedByte(), input);
+        }
     }
 
     public boolean contains(String key, int type) {
-        DataType<?> data = obj.get(key);
+        DataType<?> data = peek(key);
 
         return data != null && data.id() == type;
     }
 
     @SafeVarargs
     public final <T extends DataType<?>> boolean contains(String key, T... type) {
-        DataType<?> data = obj.get(key);
+        DataType<?> data = peek(key);
 
         return data != null && type.getClass().getComponentType().isAssignableFrom(data.getClass());
     }
 
     public void put(String key, DataType<?> dataType) {
-        obj.put(key, dataType);
+        if (own().put(key, dataType) == null && keyBytes >= 0) keyBytes += entrySize(key);
     }
 
     public void putByte(String key, byte value) {
@@ -192,7 +287,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public byte getByte(String key, byte def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof ByteType) {
             return ((ByteType) dataType).getValue();
         }
@@ -204,7 +299,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public short getShort(String key, short def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof ShortType) {
             return ((ShortType) dataType).getValue();
         }
@@ -216,7 +311,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public int getInt(String key, int def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof IntType) {
             return ((IntType) dataType).getValue();
         }
@@ -228,7 +323,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public long getLong(String key, long def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof LongType) {
             return ((LongType) dataType).getValue();
         }
@@ -240,7 +335,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public BigInteger getBigInt(String key, BigInteger def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof BigIntType) {
             return ((BigIntType) dataType).getValue();
         }
@@ -252,7 +347,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public float getFloat(String key, float def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof FloatType) {
             return ((FloatType) dataType).getValue();
         }
@@ -264,7 +359,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public double getDouble(String key, double def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof DoubleType) {
             return ((DoubleType) dataType).getValue();
         }
@@ -276,7 +371,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public BigDecimal getBigDec(String key, BigDecimal def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof BigDecType) {
             return ((BigDecType) dataType).getValue();
         }
@@ -288,7 +383,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public char getChar(String key, char def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof CharType) {
             return ((CharType) dataType).getValue();
         }
@@ -300,7 +395,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public boolean getBoolean(String key, boolean def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof BooleanType) {
             return ((BooleanType) dataType).getValue();
         }
@@ -312,7 +407,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public String getString(String key, String def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof StringType) {
             return ((StringType) dataType).getValue();
         }
@@ -449,7 +544,7 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public UUID getUUID(String key, UUID def) {
-        DataType<?> dataType = get(key);
+        DataType<?> dataType = peek(key);
         if (dataType instanceof UUIDType) {
             return ((UUIDType) dataType).getValue();
         }
@@ -457,15 +552,28 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public DataType<?> get(String key) {
-        return obj.get(key);
+        return own().get(key);
+    }
+
+    /**
+     * Looks up a key that remembers its position, faster than {@link #get(String)} for many maps with the same keys.
+     */
+    public DataType<?> get(CompactMap.Key key) {
+        Map<String, DataType<?>> map = own();
+        if (map instanceof CompactMap) return ((CompactMap<DataType<?>>) map).get(key);
+        return map.get(key.name());
     }
 
     public boolean remove(String key) {
-        return obj.remove(key, get(key));
+        boolean removed = own().remove(key, get(key));
+        if (removed && keyBytes >= 0) keyBytes -= entrySize(key);
+        return removed;
     }
 
     public DataType<?> pop(String key) {
-        return obj.remove(key);
+        DataType<?> removed = own().remove(key);
+        if (removed != null && keyBytes >= 0) keyBytes -= entrySize(key);
+        return removed;
     }
 
     @Override
@@ -473,23 +581,46 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
         if (this == other) return true;
         if (!(other instanceof MapType)) return false;
         MapType mapType = (MapType) other;
-        return Objects.equals(obj, mapType.obj);
+        return Objects.equals(view(), mapType.view());
     }
 
     @Override
     public int hashCode() {
-        return obj.hashCode();
+        return view().hashCode();
     }
 
     @Override
     public MapType copy() {
-        return new MapType(obj.entrySet().stream().collect(Collectors.toMap(Entry::getKey, entry -> entry.getValue().copy(), (a, b) -> b)));
+        Map<String, DataType<?>> map = new CompactMap<>(obj.size());
+        for (Entry<String, DataType<?>> entry : obj.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().copy());
+        }
+
+        MapType copy = owning(map);
+        copy.keyBytes = keyBytes;
+        return copy;
+    }
+
+    /**
+     * Copies the map in constant time, the copy shares the entries until either map is changed.
+     * <p>
+     * The copy can be read or written on another thread while this map is being changed, two maps sharing entries must
+     * not be changed concurrently.
+     */
+    @Override
+    public MapType copyOnWrite() {
+        MapType copy = new MapType(obj);
+        copy.keyBytes = keyBytes;
+        copy.exposed = exposed;
+        copy.shared = true;
+        shared = true;
+        return copy;
     }
 
     @Override
     public String writeUso() {
         StringBuilder builder = new StringBuilder("{");
-        for (Map.Entry<String, DataType<?>> entry : obj.entrySet()) {
+        for (Map.Entry<String, DataType<?>> entry : view().entrySet()) {
             builder.append("\"").append(entry.getKey().replace("\"", "\\\"")).append("\": ").append(entry.getValue().writeUso()).append(", ");
         }
 
@@ -505,7 +636,10 @@ public class MapType implements DataType<Map<String, DataType<?>>> {
     }
 
     public void clear() {
-        obj.clear();
+        if (shared) obj = new CompactMap<>();
+        else obj.clear();
+        shared = false;
+        keyBytes = 0;
     }
 
     public boolean isEmpty() {
@@ -0,0 +1,725 @@
+package dev.ultreon.ubo.types;
+
+import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Storage of a {@link ListType} of primitives, keeping the values in a primitive array.
+ * <p>
+ * Elements are wrapped when they are retrieved, so changing a retrieved element doesn't change the list. Values are
+ * written and read in bulk, with the same encoding as writing every element on its own.
+ */
+abstract class PackedList<T extends DataType<?>> extends AbstractList<T> implements RandomAccess {
+    int size;
+
+    /**
+     * @return the packed storage for the element type, or {@code null} if it's not a primitive.
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends DataType<?>> PackedList<T> create(int id, int capacity) {
+        PackedList<?> list;
+        if (id == DataTypes.BYTE) list = new Bytes(capacity);
+        else if (id == DataTypes.SHORT) list = new Shorts(capacity);
+        else if (id == DataTypes.INT) list = new Ints(capacity);
+        else if (id == DataTypes.LONG) list = new Longs(capacity);
+        else if (id == DataTypes.FLOAT) list = new Floats(capacity);
+        else if (id == DataTypes.DOUBLE) list = new Doubles(capacity);
+        else if (id == DataTypes.BOOLEAN) list = new Booleans(capacity);
+        else if (id == DataTypes.CHAR) list = new Chars(capacity);
+        else return null;
+        return (PackedList<T>) list;
+    }
+
+    abstract Object array();
+
+    abstract int capacity();
+
+    abstract void resize(int capacity);
+
+    abstract T wrap(int index);
+
+    abstract void store(int index, T value);
+
+    abstract void write(DataOutput output) throws IOException;
+
+    /**
+     * Replaces the content with {@code len} values read from the input.
+     */
+    abstract void read(DataInput input, int len) throws IOException;
+
+    abstract PackedList<T> copy();
+
+    final void grow(int min) {
+        int capacity = capacity();
+        if (min <= capacity) return;
+        resize((int) Math.min(Integer.MAX_VALUE - 8, Math.max(min, capacity + (capacity >> 1) + 8L)));
+    }
+
+    /**
+     * Makes room for a value at the end of the list.
+     *
+     * @return the index of the new value.
+     */
+    final int append() {
+        grow(size + 1);
+        modCount++;
+        return size++;
+    }
+
+    final void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+
+    @Override
+    public T get(int index) {
+        checkIndex(index);
+        return wrap(index);
+    }
+
+    @Override
+    public T set(int index, T element) {
+        checkIndex(index);
+        T old = wrap(index);
+        store(index, element);
+        return old;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+
+        grow(size + 1);
+        System.arraycopy(array(), index, array(), index + 1, size - index);
+        store(index, element);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public T remove(int index) {
+        checkIndex(index);
+        T old = wrap(index);
+        System.arraycopy(array(), index + 1, array(), index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new Splitter(0, -1, 0);
+    }
+
+    /**
+     * Spliterator over a range of indices, splitting in halves. The end binds to the size on first use, changes to
+     * the list are detected after traversing.
+     */
+    private final class Splitter implements Spliterator<T> {
+        private int index;
+        private int fence;
+        private int expectedModCount;
+
+        Splitter(int index, int fence, int expectedModCount) {
+            this.index = index;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int fence() {
+            if (fence < 0) {
+                expectedModCount = modCount;
+                fence = size;
+            }
+            return fence;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int fence = fence();
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) return null;
+            Splitter prefix = new Splitter(index, mid, expectedModCount);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) throw new NullPointerException();
+            if (index >= fence()) return false;
+            action.accept(wrap(index++));
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (action == null) throw new NullPointerException();
+            int fence = fence();
+            while (index < fence) {
+                action.accept(wrap(index++));
+            }
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence() - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
+    static final class Bytes extends PackedList<ByteType> {
+        private byte[] values;
+
+        Bytes(int capacity) {
+            values = new byte[capacity];
+        }
+
+        byte getByte(int index) {
+            checkIndex(index);
+            return values[index];
+        }
+
+        void addByte(byte value) {
+            int index = append();
+            values[index] = value;
+        }
+
+        @Override
+        Object array() {
+            return values;
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        ByteType wrap(int index) {
+            return new ByteType(values[index]);
+        }
+
+        @Override
+        void store(int index, ByteType value) {
+            values[index] = value.getValue();
+        }
+
+        @Override
+        void write(DataOutput output) throws IOException {
+            BulkIo.writeBytes(output, values, 0, size);
+        }
+
+        @Override
+        void read(DataInput input, int len) throws IOException {
+            values = new byte[len];
+            BulkIo.readBytes(input, values, 0, len);
+            size = len;
+        }
+
+        @Override
+        Bytes copy() {
+            Bytes copy = new Bytes(0);
+            copy.values = Arrays.copyOf(values, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+
+    static final class Shorts extends PackedList<ShortType> {
+        private short[] values;
+
+        Shorts(int capacity) {
+            values = new short[capacity];
+        }
+
+        short getShort(int index) {
+            checkIndex(index);
+            return values[index];
+        }
+
+        void addShort(short value) {
+            int index = append();
+            values[index] = value;
+        }
+
+        @Override
+        Object array() {
+            return values;
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        ShortType wrap(int index) {
+            return new ShortType(values[index]);
+        }
+
+        @Override
+        void store(int index, ShortType value) {
+            values[index] = value.getValue();
+        }
+
+        @Override
+        void write(DataOutput output) throws IOException {
+            if (!UboOutput.isVarint(output)) {
+                BulkIo.writeShorts(output, values, 0, size);
+                return;
+            }
+
+            for (int i = 0; i < size; i++) {
+                UboOutput.writeShort(output, values[i]);
+            }
+        }
+
+        @Override
+        void read(DataInput input, int len) throws IOException {
+            values = new short[len];
+            if (!UboInput.isVarint(input)) {
+                BulkIo.readShorts(input, values, 0, len);
+            } else {
+                for (int i = 0; i < len; i++) {
+                    values[i] = UboInput.readShort(input);
+                }
+            }
+            size = len;
+        }
+
+        @Override
+        Shorts copy() {
+            Shorts copy = new Shorts(0);
+            copy.values = Arrays.copyOf(values, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+
+    static final class Ints extends PackedList<IntType> {
+        private int[] values;
+
+        Ints(int capacity) {
+            values = new int[capacity];
+        }
+
+        int getInt(int index) {
+            checkIndex(index);
+            return values[index];
+        }
+
+        void addInt(int value) {
+            int index = append();
+            values[index] = value;
+        }
+
+        @Override
+        Object array() {
+            return values;
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        IntType wrap(int index) {
+            return new IntType(values[index]);
+        }
+
+        @Override
+        void store(int index, IntType value) {
+            values[index] = value.getValue();
+        }
+
+        @Override
+        void write(DataOutput output) throws IOException {
+            UboOutput.writeInts(output, values, 0, size);
+        }
+
+        @Override
+        void read(DataInput input, int len) throws IOException {
+            values = new int[len];
+            UboInput.readInts(input, values, 0, len);
+            size = len;
+        }
+
+        @Override
+        Ints copy() {
+            Ints copy = new Ints(0);
+            copy.values = Arrays.copyOf(values, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+
+    static final class Longs extends PackedList<LongType> {
+        private long[] values;
+
+        Longs(int capacity) {
+            values = new long[capacity];
+        }
+
+        long getLong(int index) {
+            checkIndex(index);
+            return values[index];
+        }
+
+        void addLong(long value) {
+            int index = append();
+            values[index] = value;
+        }
+
+        @Override
+        Object array() {
+            return values;
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        LongType wrap(int index) {
+            return new LongType(values[index]);
+        }
+
+        @Override
+        void store(int index, LongType value) {
+            values[index] = value.getValue();
+        }
+
+        @Override
+        void write(DataOutput output) throws IOException {
+            UboOutput.writeLongs(output, values, 0, size);
+        }
+
+        @Override
+        void read(DataInput input, int len) throws IOException {
+            values = new long[len];
+            UboInput.readLongs(input, values, 0, len);
+            size = len;
+        }
+
+        @Override
+        Longs copy() {
+            Longs copy = new Longs(0);
+            copy.values = Arrays.copyOf(values, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+
+    static final class Floats extends PackedList<FloatType> {
+        private float[] values;
+
+        Floats(int capacity) {
+            values = new float[capacity];
+        }
+
+        float getFloat(int index) {
+            checkIndex(index);
+            return values[index];
+        }
+
+        void addFloat(float value) {
+            int index = append();
+            values[index] = value;
+        }
+
+        @Override
+        Object array() {
+            return values;
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        FloatType wrap(int index) {
+            return new FloatType(values[index]);
+        }
+
+        @Override
+        void store(int index, FloatType value) {
+            values[index] = value.getValue();
+        }
+
+        @Override
+        void write(DataOutput output) throws IOException {
+            BulkIo.writeFloats(output, values, 0, size);
+        }
+
+        @Override
+        void read(DataInput input, int len) throws IOException {
+            values = new float[len];
+            BulkIo.readFloats(input, values, 0, len);
+            size = len;
+        }
+
+        @Override
+        Floats copy() {
+            Floats copy = new Floats(0);
+            copy.values = Arrays.copyOf(values, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+
+    static final class Doubles extends PackedList<DoubleType> {
+        private double[] values;
+
+        Doubles(int capacity) {
+            values = new double[capacity];
+        }
+
+        double getDouble(int index) {
+            checkIndex(index);
+            return values[index];
+        }
+
+        void addDouble(double value) {
+            int index = append();
+            values[index] = value;
+        }
+
+        @Override
+        Object array() {
+            return values;
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        DoubleType wrap(int index) {
+            return new DoubleType(values[index]);
+        }
+
+        @Override
+        void store(int index, DoubleType value) {
+            values[index] = value.getValue();
+        }
+
+        @Override
+        void write(DataOutput output) throws IOException {
+            BulkIo.writeDoubles(output, values, 0, size);
+        }
+
+        @Override
+        void read(DataInput input, int len) throws IOException {
+            values = new double[len];
+            BulkIo.readDoubles(input, values, 0, len);
+            size = len;
+        }
+
+        @Override
+        Doubles copy() {
+            Doubles copy = new Doubles(0);
+            copy.values = Arrays.copyOf(values, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+
+    static final class Booleans extends PackedList<BooleanType> {
+        private boolean[] values;
+
+        Booleans(int capacity) {
+            values = new boolean[capacity];
+        }
+
+        boolean getBoolean(int index) {
+            checkIndex(index);
+            return values[index];
+        }
+
+        void addBoolean(boolean value) {
+            int index = append();
+            values[index] = value;
+        }
+
+        @Override
+        Object array() {
+            return values;
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        BooleanType wrap(int index) {
+            return new BooleanType(values[index]);
+        }
+
+        @Override
+        void store(int index, BooleanType value) {
+            values[index] = value.getValue();
+        }
+
+        @Override
+        void write(DataOutput output) throws IOException {
+            byte[] bytes = new byte[size];
+            for (int i = 0; i < size; i++) {
+                bytes[i] = (byte) (values[i] ? 1 : 0);
+            }
+            BulkIo.writeBytes(output, bytes, 0, size);
+        }
+
+        @Override
+        void read(DataInput input, int len) throws IOException {
+            byte[] bytes = new byte[len];
+            BulkIo.readBytes(input, bytes, 0, len);
+            values = new boolean[len];
+            for (int i = 0; i < len; i++) {
+                values[i] = bytes[i] != 0;
+            }
+            size = len;
+        }
+
+        @Override
+        Booleans copy() {
+            Booleans copy = new Booleans(0);
+            copy.values = Arrays.copyOf(values, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+
+    static final class Chars extends PackedList<CharType> {
+        private char[] values;
+
+        Chars(int capacity) {
+            values = new char[capacity];
+        }
+
+        char getChar(int index) {
+            checkIndex(index);
+            return values[index];
+        }
+
+        void addChar(char value) {
+            int index = append();
+            values[index] = value;
+        }
+
+        @Override
+        Object array() {
+            return values;
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        CharType wrap(int index) {
+            return new CharType(values[index]);
+        }
+
+        @Override
+        void store(int index, CharType value) {
+            values[index] = value.getValue();
+        }
+
+        @Override
+        void write(DataOutput output) throws IOException {
+            BulkIo.writeChars(output, values, 0, size);
+        }
+
+        @Override
+        void read(DataInput input, int len) throws IOException {
+            values = new char[len];
+            BulkIo.readChars(input, values, 0, len);
+            size = len;
+        }
+
+        @Override
+        Chars copy() {
+            Chars copy = new Chars(0);
+            copy.values = Arrays.copyOf(values, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+}
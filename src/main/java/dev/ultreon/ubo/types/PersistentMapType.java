@@ -0,0 +1,580 @@
+package dev.ultreon.ubo.types;
+
+import dev.ultreon.ubo.DataTypeRegistry;
+import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.CompactMap;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
+import dev.ultreon.ubo.util.Utf8;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * An immutable map, stored as a hash array mapped trie.
+ * <p>
+ * {@link #with(String, DataType)} and {@link #without(String)} return a new version of the map, copying only the
+ * nodes on the path to the key, in {@code O(log32 n)}. Every other node is shared with the previous version. Values
+ * are copied when they're put in, and copied on write when they're handed out, so changing them doesn't change the
+ * map and reading a large value doesn't copy it. Versions can be read from any thread, a writer can publish them
+ * through an {@link java.util.concurrent.atomic.AtomicReference} without locking.
+ * <p>
+ * Writes exactly like a {@link MapType}, reading the bytes back gives a {@link MapType} unless read with
+ * {@link #read(DataInput)}.
+ */
+public final class PersistentMapType implements DataType<Map<String, DataType<?>>> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMapType EMPTY = new PersistentMapType(Bitmap.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMapType(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the empty map.
+     */
+    public static PersistentMapType empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Converts a map, its values are copied as they're put in.
+     */
+    public static PersistentMapType of(MapType map) {
+        PersistentMapType result = EMPTY;
+        for (Map.Entry<String, DataType<?>> entry : map.view().entrySet()) {
+            result = result.with(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Converts to a regular map in time linear in the amount of entries, its values are copied on write.
+     */
+    public MapType toMapType() {
+        Map<String, DataType<?>> map = new CompactMap<>(size);
+        for (Iterator<Object[]> it = new Entries(root); it.hasNext(); ) {
+            Object[] entry = it.next();
+            map.put((String) entry[0], ((DataType<?>) entry[1]).copyOnWrite());
+        }
+        return MapType.owning(map);
+    }
+
+    /**
+     * @return a version of this map with the key set to a copy of the value.
+     */
+    public PersistentMapType with(String key, DataType<?> value) {
+        if (key == null) throw new IllegalArgumentException("Key can't be null");
+        if (value == null) throw new IllegalArgumentException("Value can't be null");
+
+        boolean[] added = new boolean[1];
+        Node root = this.root.with(key, key.hashCode(), value.copy(), 0, added);
+        return new PersistentMapType(root, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @return a version of this map without the key, or this map if it doesn't have the key.
+     */
+    public PersistentMapType without(String key) {
+        Node root = this.root.without(key, key.hashCode(), 0);
+        if (root == this.root) return this;
+        return new PersistentMapType(root, size - 1);
+    }
+
+    /**
+     * @return a copy on write of the value of the key, or {@code null} if the map doesn't have the key.
+     */
+    public DataType<?> get(String key) {
+        DataType<?> value = root.get(key, key.hashCode(), 0);
+        return value == null ? null : value.copyOnWrite();
+    }
+
+    public boolean contains(String key) {
+        return root.get(key, key.hashCode(), 0) != null;
+    }
+
+    public boolean contains(String key, int type) {
+        DataType<?> value = root.get(key, key.hashCode(), 0);
+        return value != null && value.id() == type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return an unmodifiable view of the map, handing out copies of the values.
+     */
+    @Override
+    public Map<String, DataType<?>> getValue() {
+        return new View();
+    }
+
+    @Override
+    public void setValue(Map<String, DataType<?>> obj) {
+        throw new UnsupportedOperationException("Persistent maps can't be modified, use with or without");
+    }
+
+    @Override
+    public int id() {
+        return DataTypes.MAP;
+    }
+
+    @Override
+    public void write(DataOutput output) throws IOException {
+        UboOutput.writeLength(output, size);
+        for (Iterator<Object[]> it = new Entries(root); it.hasNext(); ) {
+            Object[] entry = it.next();
+            DataType<?> value = (DataType<?>) entry[1];
+            UboOutput.writeKey(output, (String) entry[0]);
+            output.writeByte(value.id());
+            value.write(output);
+        }
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long size = 4;
+        for (Iterator<Object[]> it = new Entries(root); it.hasNext(); ) {
+            Object[] entry = it.next();
+            size += 3 + Utf8.modifiedLength((String) entry[0]) + ((DataType<?>) entry[1]).sizeInBytes();
+        }
+        return size;
+    }
+
+    public static PersistentMapType read(DataInput input) throws IOException {
+        int len = UboInput.readLength(input);
+        boolean[] added = new boolean[1];
+        Node root = Bitmap.EMPTY;
+        int size = 0;
+        for (int i = 0; i < len; i++) {
+            String key = UboInput.readKey(input);
+            int id = input.readUnsignedByte();
+            added[0] = false;
+            root = root.with(key, key.hashCode(), DataTypeRegistry.read(id, input), 0, added);
+            if (added[0]) size++;
+        }
+        return new PersistentMapType(root, size);
+    }
+
+    public static void skip(DataInput input) throws IOException {
+        MapType.skip(input);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof PersistentMapType)) return false;
+        PersistentMapType that = (PersistentMapType) other;
+        if (size != that.size) return false;
+        for (Iterator<Object[]> it = new Entries(root); it.hasNext(); ) {
+            Object[] entry = it.next();
+            String key = (String) entry[0];
+            if (!entry[1].equals(that.root.get(key, key.hashCode(), 0))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hashes like {@link Map#hashCode()}.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (Iterator<Object[]> it = new Entries(root); it.hasNext(); ) {
+            Object[] entry = it.next();
+            hash += entry[0].hashCode() ^ entry[1].hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * @return this map, as it can't be modified.
+     */
+    @Override
+    public PersistentMapType copy() {
+        return this;
+    }
+
+    @Override
+    public String writeUso() {
+        StringBuilder builder = new StringBuilder("{");
+        for (Iterator<Object[]> it = new Entries(root); it.hasNext(); ) {
+            Object[] entry = it.next();
+            builder.append("\"").append(((String) entry[0]).replace("\"", "\\\"")).append("\": ").append(((DataType<?>) entry[1]).writeUso()).append(", ");
+        }
+
+        if (size > 1) {
+            return builder.substring(0, builder.length() - 2) + "}";
+        }
+
+        return builder + "}";
+    }
+
+    @Override
+    public String toString() {
+        return writeUso();
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    /**
+     * @return a node holding two entries whose keys hash the same up to the given shift.
+     */
+    private static Node merge(String key1, int hash1, DataType<?> value1, String key2, int hash2, DataType<?> value2, int shift) {
+        if (shift >= Integer.SIZE) return new Collision(hash1, new Object[]{key1, value1, key2, value2});
+
+        int bit1 = bit(hash1, shift);
+        int bit2 = bit(hash2, shift);
+        if (bit1 == bit2) {
+            return new Bitmap(0, bit1, new Object[0], new Node[]{merge(key1, hash1, value1, key2, hash2, value2, shift + BITS)});
+        }
+
+        Object[] data = index(bit1 | bit2, bit1) == 0 ? new Object[]{key1, value1, key2, value2} : new Object[]{key2, value2, key1, value1};
+        return new Bitmap(bit1 | bit2, 0, data, new Node[0]);
+    }
+
+    private static Object[] insertPair(Object[] data, int index, String key, DataType<?> value) {
+        Object[] result = new Object[data.length + 2];
+        System.arraycopy(data, 0, result, 0, 2 * index);
+        result[2 * index] = key;
+        result[2 * index + 1] = value;
+        System.arraycopy(data, 2 * index, result, 2 * index + 2, data.length - 2 * index);
+        return result;
+    }
+
+    private static Object[] removePair(Object[] data, int index) {
+        Object[] result = new Object[data.length - 2];
+        System.arraycopy(data, 0, result, 0, 2 * index);
+        System.arraycopy(data, 2 * index + 2, result, 2 * index, result.length - 2 * index);
+        return result;
+    }
+
+    private abstract static class Node {
+        abstract DataType<?> get(String key, int hash, int shift);
+
+        /**
+         * @return the node with the key set, or this node if the key already has the value.
+         */
+        abstract Node with(String key, int hash, DataType<?> value, int shift, boolean[] added);
+
+        /**
+         * @return the node without the key, or this node if it doesn't have the key.
+         */
+        abstract Node without(String key, int hash, int shift);
+
+        abstract int entries();
+
+        abstract String key(int index);
+
+        abstract DataType<?> value(int index);
+
+        abstract int nodes();
+
+        abstract Node node(int index);
+    }
+
+    /**
+     * Node with the entries and child nodes for the 32 hash fragments present in its bitmaps, an entry is moved to a
+     * child node once another key has its fragment.
+     */
+    private static final class Bitmap extends Node {
+        static final Bitmap EMPTY = new Bitmap(0, 0, new Object[0], new Node[0]);
+
+        private final int dataMap;
+        private final int nodeMap;
+        private final Object[] data;
+        private final Node[] children;
+
+        Bitmap(int dataMap, int nodeMap, Object[] data, Node[] children) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.data = data;
+            this.children = children;
+        }
+
+        @Override
+        DataType<?> get(String key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = index(dataMap, bit);
+                return key.equals(data[2 * index]) ? (DataType<?>) data[2 * index + 1] : null;
+            }
+            if ((nodeMap & bit) != 0) return children[index(nodeMap, bit)].get(key, hash, shift + BITS);
+            return null;
+        }
+
+        @Override
+        Node with(String key, int hash, DataType<?> value, int shift, boolean[] added) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = index(dataMap, bit);
+                String existing = (String) data[2 * index];
+                if (existing.equals(key)) {
+                    if (data[2 * index + 1] == value) return this;
+                    Object[] data = this.data.clone();
+                    data[2 * index + 1] = value;
+                    return new Bitmap(dataMap, nodeMap, data, children);
+                }
+
+                added[0] = true;
+                Node child = merge(existing, existing.hashCode(), (DataType<?>) data[2 * index + 1], key, hash, value, shift + BITS);
+                int at = index(nodeMap | bit, bit);
+                Node[] children = new Node[this.children.length + 1];
+                System.arraycopy(this.children, 0, children, 0, at);
+                children[at] = child;
+                System.arraycopy(this.children, at, children, at + 1, this.children.length - at);
+                return new Bitmap(dataMap ^ bit, nodeMap | bit, removePair(data, index), children);
+            }
+
+            if ((nodeMap & bit) != 0) {
+                int index = index(nodeMap, bit);
+                Node child = children[index].with(key, hash, value, shift + BITS, added);
+                if (child == children[index]) return this;
+                Node[] children = this.children.clone();
+                children[index] = child;
+                return new Bitmap(dataMap, nodeMap, data, children);
+            }
+
+            added[0] = true;
+            return new Bitmap(dataMap | bit, nodeMap, insertPair(data, index(dataMap | bit, bit), key, value), children);
+        }
+
+        @Override
+        Node without(String key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = index(dataMap, bit);
+                if (!key.equals(data[2 * index])) return this;
+                return new Bitmap(dataMap ^ bit, nodeMap, removePair(data, index), children);
+            }
+
+            if ((nodeMap & bit) == 0) return this;
+            int index = index(nodeMap, bit);
+            Node child = children[index].without(key, hash, shift + BITS);
+            if (child == children[index]) return this;
+
+            if (child.nodes() == 0 && child.entries() == 1) {
+                // Move the last entry of the child back into this node.
+                Node[] children = new Node[this.children.length - 1];
+                System.arraycopy(this.children, 0, children, 0, index);
+                System.arraycopy(this.children, index + 1, children, index, children.length - index);
+                Object[] data = insertPair(this.data, index(dataMap | bit, bit), child.key(0), child.value(0));
+                return new Bitmap(dataMap | bit, nodeMap ^ bit, data, children);
+            }
+
+            Node[] children = this.children.clone();
+            children[index] = child;
+            return new Bitmap(dataMap, nodeMap, data, children);
+        }
+
+        @Override
+        int entries() {
+            return data.length / 2;
+        }
+
+        @Override
+        String key(int index) {
+            return (String) data[2 * index];
+        }
+
+        @Override
+        DataType<?> value(int index) {
+            return (DataType<?>) data[2 * index + 1];
+        }
+
+        @Override
+        int nodes() {
+            return children.length;
+        }
+
+        @Override
+        Node node(int index) {
+            return children[index];
+        }
+    }
+
+    /**
+     * Node with the entries of keys with the same hash, below the last level of bitmap nodes.
+     */
+    private static final class Collision extends Node {
+        private final int hash;
+        private final Object[] data;
+
+        Collision(int hash, Object[] data) {
+            this.hash = hash;
+            this.data = data;
+        }
+
+        private int find(String key) {
+            for (int i = 0; i < data.length; i += 2) {
+                if (key.equals(data[i])) return i / 2;
+            }
+            return -1;
+        }
+
+        @Override
+        DataType<?> get(String key, int hash, int shift) {
+            int index = hash == this.hash ? find(key) : -1;
+            return index < 0 ? null : (DataType<?>) data[2 * index + 1];
+        }
+
+        @Override
+        Node with(String key, int hash, DataType<?> value, int shift, boolean[] added) {
+            int index = find(key);
+            if (index < 0) {
+                added[0] = true;
+                return new Collision(hash, insertPair(data, data.length / 2, key, value));
+            }
+            if (data[2 * index + 1] == value) return this;
+            Object[] data = this.data.clone();
+            data[2 * index + 1] = value;
+            return new Collision(hash, data);
+        }
+
+        @Override
+        Node without(String key, int hash, int shift) {
+            int index = find(key);
+            if (index < 0) return this;
+            return new Collision(hash, removePair(data, index));
+        }
+
+        @Override
+        int entries() {
+            return data.length / 2;
+        }
+
+        @Override
+        String key(int index) {
+            return (String) data[2 * index];
+        }
+
+        @Override
+        DataType<?> value(int index) {
+            return (DataType<?>) data[2 * index + 1];
+        }
+
+        @Override
+        int nodes() {
+            return 0;
+        }
+
+        @Override
+        Node node(int index) {
+            throw new IndexOutOfBoundsException("Collision nodes have no child nodes");
+        }
+    }
+
+    /**
+     * Iterates the entries depth first, as arrays of the key and the stored value. The returned array is reused.
+     */
+    private static final class Entries implements Iterator<Object[]> {
+        // Seven levels of bitmap nodes consume the hash, collision nodes are below them.
+        private final Node[] nodes = new Node[8];
+        private final int[] entry = new int[8];
+        private final int[] child = new int[8];
+        private final Object[] current = new Object[2];
+        private int depth;
+
+        Entries(Node root) {
+            nodes[0] = root;
+            advance();
+        }
+
+        /**
+         * Moves to the next node with an entry left, or past the root.
+         */
+        private void advance() {
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (entry[depth] < node.entries()) return;
+                if (child[depth] < node.nodes()) {
+                    Node next = node.node(child[depth]++);
+                    depth++;
+                    nodes[depth] = next;
+                    entry[depth] = 0;
+                    child[depth] = 0;
+                } else {
+                    depth--;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth >= 0;
+        }
+
+        @Override
+        public Object[] next() {
+            if (depth < 0) throw new NoSuchElementException("No more entries in map");
+            Node node = nodes[depth];
+            int index = entry[depth]++;
+            current[0] = node.key(index);
+            current[1] = node.value(index);
+            advance();
+            return current;
+        }
+    }
+
+    private final class View extends AbstractMap<String, DataType<?>> {
+        @Override
+        public Set<Entry<String, DataType<?>>> entrySet() {
+            return new AbstractSet<Entry<String, DataType<?>>>() {
+                @Override
+                public Iterator<Entry<String, DataType<?>>> iterator() {
+                    Entries entries = new Entries(root);
+                    return new Iterator<Entry<String, DataType<?>>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, DataType<?>> next() {
+                            Object[] entry = entries.next();
+                            return new SimpleImmutableEntry<>((String) entry[0], ((DataType<?>) entry[1]).copyOnWrite());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public DataType<?> get(Object key) {
+            return key instanceof String ? PersistentMapType.this.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && contains((String) key);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -10,12 +13,21 @@ import java.util.Arrays;
 public class ShortArrayType implements DataType<short[]> {
     private short[] obj;
 
+    /**
+     * Whether the value is shared with a copy on write, it's copied before it's handed out.
+     */
+    private boolean shared;
+
     public ShortArrayType(short[] obj) {
         this.obj = obj;
     }
 
     @Override
     public short[] getValue() {
+        if (shared) {
+            obj = obj.clone();
+            shared = false;
+        }
         return obj;
     }
 
@@ -23,6 +35,7 @@ public class ShortArrayType implements DataType<short[]> {
     public void setValue(short[] obj) {
         if (obj == null) throw new IllegalArgumentException("Value can't be set to null");
         this.obj = obj;
+        this.shared = false;
     }
 
     @Override
@@ -32,21 +45,26 @@ public class ShortArrayType implements DataType<short[]> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeInt(obj.length);
-        for (int i : obj) {
-            output.writeShort(i);
-        }
+        UboOutput.writeLength(output, obj.length);
+        BulkIo.writeShorts(output, obj, 0, obj.length);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 4L + obj.length * 2L;
     }
 
     public static ShortArrayType read(DataInput input) throws IOException {
-        int len = input.readInt();
+        int len = UboInput.readLength(input);
         short[] arr = new short[len];
-        for (int i = 0; i < len; i++) {
-            arr[i] = input.readShort();
-        }
+        BulkIo.readShorts(input, arr, 0, len);
         return new ShortArrayType(arr);
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, UboInput.readLength(input) * 2L);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -65,6 +83,17 @@ public class ShortArrayType implements DataType<short[]> {
         return new ShortArrayType(obj.clone());
     }
 
+    /**
+     * Shares the value with the copy until either side hands it out.
+     */
+    @Override
+    public ShortArrayType copyOnWrite() {
+        ShortArrayType copy = new ShortArrayType(obj);
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
     public int size() {
         return obj.length;
     }
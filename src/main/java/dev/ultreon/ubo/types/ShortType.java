@@ -1,6 +1,8 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.UboInput;
+import dev.ultreon.ubo.util.UboOutput;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -35,11 +37,20 @@ public class ShortType implements DataType<Short> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeShort(obj);
+        UboOutput.writeShort(output, obj);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 2;
     }
 
     public static ShortType read(DataInput input) throws IOException {
-        return new ShortType(input.readShort());
+        return new ShortType(UboInput.readShort(input));
+    }
+
+    public static void skip(DataInput input) throws IOException {
+        UboInput.skipValues(input, 1, Short.BYTES);
     }
 
     @Override
@@ -1,11 +1,11 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.StringCodec;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 
 public class StringType implements DataType<String> {
     private String obj;
@@ -32,19 +32,24 @@ public class StringType implements DataType<String> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeShort(obj.length());
-        for (byte aByte : obj.getBytes(StandardCharsets.UTF_8)) {
-            output.writeByte(aByte);
-        }
+        write(output, obj);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return StringCodec.sizeInBytes(obj);
+    }
+
+    public static void write(DataOutput output, String value) throws IOException {
+        StringCodec.write(output, value);
     }
 
     public static StringType read(DataInput input) throws IOException {
-        int strLen = input.readUnsignedShort();
-        byte[] bytes = new byte[strLen];
-        for (int j = 0; j < strLen; j++) {
-            bytes[j] = input.readByte();
-        }
-        return new StringType(new String(bytes, StandardCharsets.UTF_8));
+        return new StringType(StringCodec.read(input));
+    }
+
+    public static void skip(DataInput input) throws IOException {
+        StringCodec.skip(input);
     }
 
     @Override
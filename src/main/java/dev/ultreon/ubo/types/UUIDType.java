@@ -1,6 +1,7 @@
 package dev.ultreon.ubo.types;
 
 import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.util.BulkIo;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -33,8 +34,17 @@ public class UUIDType implements DataType<UUID> {
 
     @Override
     public void write(DataOutput output) throws IOException {
-        output.writeLong(obj.getMostSignificantBits());
-        output.writeLong(obj.getLeastSignificantBits());
+        write(output, obj);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 16;
+    }
+
+    public static void write(DataOutput output, UUID value) throws IOException {
+        output.writeLong(value.getMostSignificantBits());
+        output.writeLong(value.getLeastSignificantBits());
     }
 
     public static UUIDType read(DataInput input) throws IOException {
@@ -43,6 +53,10 @@ public class UUIDType implements DataType<UUID> {
         return new UUIDType(new UUID(msb, lsb));
     }
 
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, 16);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -0,0 +1,271 @@
+package dev.ultreon.ubo.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.*;
+
+/**
+ * Bulk codec for primitive arrays.
+ * <p>
+ * Instead of one {@link DataOutput} or {@link DataInput} call per element, arrays are moved through a per-thread
+ * scratch buffer in chunks, using the big-endian typed views of a {@link ByteBuffer}. The produced bytes are exactly the
+ * same as writing the elements one by one with {@link DataOutput#writeInt(int)} and friends.
+ * <p>
+ * A {@link ByteBufferOutput} or {@link ByteBufferInput} is written or read through its own buffer directly.
+ */
+public final class BulkIo {
+    private static final int CHUNK_SIZE = 8192;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private BulkIo() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Skips exactly {@code count} bytes, unlike {@link DataInput#skipBytes(int)} which may skip less.
+     *
+     * @throws java.io.EOFException when the end of the input is reached first.
+     */
+    public static void skipFully(DataInput input, long count) throws IOException {
+        while (count > 0) {
+            int skipped = input.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                // Either the end of the input or a stream that can't skip right now, reading tells which.
+                input.readByte();
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    public static void writeBytes(DataOutput output, byte[] array, int off, int len) throws IOException {
+        output.write(array, off, len);
+    }
+
+    public static void writeShorts(DataOutput output, short[] array, int off, int len) throws IOException {
+        if (output instanceof ByteBufferOutput) {
+            ((ByteBufferOutput) output).writeShorts(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Short.BYTES);
+            ((Buffer) scratch.shorts).clear();
+            scratch.shorts.put(array, off, count);
+            output.write(scratch.bytes, 0, count * Short.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void writeChars(DataOutput output, char[] array, int off, int len) throws IOException {
+        if (output instanceof ByteBufferOutput) {
+            ((ByteBufferOutput) output).writeChars(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Character.BYTES);
+            ((Buffer) scratch.chars).clear();
+            scratch.chars.put(array, off, count);
+            output.write(scratch.bytes, 0, count * Character.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void writeInts(DataOutput output, int[] array, int off, int len) throws IOException {
+        if (output instanceof ByteBufferOutput) {
+            ((ByteBufferOutput) output).writeInts(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Integer.BYTES);
+            ((Buffer) scratch.ints).clear();
+            scratch.ints.put(array, off, count);
+            output.write(scratch.bytes, 0, count * Integer.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void writeLongs(DataOutput output, long[] array, int off, int len) throws IOException {
+        if (output instanceof ByteBufferOutput) {
+            ((ByteBufferOutput) output).writeLongs(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Long.BYTES);
+            ((Buffer) scratch.longs).clear();
+            scratch.longs.put(array, off, count);
+            output.write(scratch.bytes, 0, count * Long.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void writeFloats(DataOutput output, float[] array, int off, int len) throws IOException {
+        if (output instanceof ByteBufferOutput) {
+            ((ByteBufferOutput) output).writeFloats(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Float.BYTES);
+            // Not through the float view, it keeps NaN payloads while DataOutput.writeFloat collapses them.
+            for (int i = 0; i < count; i++) {
+                scratch.buffer.putInt(i * Float.BYTES, Float.floatToIntBits(array[off + i]));
+            }
+            output.write(scratch.bytes, 0, count * Float.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void writeDoubles(DataOutput output, double[] array, int off, int len) throws IOException {
+        if (output instanceof ByteBufferOutput) {
+            ((ByteBufferOutput) output).writeDoubles(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Double.BYTES);
+            // Not through the double view, it keeps NaN payloads while DataOutput.writeDouble collapses them.
+            for (int i = 0; i < count; i++) {
+                scratch.buffer.putLong(i * Double.BYTES, Double.doubleToLongBits(array[off + i]));
+            }
+            output.write(scratch.bytes, 0, count * Double.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void readBytes(DataInput input, byte[] array, int off, int len) throws IOException {
+        input.readFully(array, off, len);
+    }
+
+    public static void readShorts(DataInput input, short[] array, int off, int len) throws IOException {
+        if (input instanceof ByteBufferInput) {
+            ((ByteBufferInput) input).readShorts(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Short.BYTES);
+            input.readFully(scratch.bytes, 0, count * Short.BYTES);
+            ((Buffer) scratch.shorts).clear();
+            scratch.shorts.get(array, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void readChars(DataInput input, char[] array, int off, int len) throws IOException {
+        if (input instanceof ByteBufferInput) {
+            ((ByteBufferInput) input).readChars(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Character.BYTES);
+            input.readFully(scratch.bytes, 0, count * Character.BYTES);
+            ((Buffer) scratch.chars).clear();
+            scratch.chars.get(array, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void readInts(DataInput input, int[] array, int off, int len) throws IOException {
+        if (input instanceof ByteBufferInput) {
+            ((ByteBufferInput) input).readInts(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Integer.BYTES);
+            input.readFully(scratch.bytes, 0, count * Integer.BYTES);
+            ((Buffer) scratch.ints).clear();
+            scratch.ints.get(array, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void readLongs(DataInput input, long[] array, int off, int len) throws IOException {
+        if (input instanceof ByteBufferInput) {
+            ((ByteBufferInput) input).readLongs(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Long.BYTES);
+            input.readFully(scratch.bytes, 0, count * Long.BYTES);
+            ((Buffer) scratch.longs).clear();
+            scratch.longs.get(array, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void readFloats(DataInput input, float[] array, int off, int len) throws IOException {
+        if (input instanceof ByteBufferInput) {
+            ((ByteBufferInput) input).readFloats(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Float.BYTES);
+            input.readFully(scratch.bytes, 0, count * Float.BYTES);
+            ((Buffer) scratch.floats).clear();
+            scratch.floats.get(array, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public static void readDoubles(DataInput input, double[] array, int off, int len) throws IOException {
+        if (input instanceof ByteBufferInput) {
+            ((ByteBufferInput) input).readDoubles(array, off, len);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE / Double.BYTES);
+            input.readFully(scratch.bytes, 0, count * Double.BYTES);
+            ((Buffer) scratch.doubles).clear();
+            scratch.doubles.get(array, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Per-thread chunk buffer with its typed views, so the views are only created once per thread.
+     */
+    private static final class Scratch {
+        final byte[] bytes = new byte[CHUNK_SIZE];
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN);
+        final ShortBuffer shorts = buffer.asShortBuffer();
+        final CharBuffer chars = buffer.asCharBuffer();
+        final IntBuffer ints = buffer.asIntBuffer();
+        final LongBuffer longs = buffer.asLongBuffer();
+        final FloatBuffer floats = buffer.asFloatBuffer();
+        final DoubleBuffer doubles = buffer.asDoubleBuffer();
+    }
+}
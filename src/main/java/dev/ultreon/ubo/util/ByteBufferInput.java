@@ -0,0 +1,318 @@
+package dev.ultreon.ubo.util;
+
+import dev.ultreon.ubo.DataTypeException;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link DataInput} reading directly from a {@link ByteBuffer}.
+ * <p>
+ * All reads are absolute gets relative to the input's own position, so the buffer is never modified. Multibyte values
+ * are always read in big-endian order, like {@link DataInputStream} does.
+ */
+public class ByteBufferInput implements DataInput {
+    private final ByteBuffer buffer;
+    private final byte[] array;
+    private final int arrayOffset;
+    private final int limit;
+    private int pos;
+
+    /**
+     * Creates an input reading the remaining bytes of the given buffer.
+     *
+     * @param buffer the buffer to read from, its position and limit are left untouched.
+     */
+    public ByteBufferInput(ByteBuffer buffer) {
+        this(buffer, buffer.position(), buffer.limit());
+    }
+
+    /**
+     * Creates an input reading a range of the given buffer.
+     *
+     * @param buffer   the buffer to read from, its position and limit are ignored and left untouched.
+     * @param position the absolute position of the first byte to read.
+     * @param limit    the absolute position after the last byte to read.
+     */
+    public ByteBufferInput(ByteBuffer buffer, int position, int limit) {
+        if (position < 0 || position > limit || limit > buffer.capacity())
+            throw new IllegalArgumentException("Invalid range " + position + " to " + limit + " for capacity " + buffer.capacity());
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.array = buffer.hasArray() ? buffer.array() : null;
+        this.arrayOffset = buffer.hasArray() ? buffer.arrayOffset() : 0;
+        this.pos = position;
+        this.limit = limit;
+    }
+
+    /**
+     * @return the absolute position of the next byte to read.
+     */
+    public int position() {
+        return pos;
+    }
+
+    /**
+     * @param position the absolute position of the next byte to read.
+     */
+    public void position(int position) {
+        if (position < 0 || position > limit)
+            throw new IllegalArgumentException("Position out of bounds: " + position);
+        this.pos = position;
+    }
+
+    public int remaining() {
+        return limit - pos;
+    }
+
+    /**
+     * @return the underlying buffer, in big-endian order.
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    private int advance(int count) throws EOFException {
+        int at = pos;
+        if (count < 0 || count > limit - at)
+            throw new EOFException("Tried to read " + count + " bytes, only " + (limit - at) + " remaining");
+        pos = at + count;
+        return at;
+    }
+
+    private ByteBuffer viewAt(int at) {
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        ((Buffer) view).position(at);
+        return view;
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        int at = advance(len);
+        viewAt(at).get(b, off, len);
+    }
+
+    @Override
+    public int skipBytes(int n) {
+        int skipped = Math.max(0, Math.min(n, limit - pos));
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return buffer.get(advance(1)) != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return buffer.get(advance(1));
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return buffer.get(advance(1)) & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return buffer.getShort(advance(2));
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return buffer.getShort(advance(2)) & 0xFFFF;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return buffer.getChar(advance(2));
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return buffer.getInt(advance(4));
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return buffer.getLong(advance(8));
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return buffer.getFloat(advance(4));
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return buffer.getDouble(advance(8));
+    }
+
+    @Override
+    @Deprecated
+    public String readLine() {
+        if (pos >= limit) return null;
+
+        StringBuilder builder = new StringBuilder();
+        while (pos < limit) {
+            int c = buffer.get(pos++) & 0xFF;
+            if (c == '\n') break;
+            if (c == '\r') {
+                if (pos < limit && buffer.get(pos) == '\n') pos++;
+                break;
+            }
+            builder.append((char) c);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Reads {@code len} bytes of UTF-8, decoding them straight from the backing array if the buffer has one.
+     */
+    public String readUtf8(int len) throws IOException {
+        int at = advance(len);
+        if (array != null) return StringCodec.decode(array, arrayOffset + at, len);
+
+        byte[] bytes = new byte[len];
+        viewAt(at).get(bytes);
+        return StringCodec.decode(bytes, 0, len);
+    }
+
+    /**
+     * Reads a map key written by {@link java.io.DataOutput#writeUTF(String)} through the {@link KeyInterner}, matching
+     * it straight from the backing array if the buffer has one.
+     */
+    public String readKey() throws IOException {
+        int len = readUnsignedShort();
+        int at = advance(len);
+        if (array != null) return KeyInterner.intern(array, arrayOffset + at, len);
+
+        byte[] bytes = new byte[len];
+        viewAt(at).get(bytes);
+        return KeyInterner.intern(bytes, 0, len);
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        int start = pos;
+        int len = readUnsignedShort();
+        int at = advance(len);
+        for (int i = at, end = at + len; i < end; i++) {
+            if (buffer.get(i) < 0) {
+                // Not plain ASCII, leave the multibyte forms to the standard decoder.
+                pos = start;
+                return DataInputStream.readUTF(this);
+            }
+        }
+
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + at, len, StandardCharsets.ISO_8859_1);
+        }
+
+        byte[] bytes = new byte[len];
+        viewAt(at).get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    public void readShorts(short[] array, int off, int len) throws IOException {
+        int at = advance(len * Short.BYTES);
+        viewAt(at).asShortBuffer().get(array, off, len);
+    }
+
+    public void readChars(char[] array, int off, int len) throws IOException {
+        int at = advance(len * Character.BYTES);
+        viewAt(at).asCharBuffer().get(array, off, len);
+    }
+
+    public void readInts(int[] array, int off, int len) throws IOException {
+        int at = advance(len * Integer.BYTES);
+        viewAt(at).asIntBuffer().get(array, off, len);
+    }
+
+    public void readLongs(long[] array, int off, int len) throws IOException {
+        int at = advance(len * Long.BYTES);
+        viewAt(at).asLongBuffer().get(array, off, len);
+    }
+
+    public void readFloats(float[] array, int off, int len) throws IOException {
+        int at = advance(len * Float.BYTES);
+        viewAt(at).asFloatBuffer().get(array, off, len);
+    }
+
+    public void readDoubles(double[] array, int off, int len) throws IOException {
+        int at = advance(len * Double.BYTES);
+        viewAt(at).asDoubleBuffer().get(array, off, len);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint, like {@link UboInput#readVarInt(DataInput)} without a call per byte.
+     */
+    public int readVarInt() throws IOException {
+        if (array != null && limit - pos >= 5) {
+            // Five bytes are always there, so no bounds checks per byte.
+            int at = arrayOffset + pos;
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = array[at++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    pos = at - arrayOffset;
+                    return value;
+                }
+            }
+            throw new DataTypeException("Varint is too long");
+        }
+
+        int at = pos;
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (at >= limit) throw new EOFException("Tried to read past the end of a varint");
+            int b = buffer.get(at++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                pos = at;
+                return value;
+            }
+        }
+        throw new DataTypeException("Varint is too long");
+    }
+
+    public long readVarLong() throws IOException {
+        if (array != null && limit - pos >= 10) {
+            int at = arrayOffset + pos;
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = array[at++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    pos = at - arrayOffset;
+                    return value;
+                }
+            }
+            throw new DataTypeException("Varint is too long");
+        }
+
+        int at = pos;
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            if (at >= limit) throw new EOFException("Tried to read past the end of a varint");
+            int b = buffer.get(at++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                pos = at;
+                return value;
+            }
+        }
+        throw new DataTypeException("Varint is too long");
+    }
+}
@@ -0,0 +1,352 @@
+package dev.ultreon.ubo.util;
+
+import java.io.DataOutput;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link DataOutput} writing directly into a {@link ByteBuffer}.
+ * <p>
+ * Without a channel the buffer grows as needed and the written bytes can be taken out with {@link #toByteBuffer()}
+ * or {@link #toByteArray()}. With a channel the buffer is flushed to the channel whenever it is full, so a single
+ * (preferably direct) buffer is reused for the whole write. Multibyte values are always written in big-endian order,
+ * like {@link java.io.DataOutputStream} does.
+ */
+public class ByteBufferOutput implements DataOutput, Flushable {
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private long flushed;
+
+    /**
+     * Creates a growable output backed by a heap buffer.
+     *
+     * @param initialCapacity the initial capacity of the buffer.
+     */
+    public ByteBufferOutput(int initialCapacity) {
+        this(ByteBuffer.allocate(initialCapacity));
+    }
+
+    /**
+     * Creates a growable output starting with the given buffer. When it runs out of space, a new buffer of the same
+     * kind (heap or direct) is allocated.
+     *
+     * @param buffer the buffer to start writing into, at its current position.
+     */
+    public ByteBufferOutput(ByteBuffer buffer) {
+        this.channel = null;
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Creates an output that flushes the given buffer into the channel every time it is full.
+     *
+     * @param channel the channel to write to.
+     * @param buffer  the buffer to use for writing, it is cleared first.
+     */
+    public ByteBufferOutput(WritableByteChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        ((Buffer) this.buffer).clear();
+    }
+
+    /**
+     * @return the total amount of bytes written so far, including flushed bytes.
+     */
+    public long written() {
+        return flushed + buffer.position();
+    }
+
+    /**
+     * @return a buffer holding the written bytes, from position zero up to its limit. Shares content with this output.
+     * @throws IllegalStateException if this output writes to a channel.
+     */
+    public ByteBuffer toByteBuffer() {
+        if (channel != null) throw new IllegalStateException("Output is written to a channel");
+        ByteBuffer result = buffer.duplicate();
+        ((Buffer) result).flip();
+        return result;
+    }
+
+    /**
+     * @return a copy of the written bytes.
+     * @throws IllegalStateException if this output writes to a channel.
+     */
+    public byte[] toByteArray() {
+        ByteBuffer result = toByteBuffer();
+        byte[] bytes = new byte[result.remaining()];
+        result.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Overwrites an already written int, used to fill in lengths and offsets after the data they describe.
+     *
+     * @param position the absolute position of the int, as returned by {@link #written()} before writing it.
+     * @param value    the value to write.
+     * @throws IllegalStateException if this output writes to a channel.
+     */
+    public void putInt(int position, int value) {
+        if (channel != null) throw new IllegalStateException("Output is written to a channel");
+        if (position < 0 || position > buffer.position() - Integer.BYTES)
+            throw new IndexOutOfBoundsException("Position not written yet: " + position);
+        buffer.putInt(position, value);
+    }
+
+    /**
+     * Overwrites an already written byte.
+     *
+     * @param position the absolute position of the byte, as returned by {@link #written()} before writing it.
+     * @param value    the value to write.
+     * @throws IllegalStateException if this output writes to a channel.
+     */
+    public void putByte(int position, int value) {
+        if (channel != null) throw new IllegalStateException("Output is written to a channel");
+        if (position < 0 || position >= buffer.position())
+            throw new IndexOutOfBoundsException("Position not written yet: " + position);
+        buffer.put(position, (byte) value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (channel == null) return;
+
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            flushed += channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+
+    private void ensure(int count) throws IOException {
+        if (buffer.remaining() >= count) return;
+
+        if (channel != null) {
+            flush();
+            if (buffer.remaining() >= count) return;
+        }
+
+        long required = (long) buffer.position() + count;
+        if (required > Integer.MAX_VALUE - 8) throw new OutOfMemoryError("Required buffer size too large: " + required);
+
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, (long) buffer.capacity() << 1));
+        ByteBuffer grown = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        ((Buffer) buffer).flip();
+        grown.put(buffer);
+        buffer = grown.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Reserves space for up to {@code count} elements of {@code size} bytes, flushing if needed.
+     *
+     * @return the amount of elements that fit, at least one.
+     */
+    private int reserve(int count, int size) throws IOException {
+        if (buffer.remaining() < size) ensure(channel != null ? size : (int) Math.min(Integer.MAX_VALUE, (long) count * size));
+        return Math.min(count, buffer.remaining() / size);
+    }
+
+    private void skip(int count) {
+        ((Buffer) buffer).position(buffer.position() + count);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensure(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (channel != null && len > buffer.remaining()) {
+            flush();
+            if (len > buffer.remaining()) {
+                ByteBuffer wrapped = ByteBuffer.wrap(b, off, len);
+                while (wrapped.hasRemaining()) {
+                    flushed += channel.write(wrapped);
+                }
+                return;
+            }
+        }
+
+        ensure(len);
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) throws IOException {
+        ensure(1);
+        buffer.put((byte) (v ? 1 : 0));
+    }
+
+    @Override
+    public void writeByte(int v) throws IOException {
+        ensure(1);
+        buffer.put((byte) v);
+    }
+
+    @Override
+    public void writeShort(int v) throws IOException {
+        ensure(2);
+        buffer.putShort((short) v);
+    }
+
+    @Override
+    public void writeChar(int v) throws IOException {
+        ensure(2);
+        buffer.putChar((char) v);
+    }
+
+    @Override
+    public void writeInt(int v) throws IOException {
+        ensure(4);
+        buffer.putInt(v);
+    }
+
+    @Override
+    public void writeLong(long v) throws IOException {
+        ensure(8);
+        buffer.putLong(v);
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        writeInt(Float.floatToIntBits(v));
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    @Override
+    public void writeBytes(String s) throws IOException {
+        for (int i = 0, len = s.length(); i < len; i++) {
+            writeByte(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeChars(String s) throws IOException {
+        for (int i = 0, len = s.length(); i < len; i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        int len = s.length();
+        int utfLen = Utf8.modifiedLength(s);
+        if (utfLen > 0xFFFF) throw new UTFDataFormatException("Encoded string too long: " + utfLen + " bytes");
+
+        writeShort(utfLen);
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            ensure(3);
+            if (c != 0 && c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    public void writeShorts(short[] array, int off, int len) throws IOException {
+        while (len > 0) {
+            int count = reserve(len, Short.BYTES);
+            buffer.asShortBuffer().put(array, off, count);
+            skip(count * Short.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public void writeChars(char[] array, int off, int len) throws IOException {
+        while (len > 0) {
+            int count = reserve(len, Character.BYTES);
+            buffer.asCharBuffer().put(array, off, count);
+            skip(count * Character.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public void writeInts(int[] array, int off, int len) throws IOException {
+        while (len > 0) {
+            int count = reserve(len, Integer.BYTES);
+            buffer.asIntBuffer().put(array, off, count);
+            skip(count * Integer.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public void writeLongs(long[] array, int off, int len) throws IOException {
+        while (len > 0) {
+            int count = reserve(len, Long.BYTES);
+            buffer.asLongBuffer().put(array, off, count);
+            skip(count * Long.BYTES);
+            off += count;
+            len -= count;
+        }
+    }
+
+    public void writeFloats(float[] array, int off, int len) throws IOException {
+        while (len > 0) {
+            int count = reserve(len, Float.BYTES);
+            // Not through the float view, it keeps NaN payloads while DataOutput.writeFloat collapses them.
+            for (int i = 0; i < count; i++) {
+                buffer.putInt(Float.floatToIntBits(array[off + i]));
+            }
+            off += count;
+            len -= count;
+        }
+    }
+
+    public void writeDoubles(double[] array, int off, int len) throws IOException {
+        while (len > 0) {
+            int count = reserve(len, Double.BYTES);
+            // Not through the double view, it keeps NaN payloads while DataOutput.writeDouble collapses them.
+            for (int i = 0; i < count; i++) {
+                buffer.putLong(Double.doubleToLongBits(array[off + i]));
+            }
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint, like {@link UboOutput#writeVarInt(DataOutput, int)} without a call per byte.
+     */
+    public void writeVarInt(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public void writeVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
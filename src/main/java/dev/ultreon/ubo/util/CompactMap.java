@@ -0,0 +1,547 @@
+package dev.ultreon.ubo.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Map with string keys, storing only an array of values per map and sharing the keys between maps as a shape.
+ * <p>
+ * A shape holds the keys in order of insertion. Adding a key moves the map to the child shape for that key, so maps
+ * that got the same keys in the same order share one shape, like the hidden classes of JavaScript engines. Removing a
+ * key, or adding more than {@value #MAX_SHARED} keys, moves the map to a shape of its own that it changes in place.
+ * Removing moves the last entry into the removed one's place.
+ * <p>
+ * Shared shapes are never freed, so there are at most {@value #MAX_SHAPES} of them. Once that many exist, maps that
+ * need a shape that doesn't exist yet get a shape of their own instead.
+ * <p>
+ * Shapes with up to {@value #THRESHOLD} keys look up keys by scanning them, larger ones through an open-addressing table
+ * of key indices. Lookups through a {@link Key} remember the index of the key in the last shape it was looked up in.
+ * Null keys aren't permitted, null values are.
+ */
+public final class CompactMap<V> extends AbstractMap<String, V> {
+    static final int THRESHOLD = 8;
+    static final int MAX_SHARED = 64;
+    static final int MAX_SHAPES = 16384;
+
+    private static final AtomicInteger SHAPES = new AtomicInteger(1);
+    private static final Shape EMPTY = new Shape(new String[0], 0, null, true);
+
+    private Shape shape = EMPTY;
+    private Object[] values;
+    private int modCount;
+
+    public CompactMap() {
+        this(4);
+    }
+
+    public CompactMap(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("Negative capacity: " + capacity);
+        values = new Object[capacity];
+    }
+
+    public CompactMap(Map<String, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    /**
+     * @return whether both maps have the same keys in the same order, which is cheap for maps sharing a shape.
+     */
+    public boolean sameKeys(CompactMap<?> other) {
+        Shape a = shape;
+        Shape b = other.shape;
+        if (a == b) return true;
+        if (a.size != b.size) return false;
+        for (int i = 0; i < a.size; i++) {
+            if (!a.keys[i].equals(b.keys[i])) return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Key key) {
+        int index = key.indexIn(shape);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    @Override
+    public int size() {
+        return shape.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return shape.size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return shape.indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int i = 0; i < shape.size; i++) {
+            if (Objects.equals(values[i], value)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int index = shape.indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(String key, V value) {
+        Objects.requireNonNull(key, "key");
+        // A shape with a transition for the key doesn't have the key itself, no need to look for it.
+        Shape child = shape.shared ? shape.transition(key) : null;
+        if (child == null) {
+            int index = shape.indexOf(key);
+            if (index >= 0) {
+                V old = (V) values[index];
+                values[index] = value;
+                return old;
+            }
+        }
+
+        int size = shape.size;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        if (child != null) shape = child;
+        else if (shape.shared) shape = shape.with(key);
+        else shape.append(key);
+        values[size] = value;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int index = shape.indexOf(key);
+        if (index < 0) return null;
+
+        V old = (V) values[index];
+        removeAt(index);
+        return old;
+    }
+
+    private void removeAt(int index) {
+        if (shape.shared) shape = shape.copy();
+
+        int last = shape.size - 1;
+        shape.removeAt(index);
+        values[index] = values[last];
+        values[last] = null;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, 0, shape.size, null);
+        shape = EMPTY;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new Iter<Entry<String, V>>() {
+                    @Override
+                    Entry<String, V> get(int index) {
+                        return new IndexEntry(index);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return shape.size;
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iter<String>() {
+                    @Override
+                    String get(int index) {
+                        return shape.keys[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return shape.size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                int index = shape.indexOf(o);
+                if (index < 0) return false;
+                removeAt(index);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<V> iterator() {
+                return new Iter<V>() {
+                    @Override
+                    V get(int index) {
+                        return (V) values[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return shape.size;
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * A key that remembers where it was found, for looking up the same key in many maps of the same shape.
+     * Keys are safe to share between threads.
+     */
+    public static final class Key {
+        private final String name;
+        private Cached cached = new Cached(EMPTY, -1);
+
+        public Key(String name) {
+            this.name = Objects.requireNonNull(name, "name");
+        }
+
+        public String name() {
+            return name;
+        }
+
+        int indexIn(Shape shape) {
+            Cached cached = this.cached;
+            if (cached.shape == shape) return cached.index;
+
+            int index = shape.indexOf(name);
+            if (shape.shared) this.cached = new Cached(shape, index);
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+        private static final class Cached {
+            final Shape shape;
+            final int index;
+
+            Cached(Shape shape, int index) {
+                this.shape = shape;
+                this.index = index;
+            }
+        }
+    }
+
+    /**
+     * Keys of a map in order. Shared shapes never change, a map that has a shape of its own changes it in place.
+     */
+    static final class Shape {
+        final boolean shared;
+        String[] keys;
+        int size;
+
+        /**
+         * Key index plus one for every slot, {@code 0} for free slots, or {@code null} while there are few keys.
+         */
+        int[] table;
+
+        /**
+         * The only child shape, a concurrent map of child shapes by added key, or {@code null} without children, so
+         * lookups don't need the lock.
+         */
+        private volatile Object transitions;
+
+        Shape(String[] keys, int size, int[] table, boolean shared) {
+            this.keys = keys;
+            this.size = size;
+            this.table = table;
+            this.shared = shared;
+        }
+
+        private static int hash(String key) {
+            int h = key.hashCode();
+            return h ^ h >>> 16;
+        }
+
+        private static int tableSize(int capacity) {
+            // Keep the table at most half full.
+            return Integer.highestOneBit(Math.max(capacity, THRESHOLD) * 2 - 1) << 1;
+        }
+
+        int indexOf(Object key) {
+            if (!(key instanceof String)) return -1;
+
+            if (table == null) {
+                for (int i = 0; i < size; i++) {
+                    String candidate = keys[i];
+                    if (candidate == key || candidate.equals(key)) return i;
+                }
+                return -1;
+            }
+
+            int mask = table.length - 1;
+            for (int slot = hash((String) key) & mask; ; slot = slot + 1 & mask) {
+                int entry = table[slot];
+                if (entry == 0) return -1;
+                String candidate = keys[entry - 1];
+                if (candidate == key || candidate.equals(key)) return entry - 1;
+            }
+        }
+
+        /**
+         * @return the shared child shape with the key added, or a shape of its own beyond {@value #MAX_SHARED} keys or
+         * once there are {@value #MAX_SHAPES} shared shapes.
+         */
+        Shape with(String key) {
+            Shape child = transition(key);
+            if (child != null) return child;
+
+            if (size >= MAX_SHARED) return own(key);
+
+            synchronized (this) {
+                child = transition(key);
+                if (child != null) return child;
+
+                int count = SHAPES.get();
+                do {
+                    if (count >= MAX_SHAPES) return own(key);
+                } while (!SHAPES.compareAndSet(count, count + 1));
+
+                child = new Shape(Arrays.copyOf(keys, size + 1), size + 1, null, true);
+                child.keys[size] = key;
+                if (child.size > THRESHOLD) child.rehash(tableSize(child.size));
+
+                Object current = transitions;
+                if (current == null) {
+                    transitions = child;
+                } else if (current instanceof Shape) {
+                    Map<String, Shape> children = new ConcurrentHashMap<>();
+                    children.put(((Shape) current).keys[size], (Shape) current);
+                    children.put(key, child);
+                    transitions = children;
+                } else {
+                    children(current).put(key, child);
+                }
+                return child;
+            }
+        }
+
+        /**
+         * @return the shared child shape with the key added, or {@code null} if there is none yet.
+         */
+        Shape transition(String key) {
+            Object current = transitions;
+            if (current instanceof Shape) {
+                // The child's last key is the one it added.
+                Shape child = (Shape) current;
+                String added = child.keys[size];
+                return added == key || added.equals(key) ? child : null;
+            }
+            return current == null ? null : children(current).get(key);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Shape> children(Object transitions) {
+            return (Map<String, Shape>) transitions;
+        }
+
+        private Shape own(String key) {
+            Shape own = copy();
+            own.append(key);
+            return own;
+        }
+
+        /**
+         * @return an unshared copy of this shape.
+         */
+        Shape copy() {
+            return new Shape(Arrays.copyOf(keys, Math.max(4, size + (size >> 1))), size, table == null ? null : table.clone(), false);
+        }
+
+        void append(String key) {
+            if (size == keys.length) keys = Arrays.copyOf(keys, size + (size >> 1) + 1);
+            keys[size++] = key;
+
+            if (table != null && size * 2 > table.length) rehash(table.length * 2);
+            else if (table != null) insert(size - 1);
+            else if (size > THRESHOLD) rehash(tableSize(size));
+        }
+
+        void removeAt(int index) {
+            int last = size - 1;
+            if (table != null) {
+                delete(slotOf(index));
+                if (index != last) table[slotOf(last)] = index + 1;
+            }
+
+            keys[index] = keys[last];
+            keys[last] = null;
+            size--;
+        }
+
+        private int slotOf(int index) {
+            int mask = table.length - 1;
+            int slot = hash(keys[index]) & mask;
+            while (table[slot] != index + 1) {
+                slot = slot + 1 & mask;
+            }
+            return slot;
+        }
+
+        private void insert(int index) {
+            int mask = table.length - 1;
+            int slot = hash(keys[index]) & mask;
+            while (table[slot] != 0) {
+                slot = slot + 1 & mask;
+            }
+            table[slot] = index + 1;
+        }
+
+        private void rehash(int length) {
+            table = new int[length];
+            for (int i = 0; i < size; i++) {
+                insert(i);
+            }
+        }
+
+        /**
+         * Frees the slot, moving back the keys that were placed after it because it was in use.
+         */
+        private void delete(int hole) {
+            int mask = table.length - 1;
+            for (int slot = hole + 1 & mask; table[slot] != 0; slot = slot + 1 & mask) {
+                int ideal = hash(keys[table[slot] - 1]) & mask;
+                if ((slot - ideal & mask) >= (slot - hole & mask)) {
+                    table[hole] = table[slot];
+                    hole = slot;
+                }
+            }
+            table[hole] = 0;
+        }
+    }
+
+    private abstract class Iter<E> implements Iterator<E> {
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        abstract E get(int index);
+
+        @Override
+        public boolean hasNext() {
+            return next < shape.size;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (next >= shape.size) throw new NoSuchElementException();
+            last = next++;
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+
+            // The last entry moves into the removed one's place, visit it next.
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class IndexEntry implements Entry<String, V> {
+        private final int index;
+
+        IndexEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return shape.keys[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) values[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            V old = (V) values[index];
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
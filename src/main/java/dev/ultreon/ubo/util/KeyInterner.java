@@ -0,0 +1,137 @@
+package dev.ultreon.ubo.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A bounded symbol table of map keys, so every occurrence of a key read resolves to the same {@link String} instance.
+ * <p>
+ * The table is direct-mapped: a key hashes to a single slot, and replaces whatever key was there before. It never
+ * holds more than {@value #SIZE} keys, and keys longer than {@value #MAX_LENGTH} bytes aren't interned at all. Keys
+ * are matched against their raw bytes, so a key that is already in the table is read without allocating.
+ * <p>
+ * Lookups don't lock. Slots hold the immutable keys themselves, so threads racing on a slot at worst replace each
+ * other's key and decode it once more.
+ */
+public final class KeyInterner {
+    static final int SIZE = 4096;
+    static final int MAX_LENGTH = 64;
+
+    private static final String[] TABLE = new String[SIZE];
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[MAX_LENGTH]);
+
+    private KeyInterner() {
+        throw new UnsupportedOperationException("Cannot instantiate KeyInterner");
+    }
+
+    /**
+     * Reads a key written by {@link java.io.DataOutput#writeUTF(String)}.
+     */
+    public static String readUTF(DataInput input) throws IOException {
+        if (input instanceof UboInput) input = ((UboInput) input).source();
+        if (input instanceof ByteBufferInput) return ((ByteBufferInput) input).readKey();
+
+        int len = input.readUnsignedShort();
+        byte[] bytes = len > MAX_LENGTH ? new byte[len] : SCRATCH.get();
+        input.readFully(bytes, 0, len);
+        return intern(bytes, 0, len);
+    }
+
+    /**
+     * @param bytes the key in the modified UTF-8 of {@link java.io.DataOutput#writeUTF(String)}, without the length.
+     * @return the interned key.
+     * @throws java.io.UTFDataFormatException when the bytes aren't valid modified UTF-8.
+     */
+    public static String intern(byte[] bytes, int off, int len) throws IOException {
+        if (len > MAX_LENGTH) return decode(bytes, off, len);
+
+        int hash = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+
+        int slot = slot(hash);
+        String key = TABLE[slot];
+        if (key != null && matches(key, bytes, off, len)) return key;
+
+        key = decode(bytes, off, len);
+        TABLE[slot] = key;
+        return key;
+    }
+
+    /**
+     * @return the interned key of the characters, the same instance as the binary key with the same characters.
+     */
+    public static String intern(CharSequence chars) {
+        int len = chars.length();
+        if (len > MAX_LENGTH) return chars.toString();
+
+        // Hashes the modified UTF-8 of the characters, so both kinds of keys end up in the same slot.
+        int hash = 0;
+        for (int i = 0; i < len; i++) {
+            char c = chars.charAt(i);
+            if (c > 0 && c < 0x80) {
+                hash = 31 * hash + c;
+            } else if (c < 0x800) {
+                hash = 31 * hash + (byte) (0xC0 | c >> 6);
+                hash = 31 * hash + (byte) (0x80 | c & 0x3F);
+            } else {
+                hash = 31 * hash + (byte) (0xE0 | c >> 12);
+                hash = 31 * hash + (byte) (0x80 | c >> 6 & 0x3F);
+                hash = 31 * hash + (byte) (0x80 | c & 0x3F);
+            }
+        }
+
+        int slot = slot(hash);
+        String key = TABLE[slot];
+        if (key != null && key.contentEquals(chars)) return key;
+
+        key = chars.toString();
+        TABLE[slot] = key;
+        return key;
+    }
+
+    private static int slot(int hash) {
+        return (hash ^ hash >>> 16) & SIZE - 1;
+    }
+
+    /**
+     * @return whether the bytes are the modified UTF-8 of the key, compared without decoding them.
+     */
+    private static boolean matches(String key, byte[] bytes, int off, int len) {
+        int at = off;
+        int end = off + len;
+        for (int i = 0, count = key.length(); i < count; i++) {
+            char c = key.charAt(i);
+            if (c > 0 && c < 0x80) {
+                if (at == end || bytes[at++] != c) return false;
+            } else if (c < 0x800) {
+                if (end - at < 2) return false;
+                if (bytes[at++] != (byte) (0xC0 | c >> 6) || bytes[at++] != (byte) (0x80 | c & 0x3F)) return false;
+            } else {
+                if (end - at < 3) return false;
+                if (bytes[at++] != (byte) (0xE0 | c >> 12) || bytes[at++] != (byte) (0x80 | c >> 6 & 0x3F)
+                        || bytes[at++] != (byte) (0x80 | c & 0x3F)) return false;
+            }
+        }
+        return at == end;
+    }
+
+    private static String decode(byte[] bytes, int off, int len) throws IOException {
+        for (int i = off, end = off + len; i < end; i++) {
+            if (bytes[i] < 0) return decodeModified(bytes, off, len);
+        }
+        return new String(bytes, off, len, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String decodeModified(byte[] bytes, int off, int len) throws IOException {
+        byte[] utf = new byte[len + 2];
+        utf[0] = (byte) (len >>> 8);
+        utf[1] = (byte) len;
+        System.arraycopy(bytes, off, utf, 2, len);
+        return DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(utf)));
+    }
+}
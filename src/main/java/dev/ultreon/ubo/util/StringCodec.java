@@ -0,0 +1,163 @@
+package dev.ultreon.ubo.util;
+
+import dev.ultreon.ubo.DataTypeException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec of string values: a length prefix holding the amount of UTF-8 bytes, then the bytes.
+ * <p>
+ * The length is an unsigned short, so without flags strings are limited to {@value #LONG_LENGTH} bytes, like data
+ * written before longer strings were supported. With {@link dev.ultreon.ubo.DataFlags#LONG_STRINGS} lengths of
+ * {@value #LONG_LENGTH} bytes and more are written as {@value #LONG_LENGTH} followed by an int, with
+ * {@link dev.ultreon.ubo.DataFlags#VARINT} the length is a varint. Unpaired surrogates are written as {@code '?'}, like
+ * {@link String#getBytes(java.nio.charset.Charset)} does.
+ * <p>
+ * Strings are encoded in one pass into a per-thread scratch buffer, with a fast path for ASCII, and written and read
+ * in bulk. A {@link ByteBufferInput} is decoded straight from its backing array.
+ */
+public final class StringCodec {
+    static final int LONG_LENGTH = 0xFFFF;
+
+    /**
+     * Scratch buffers up to this size are kept per thread, larger strings use a buffer of their own.
+     */
+    private static final int MAX_SCRATCH = 1 << 16;
+    private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private StringCodec() {
+        throw new UnsupportedOperationException("Cannot instantiate StringCodec");
+    }
+
+    /**
+     * @throws DataTypeException when the string is too long for the output's flags, or to be encoded at all.
+     */
+    public static void write(DataOutput output, String value) throws IOException {
+        long max = 3L * value.length();
+        if (max > MAX_ARRAY) {
+            // Only strings of mostly multibyte characters come close, size those exactly.
+            max = Utf8.length(value);
+            if (max > MAX_ARRAY) throw new DataTypeException("String too long to encode: " + max + " bytes");
+        }
+
+        byte[] bytes = scratch((int) max);
+        int len = encode(value, bytes);
+        writeLength(output, len);
+        output.write(bytes, 0, len);
+    }
+
+    public static String read(DataInput input) throws IOException {
+        int len = readLength(input);
+        if (input instanceof ByteBufferInput) return ((ByteBufferInput) input).readUtf8(len);
+
+        byte[] bytes = scratch(len);
+        input.readFully(bytes, 0, len);
+        return decode(bytes, 0, len);
+    }
+
+    public static void skip(DataInput input) throws IOException {
+        BulkIo.skipFully(input, readLength(input));
+    }
+
+    /**
+     * @return the amount of bytes {@link #write(DataOutput, String)} writes without {@link dev.ultreon.ubo.DataFlags},
+     * for strings longer than {@value #LONG_LENGTH} bytes the amount written with
+     * {@link dev.ultreon.ubo.DataFlags#LONG_STRINGS}.
+     */
+    public static long sizeInBytes(String value) {
+        long len = Utf8.length(value);
+        return (len <= LONG_LENGTH ? 2L : 6L) + len;
+    }
+
+    private static byte[] scratch(int size) {
+        if (size > MAX_SCRATCH) return new byte[size];
+
+        byte[] bytes = SCRATCH.get();
+        if (bytes.length < size) {
+            bytes = new byte[Math.min(MAX_SCRATCH, Math.max(size, bytes.length * 2))];
+            SCRATCH.set(bytes);
+        }
+        return bytes;
+    }
+
+    private static void writeLength(DataOutput output, int len) throws IOException {
+        if (UboOutput.isVarint(output)) {
+            UboOutput.writeVarInt(output, len);
+        } else if (!UboOutput.isLongStrings(output)) {
+            if (len > LONG_LENGTH)
+                throw new DataTypeException("String too long: " + len + " bytes, longer strings need DataFlags.LONG_STRINGS or DataFlags.VARINT");
+            output.writeShort(len);
+        } else if (len < LONG_LENGTH) {
+            output.writeShort(len);
+        } else {
+            output.writeShort(LONG_LENGTH);
+            output.writeInt(len);
+        }
+    }
+
+    private static int readLength(DataInput input) throws IOException {
+        int len;
+        if (UboInput.isVarint(input)) {
+            len = UboInput.readVarInt(input);
+        } else {
+            len = input.readUnsignedShort();
+            if (len == LONG_LENGTH && UboInput.isLongStrings(input)) len = input.readInt();
+        }
+        if (len < 0) throw new DataTypeException("Invalid string length: " + len);
+        return len;
+    }
+
+    /**
+     * Encodes the string as UTF-8.
+     *
+     * @param bytes the destination, at least three times the length of the string.
+     * @return the amount of bytes written.
+     */
+    static int encode(String value, byte[] bytes) {
+        int len = value.length();
+        int i = 0;
+        while (i < len) {
+            char c = value.charAt(i);
+            if (c >= 0x80) break;
+            bytes[i++] = (byte) c;
+        }
+
+        int at = i;
+        for (; i < len; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[at++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[at++] = (byte) (0xC0 | c >> 6);
+                bytes[at++] = (byte) (0x80 | c & 0x3F);
+            } else if (!Character.isSurrogate(c)) {
+                bytes[at++] = (byte) (0xE0 | c >> 12);
+                bytes[at++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[at++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[at++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[at++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[at++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[at++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                bytes[at++] = '?';
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Decodes UTF-8, plain ASCII as Latin-1 which skips validating the bytes.
+     */
+    static String decode(byte[] bytes, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++) {
+            if (bytes[i] < 0) return new String(bytes, off, len, StandardCharsets.UTF_8);
+        }
+        return new String(bytes, off, len, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,298 @@
+package dev.ultreon.ubo.util;
+
+import dev.ultreon.ubo.DataFlags;
+import dev.ultreon.ubo.DataTypeException;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input for data written with {@link DataFlags}, passing everything through to another input.
+ * <p>
+ * The counterpart of {@link UboOutput}, the built-in types read their lengths and integers through the static helpers
+ * of this class.
+ */
+public class UboInput implements DataInput {
+    private final DataInput input;
+    private final int flags;
+    private List<String> keys;
+
+    public UboInput(DataInput input, int flags) {
+        this.input = input;
+        this.flags = flags;
+    }
+
+    public int flags() {
+        return flags;
+    }
+
+    /**
+     * @return the input this input passes through to.
+     */
+    DataInput source() {
+        return input;
+    }
+
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * @return whether the input reads varints.
+     */
+    public static boolean isVarint(DataInput input) {
+        return input instanceof UboInput && ((UboInput) input).hasFlag(DataFlags.VARINT);
+    }
+
+    /**
+     * @return whether lists of maps are read with {@link DataFlags#COLUMNAR}.
+     */
+    public static boolean isColumnar(DataInput input) {
+        return input instanceof UboInput && ((UboInput) input).hasFlag(DataFlags.COLUMNAR);
+    }
+
+    /**
+     * @return whether strings of 65535 bytes and more are read with {@link DataFlags#LONG_STRINGS}.
+     */
+    public static boolean isLongStrings(DataInput input) {
+        return input instanceof UboInput && ((UboInput) input).hasFlag(DataFlags.LONG_STRINGS);
+    }
+
+    /**
+     * @return whether the input reads map keys through a key dictionary.
+     */
+    public static boolean isKeyDictionary(DataInput input) {
+        return input instanceof UboInput && ((UboInput) input).hasFlag(DataFlags.KEY_DICTIONARY);
+    }
+
+    /**
+     * Reads a map key written by {@link UboOutput#writeKey(java.io.DataOutput, String)}. Keys are interned through the
+     * {@link KeyInterner}, so the same key is usually the same instance.
+     *
+     * @throws DataTypeException when the key references a key that wasn't read yet.
+     */
+    public static String readKey(DataInput input) throws IOException {
+        if (!isKeyDictionary(input)) return KeyInterner.readUTF(input);
+
+        UboInput ubo = (UboInput) input;
+        if (ubo.keys == null) ubo.keys = new ArrayList<>();
+        int ref = readVarInt(input);
+        if (ref == 0) {
+            String key = KeyInterner.readUTF(input);
+            ubo.keys.add(key);
+            return key;
+        }
+        if (ref < 0 || ref > ubo.keys.size()) throw new DataTypeException("Invalid key reference: " + (ref & 0xFFFFFFFFL));
+        return ubo.keys.get(ref - 1);
+    }
+
+    /**
+     * Skips a map key, keys that are new to the key dictionary are still read to keep it complete.
+     */
+    public static void skipKey(DataInput input) throws IOException {
+        if (isKeyDictionary(input)) readKey(input);
+        else BulkIo.skipFully(input, input.readUnsignedShort());
+    }
+
+    /**
+     * Reads a length or count written by {@link UboOutput#writeLength(java.io.DataOutput, int)}.
+     *
+     * @throws DataTypeException when the length is negative.
+     */
+    public static int readLength(DataInput input) throws IOException {
+        int length = isVarint(input) ? readVarInt(input) : input.readInt();
+        if (length < 0) throw new DataTypeException("Invalid length: " + (length & 0xFFFFFFFFL));
+        return length;
+    }
+
+    public static short readShort(DataInput input) throws IOException {
+        if (!isVarint(input)) return input.readShort();
+
+        int zigzag = readVarInt(input);
+        return (short) (zigzag >>> 1 ^ -(zigzag & 1));
+    }
+
+    public static int readInt(DataInput input) throws IOException {
+        if (!isVarint(input)) return input.readInt();
+
+        int zigzag = readVarInt(input);
+        return zigzag >>> 1 ^ -(zigzag & 1);
+    }
+
+    public static long readLong(DataInput input) throws IOException {
+        if (!isVarint(input)) return input.readLong();
+
+        long zigzag = readVarLong(input);
+        return zigzag >>> 1 ^ -(zigzag & 1);
+    }
+
+    public static void readInts(DataInput input, int[] array, int off, int len) throws IOException {
+        if (!isVarint(input)) {
+            BulkIo.readInts(input, array, off, len);
+            return;
+        }
+
+        DataInput source = ((UboInput) input).input;
+        if (source instanceof ByteBufferInput) {
+            ByteBufferInput buffer = (ByteBufferInput) source;
+            for (int i = off, end = off + len; i < end; i++) {
+                int zigzag = buffer.readVarInt();
+                array[i] = zigzag >>> 1 ^ -(zigzag & 1);
+            }
+            return;
+        }
+
+        for (int i = off, end = off + len; i < end; i++) {
+            int zigzag = readVarInt(source);
+            array[i] = zigzag >>> 1 ^ -(zigzag & 1);
+        }
+    }
+
+    public static void readLongs(DataInput input, long[] array, int off, int len) throws IOException {
+        if (!isVarint(input)) {
+            BulkIo.readLongs(input, array, off, len);
+            return;
+        }
+
+        DataInput source = ((UboInput) input).input;
+        if (source instanceof ByteBufferInput) {
+            ByteBufferInput buffer = (ByteBufferInput) source;
+            for (int i = off, end = off + len; i < end; i++) {
+                long zigzag = buffer.readVarLong();
+                array[i] = zigzag >>> 1 ^ -(zigzag & 1);
+            }
+            return;
+        }
+
+        for (int i = off, end = off + len; i < end; i++) {
+            long zigzag = readVarLong(source);
+            array[i] = zigzag >>> 1 ^ -(zigzag & 1);
+        }
+    }
+
+    /**
+     * Skips {@code count} ints or longs written by {@link #readInts} or {@link #readLongs}.
+     *
+     * @param width the fixed width of the values when not written as varints.
+     */
+    public static void skipValues(DataInput input, long count, int width) throws IOException {
+        if (!isVarint(input)) {
+            BulkIo.skipFully(input, count * width);
+            return;
+        }
+
+        for (long i = 0; i < count; i++) {
+            readVarLong(input);
+        }
+    }
+
+    /**
+     * @throws DataTypeException when the varint is longer than five bytes.
+     */
+    public static int readVarInt(DataInput input) throws IOException {
+        if (input instanceof UboInput) input = ((UboInput) input).input;
+        if (input instanceof ByteBufferInput) return ((ByteBufferInput) input).readVarInt();
+
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new DataTypeException("Varint is too long");
+    }
+
+    /**
+     * @throws DataTypeException when the varint is longer than ten bytes.
+     */
+    public static long readVarLong(DataInput input) throws IOException {
+        if (input instanceof UboInput) input = ((UboInput) input).input;
+        if (input instanceof ByteBufferInput) return ((ByteBufferInput) input).readVarLong();
+
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = input.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new DataTypeException("Varint is too long");
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        input.readFully(b);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        input.readFully(b, off, len);
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        return input.skipBytes(n);
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return input.readBoolean();
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return input.readByte();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return input.readUnsignedByte();
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return input.readShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return input.readUnsignedShort();
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return input.readChar();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return input.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return input.readLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return input.readFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return input.readDouble();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public String readLine() throws IOException {
+        return input.readLine();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return input.readUTF();
+    }
+}
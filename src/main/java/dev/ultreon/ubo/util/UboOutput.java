@@ -0,0 +1,241 @@
+package dev.ultreon.ubo.util;
+
+import dev.ultreon.ubo.DataFlags;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Output for data written with {@link DataFlags}, passing everything through to another output.
+ * <p>
+ * The built-in types write their lengths and integers through the static helpers of this class, which pick the
+ * encoding from the flags of the output. On any other output they write the plain fixed-width encoding.
+ */
+public class UboOutput implements DataOutput {
+    private final DataOutput output;
+    private final int flags;
+    private Map<String, Integer> keys;
+
+    public UboOutput(DataOutput output, int flags) {
+        this.output = output;
+        this.flags = flags;
+    }
+
+    public int flags() {
+        return flags;
+    }
+
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * @return whether the output writes varints.
+     */
+    public static boolean isVarint(DataOutput output) {
+        return output instanceof UboOutput && ((UboOutput) output).hasFlag(DataFlags.VARINT);
+    }
+
+    /**
+     * @return whether lists of maps are written with {@link DataFlags#COLUMNAR}.
+     */
+    public static boolean isColumnar(DataOutput output) {
+        return output instanceof UboOutput && ((UboOutput) output).hasFlag(DataFlags.COLUMNAR);
+    }
+
+    /**
+     * @return whether strings of 65535 bytes and more are written with {@link DataFlags#LONG_STRINGS}.
+     */
+    public static boolean isLongStrings(DataOutput output) {
+        return output instanceof UboOutput && ((UboOutput) output).hasFlag(DataFlags.LONG_STRINGS);
+    }
+
+    /**
+     * Writes a map key. With the key dictionary enabled the first occurrence of a key is written as a {@code 0}
+     * varint followed by the key, later occurrences as a varint of the key's index plus one.
+     */
+    public static void writeKey(DataOutput output, String key) throws IOException {
+        if (!(output instanceof UboOutput) || !((UboOutput) output).hasFlag(DataFlags.KEY_DICTIONARY)) {
+            output.writeUTF(key);
+            return;
+        }
+
+        UboOutput ubo = (UboOutput) output;
+        if (ubo.keys == null) ubo.keys = new HashMap<>();
+        Integer index = ubo.keys.get(key);
+        if (index != null) {
+            writeVarInt(output, index + 1);
+            return;
+        }
+
+        writeVarInt(output, 0);
+        output.writeUTF(key);
+        ubo.keys.put(key, ubo.keys.size());
+    }
+
+    /**
+     * Writes a length or count, as an unsigned varint when enabled.
+     */
+    public static void writeLength(DataOutput output, int length) throws IOException {
+        if (isVarint(output)) writeVarInt(output, length);
+        else output.writeInt(length);
+    }
+
+    public static void writeShort(DataOutput output, short value) throws IOException {
+        if (isVarint(output)) writeVarInt(output, value << 1 ^ value >> 31);
+        else output.writeShort(value);
+    }
+
+    public static void writeInt(DataOutput output, int value) throws IOException {
+        if (isVarint(output)) writeVarInt(output, value << 1 ^ value >> 31);
+        else output.writeInt(value);
+    }
+
+    public static void writeLong(DataOutput output, long value) throws IOException {
+        if (isVarint(output)) writeVarLong(output, value << 1 ^ value >> 63);
+        else output.writeLong(value);
+    }
+
+    public static void writeInts(DataOutput output, int[] array, int off, int len) throws IOException {
+        if (!isVarint(output)) {
+            BulkIo.writeInts(output, array, off, len);
+            return;
+        }
+
+        DataOutput target = ((UboOutput) output).output;
+        if (target instanceof ByteBufferOutput) {
+            ByteBufferOutput buffer = (ByteBufferOutput) target;
+            for (int i = off, end = off + len; i < end; i++) {
+                buffer.writeVarInt(array[i] << 1 ^ array[i] >> 31);
+            }
+            return;
+        }
+
+        for (int i = off, end = off + len; i < end; i++) {
+            writeVarInt(target, array[i] << 1 ^ array[i] >> 31);
+        }
+    }
+
+    public static void writeLongs(DataOutput output, long[] array, int off, int len) throws IOException {
+        if (!isVarint(output)) {
+            BulkIo.writeLongs(output, array, off, len);
+            return;
+        }
+
+        DataOutput target = ((UboOutput) output).output;
+        if (target instanceof ByteBufferOutput) {
+            ByteBufferOutput buffer = (ByteBufferOutput) target;
+            for (int i = off, end = off + len; i < end; i++) {
+                buffer.writeVarLong(array[i] << 1 ^ array[i] >> 63);
+            }
+            return;
+        }
+
+        for (int i = off, end = off + len; i < end; i++) {
+            writeVarLong(target, array[i] << 1 ^ array[i] >> 63);
+        }
+    }
+
+    /**
+     * Writes the value as an unsigned LEB128 varint, seven bits per byte with the high bit set on all but the last.
+     */
+    public static void writeVarInt(DataOutput output, int value) throws IOException {
+        if (output instanceof UboOutput) output = ((UboOutput) output).output;
+        if (output instanceof ByteBufferOutput) {
+            ((ByteBufferOutput) output).writeVarInt(value);
+            return;
+        }
+
+        while ((value & ~0x7F) != 0) {
+            output.writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    public static void writeVarLong(DataOutput output, long value) throws IOException {
+        if (output instanceof UboOutput) output = ((UboOutput) output).output;
+        if (output instanceof ByteBufferOutput) {
+            ((ByteBufferOutput) output).writeVarLong(value);
+            return;
+        }
+
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        output.write(b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        output.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        output.write(b, off, len);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) throws IOException {
+        output.writeBoolean(v);
+    }
+
+    @Override
+    public void writeByte(int v) throws IOException {
+        output.writeByte(v);
+    }
+
+    @Override
+    public void writeShort(int v) throws IOException {
+        output.writeShort(v);
+    }
+
+    @Override
+    public void writeChar(int v) throws IOException {
+        output.writeChar(v);
+    }
+
+    @Override
+    public void writeInt(int v) throws IOException {
+        output.writeInt(v);
+    }
+
+    @Override
+    public void writeLong(long v) throws IOException {
+        output.writeLong(v);
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        output.writeFloat(v);
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        output.writeDouble(v);
+    }
+
+    @Override
+    public void writeBytes(String s) throws IOException {
+        output.writeBytes(s);
+    }
+
+    @Override
+    public void writeChars(String s) throws IOException {
+        output.writeChars(s);
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        output.writeUTF(s);
+    }
+}
@@ -0,0 +1,45 @@
+package dev.ultreon.ubo.util;
+
+/**
+ * Encoded lengths of strings, without encoding them.
+ */
+public final class Utf8 {
+    private Utf8() {
+        throw new UnsupportedOperationException("Cannot instantiate Utf8");
+    }
+
+    /**
+     * @return the amount of bytes {@link java.io.DataOutput#writeUTF(String)} writes after the length prefix.
+     */
+    public static int modifiedLength(String value) {
+        int len = value.length();
+        int utfLen = len;
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || c == 0) utfLen += c >= 0x800 ? 2 : 1;
+        }
+        return utfLen;
+    }
+
+    /**
+     * @return the amount of bytes of {@code value.getBytes(StandardCharsets.UTF_8)}, where unpaired surrogates become
+     * a single replacement byte.
+     */
+    public static long length(String value) {
+        int len = value.length();
+        long utfLen = len;
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) continue;
+            if (c < 0x800) {
+                utfLen++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                utfLen += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                utfLen += 2;
+            }
+        }
+        return utfLen;
+    }
+}
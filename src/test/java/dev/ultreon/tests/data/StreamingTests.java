@@ -0,0 +1,211 @@
+package dev.ultreon.tests.data;
+
+import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.DataTypeRegistry;
+import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.UboReader;
+import dev.ultreon.ubo.UboReader.Event;
+import dev.ultreon.ubo.UboWriter;
+import dev.ultreon.ubo.types.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+class StreamingTests {
+    private static byte[] encode(DataType<?> type) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataIo.write(type, output);
+        return output.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Events")
+    void events() throws IOException {
+        MapType map = new MapType();
+        map.putInt("int", 5);
+        map.put("list", new ListType<StringType>(new StringType("a"), new StringType("b")));
+        map.putLongArray("longs", new long[]{1, 2, 3});
+
+        try (UboReader reader = new UboReader(new ByteArrayInputStream(encode(map)))) {
+            Assertions.assertEquals(Event.START_MAP, reader.next());
+            Assertions.assertEquals(3, reader.length());
+
+            int keys = 0;
+            while (reader.next() == Event.KEY) {
+                keys++;
+                switch (reader.key()) {
+                    case "int":
+                        Assertions.assertEquals(DataTypes.INT, reader.typeId());
+                        Assertions.assertEquals(Event.VALUE, reader.next());
+                        Assertions.assertEquals(5, reader.readInt());
+                        break;
+                    case "list":
+                        Assertions.assertEquals(Event.START_LIST, reader.next());
+                        Assertions.assertEquals(DataTypes.STRING, reader.elementId());
+                        Assertions.assertEquals(2, reader.length());
+                        Assertions.assertEquals(Event.VALUE, reader.next());
+                        Assertions.assertEquals("a", reader.readString());
+                        Assertions.assertEquals(Event.VALUE, reader.next());
+                        Assertions.assertEquals("b", reader.readString());
+                        Assertions.assertEquals(Event.END, reader.next());
+                        break;
+                    case "longs":
+                        Assertions.assertEquals(Event.VALUE, reader.next());
+                        Assertions.assertEquals(3, reader.length());
+                        long[] longs = new long[8];
+                        Assertions.assertEquals(3, reader.readLongArrayInto(longs));
+                        Assertions.assertEquals(3, longs[2]);
+                        break;
+                    default:
+                        Assertions.fail("Unexpected key: " + reader.key());
+                }
+            }
+
+            Assertions.assertEquals(3, keys);
+            Assertions.assertEquals(Event.END, reader.event());
+            Assertions.assertEquals(Event.END_DOCUMENT, reader.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Skipping")
+    void skipping() throws IOException {
+        MapType map = Utils.createExampleMap();
+        map.putString("last", "Found");
+
+        try (UboReader reader = new UboReader(ByteBuffer.wrap(encode(map)))) {
+            Assertions.assertEquals(Event.START_MAP, reader.next());
+            String found = null;
+            while (reader.next() == Event.KEY) {
+                if (reader.key().equals("last")) {
+                    reader.next();
+                    found = reader.readString();
+                } else if (reader.key().equals("Map")) {
+                    Assertions.assertEquals(Event.START_MAP, reader.next());
+                    reader.skipValue();
+                    Assertions.assertEquals(Event.END, reader.event());
+                } else if (reader.typeId() == DataTypes.CHAR_ARRAY) {
+                    // Left unread, next() skips it.
+                    reader.next();
+                } else {
+                    reader.skipValue();
+                }
+            }
+
+            Assertions.assertEquals(Event.END, reader.event());
+            Assertions.assertEquals("Found", found);
+            Assertions.assertEquals(Event.END_DOCUMENT, reader.next());
+        }
+    }
+
+    @Test
+    @DisplayName("ReadValues")
+    void readValues() throws IOException {
+        MapType map = Utils.createExampleMap();
+
+        MapType read = new MapType();
+        try (UboReader reader = new UboReader(new ByteArrayInputStream(encode(map)))) {
+            reader.next();
+            while (reader.next() == Event.KEY) {
+                read.put(reader.key(), reader.readValue());
+            }
+        }
+
+        Assertions.assertEquals(map, read);
+
+        try (UboReader reader = new UboReader(new ByteArrayInputStream(encode(map)))) {
+            reader.next();
+            MapType whole = (MapType) reader.readValue();
+            Assertions.assertEquals(map, whole);
+        }
+    }
+
+    @Test
+    @DisplayName("RegistrySkip")
+    void registrySkip() throws IOException {
+        MapType map = Utils.createExampleMap();
+        map.putLongArray("huge", new long[1 << 18]);
+        ListType<MapType> entities = new ListType<>();
+        for (int i = 0; i < 4; i++) {
+            entities.add(Utils.createExampleMap());
+        }
+        map.put("entities", entities);
+
+        for (DataType<?> value : map.values()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            value.write(new DataOutputStream(bytes));
+            bytes.write(42);
+
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            DataTypeRegistry.skip(value.id(), input);
+            Assertions.assertEquals(42, input.read(), "Skipped too few or too many bytes of type " + value.id());
+        }
+
+        Assertions.assertThrows(IOException.class, () -> DataTypeRegistry.skip(255, new DataInputStream(new ByteArrayInputStream(new byte[4]))));
+    }
+
+    @Test
+    @DisplayName("TypeMismatch")
+    void typeMismatch() throws IOException {
+        try (UboReader reader = new UboReader(new ByteArrayInputStream(encode(new MapType("key", new IntType(3)))))) {
+            reader.next();
+            reader.next();
+            reader.next();
+            Assertions.assertThrows(IOException.class, reader::readLong);
+            Assertions.assertEquals(3, reader.readInt());
+            Assertions.assertThrows(IllegalStateException.class, reader::readInt);
+        }
+    }
+
+    @Test
+    @DisplayName("Writer")
+    void writer() throws IOException {
+        MapType map = Utils.createExampleMap();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (UboWriter writer = new UboWriter(output, true)) {
+            writer.beginMap(map.size());
+            for (Map.Entry<String, DataType<?>> entry : map.getValue().entrySet()) {
+                writer.key(entry.getKey());
+                DataType<?> value = entry.getValue();
+                if (value instanceof IntType) writer.writeInt(((IntType) value).getValue());
+                else if (value instanceof StringType) writer.writeString(((StringType) value).getValue());
+                else if (value instanceof LongArrayType) {
+                    long[] longs = ((LongArrayType) value).getValue();
+                    writer.writeLongArray(longs, 0, longs.length);
+                } else if (value instanceof ListType<?>) {
+                    ListType<?> list = (ListType<?>) value;
+                    writer.beginList(list.type(), list.size());
+                    for (DataType<?> element : list) writer.value(element);
+                    writer.end();
+                } else writer.value(value);
+            }
+            writer.end();
+        }
+
+        Assertions.assertArrayEquals(encode(map), output.toByteArray());
+    }
+
+    @Test
+    @DisplayName("WriterValidation")
+    void writerValidation() throws IOException {
+        UboWriter writer = new UboWriter(new ByteArrayOutputStream(), true);
+        writer.beginMap(1);
+        Assertions.assertThrows(IllegalStateException.class, () -> writer.writeInt(1));
+        writer.key("list").beginList(DataTypes.INT, 2);
+        Assertions.assertThrows(IllegalStateException.class, () -> writer.writeLong(1));
+        writer.writeInt(1);
+        Assertions.assertThrows(IllegalStateException.class, writer::end);
+        writer.writeInt(2);
+        writer.end();
+        Assertions.assertThrows(IllegalStateException.class, () -> writer.key("extra").writeInt(3));
+    }
+}
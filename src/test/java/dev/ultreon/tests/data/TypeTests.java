@@ -1,15 +1,32 @@
 package dev.ultreon.tests.data;
 
+import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.DataTypeRegistry;
+import dev.ultreon.ubo.DataTypes;
 import dev.ultreon.ubo.types.*;
 import dev.ultreon.ubo.types.*;
+import dev.ultreon.ubo.util.CompactMap;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
 
 public class TypeTests {
@@ -50,6 +67,91 @@ public class TypeTests {
         Assertions.assertFalse(iterator.hasNext());
     }
 
+    @Test
+    @DisplayName("PrimitiveListTypes")
+    void primitiveListTypes() {
+        ListType<IntType> ints = new ListType<>();
+        ints.addInt(1);
+        ints.add(new IntType(2));
+        ints.addInt(3);
+        Assertions.assertEquals(3, ints.size());
+        Assertions.assertEquals(2, ints.getInt(1));
+        Assertions.assertEquals(new IntType(3), ints.get(2));
+
+        ints.get(0).setValue(100);
+        Assertions.assertEquals(1, ints.getInt(0));
+        ints.set(0, new IntType(100));
+        Assertions.assertEquals(100, ints.getInt(0));
+
+        ints.getValue().add(1, new IntType(50));
+        Assertions.assertEquals(50, ints.getInt(1));
+        Assertions.assertEquals(2, ints.getInt(2));
+        Assertions.assertEquals(new IntType(50), ints.pop(1));
+        Assertions.assertEquals(3, ints.size());
+
+        ListType<IntType> boxed = new ListType<IntType>(new ArrayList<>(Arrays.asList(new IntType(100), new IntType(2), new IntType(3))));
+        Assertions.assertEquals(boxed, ints);
+        Assertions.assertEquals(boxed.hashCode(), ints.hashCode());
+        Assertions.assertEquals(2, boxed.getInt(1));
+
+        ListType<IntType> copy = ints.copy();
+        copy.addInt(4);
+        Assertions.assertEquals(3, ints.size());
+        Assertions.assertEquals(4, copy.getInt(3));
+
+        int sum = 0;
+        for (IntType value : ints) {
+            sum += value.getValue();
+        }
+        Assertions.assertEquals(105, sum);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> ints.getInt(3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ints.addLong(1));
+
+        ListType<DoubleType> doubles = new ListType<>();
+        doubles.addDouble(0.5);
+        doubles.addDouble(-0.0);
+        Assertions.assertEquals(new DoubleType(-0.0), doubles.get(1));
+        ListType<BooleanType> booleans = new ListType<>();
+        booleans.addBoolean(true);
+        Assertions.assertTrue(booleans.getBoolean(0));
+        ListType<CharType> chars = new ListType<>(new CharType('a'), new CharType('b'));
+        Assertions.assertEquals('b', chars.getChar(1));
+        booleans.clear();
+        Assertions.assertTrue(booleans.isEmpty());
+    }
+
+    @Test
+    @DisplayName("ListStreams")
+    void listStreams() {
+        ListType<IntType> ints = new ListType<>();
+        ListType<StringType> strings = new ListType<>();
+        for (int i = 0; i < 100_000; i++) {
+            ints.addInt(i);
+            strings.add(new StringType(Integer.toString(i)));
+        }
+
+        long sum = 0;
+        for (IntType value : ints) sum += value.getValue();
+        Assertions.assertEquals(4_999_950_000L, sum);
+        Assertions.assertEquals(4_999_950_000L, ints.parallelStream().mapToLong(IntType::getValue).sum());
+        Assertions.assertEquals(4_999_950_000L, strings.parallelStream().mapToLong(value -> Long.parseLong(value.getValue())).sum());
+        Assertions.assertEquals(100_000, strings.stream().count());
+        Assertions.assertNotNull(ints.spliterator().trySplit());
+        Assertions.assertNotNull(strings.spliterator().trySplit());
+
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> {
+            for (IntType value : ints) ints.addInt(value.getValue());
+        });
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> {
+            for (StringType value : strings) strings.remove(0);
+        });
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> strings.iterator().remove());
+
+        ListType<StringType> copy = strings.copy();
+        for (StringType value : copy) value.setValue("changed");
+        Assertions.assertEquals("1", strings.get(0).getValue());
+    }
+
     @Test
     @DisplayName("MapTypes")
     void mapTypes() {
@@ -81,6 +183,349 @@ public class TypeTests {
         Assertions.assertEquals(map.size(), 8);
     }
 
+    @Test
+    @DisplayName("CompactMap")
+    void compactMap() {
+        Random random = new Random(42);
+        Map<String, Integer> expected = new HashMap<>();
+        CompactMap<Integer> map = new CompactMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            String key = "key" + random.nextInt(i < 10_000 ? 12 : 200);
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Assertions.assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            Assertions.assertEquals(expected.size(), map.size());
+        }
+        Assertions.assertEquals(expected, map);
+        Assertions.assertEquals(map, expected);
+        Assertions.assertEquals(expected.hashCode(), map.hashCode());
+        for (String key : expected.keySet()) {
+            Assertions.assertEquals(expected.get(key), map.get(key));
+        }
+        Assertions.assertNull(map.get("missing"));
+
+        map.entrySet().removeIf(entry -> entry.getValue() % 2 == 0);
+        expected.entrySet().removeIf(entry -> entry.getValue() % 2 == 0);
+        Assertions.assertEquals(expected, map);
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            entry.setValue(-entry.getValue());
+        }
+        Assertions.assertEquals(-expected.values().iterator().next(), map.get(expected.keySet().iterator().next()));
+
+        map.clear();
+        Assertions.assertTrue(map.isEmpty());
+        map.put("a", null);
+        Assertions.assertTrue(map.containsKey("a"));
+        Assertions.assertThrows(NullPointerException.class, () -> map.put(null, 1));
+    }
+
+    @Test
+    @DisplayName("CompactMapShapes")
+    void compactMapShapes() {
+        CompactMap.Key health = new CompactMap.Key("health");
+        CompactMap<Integer> first = null;
+        for (int i = 0; i < 100; i++) {
+            CompactMap<Integer> map = new CompactMap<>();
+            for (int k = 0; k < 12; k++) {
+                map.put("key" + k, k);
+            }
+            map.put("health", i);
+            Assertions.assertEquals(i, map.get(health));
+            if (first == null) first = map;
+            Assertions.assertTrue(map.sameKeys(first));
+        }
+
+        CompactMap<Integer> other = new CompactMap<>();
+        other.put("health", 5);
+        other.put("key0", 0);
+        Assertions.assertFalse(other.sameKeys(first));
+        Assertions.assertEquals(5, other.get(health));
+        Assertions.assertEquals(0, first.get(health));
+
+        CompactMap<Integer> removed = new CompactMap<>(first);
+        removed.remove("key3");
+        Assertions.assertNull(removed.get("key3"));
+        Assertions.assertEquals(12, removed.size());
+        Assertions.assertEquals(0, removed.get(health));
+        Assertions.assertEquals(13, first.size());
+        Assertions.assertEquals(3, first.get("key3"));
+
+        // Many maps that differ in one key, built again and again.
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                CompactMap<Integer> map = new CompactMap<>();
+                map.put("variant" + i, i);
+                for (int k = 0; k < 12; k++) {
+                    map.put("key" + k, k);
+                }
+                map.put("key0", -1);
+                Assertions.assertEquals(13, map.size());
+                Assertions.assertEquals(i, map.get("variant" + i));
+                Assertions.assertEquals(-1, map.get("key0"));
+                Assertions.assertNull(map.get(health));
+            }
+        }
+
+        CompactMap<Integer> large = new CompactMap<>();
+        for (int k = 0; k < 200; k++) {
+            large.put("key" + k, k);
+        }
+        Assertions.assertEquals(150, large.get("key150"));
+        large.remove("key150");
+        Assertions.assertNull(large.get("key150"));
+        Assertions.assertEquals(199, large.get("key199"));
+
+        MapType map = new MapType();
+        map.putInt("health", 7);
+        Assertions.assertEquals(new IntType(7), map.get(health));
+        Assertions.assertEquals(new IntType(7), new MapType(new HashMap<>(map.getValue())).get(health));
+    }
+
+    @Test
+    @DisplayName("PersistentMapType")
+    void persistentMapType() {
+        Random random = new Random(42);
+        Map<String, DataType<?>> expected = new HashMap<>();
+        PersistentMapType map = PersistentMapType.empty();
+        for (int i = 0; i < 20_000; i++) {
+            // "Aa" and "BB" have the same hash code, so keys built from them collide.
+            int n = random.nextInt(i < 10_000 ? 64 : 2000);
+            String key = Integer.toBinaryString(n).replace("0", "Aa").replace("1", "BB") + (n % 7 == 0 ? "" : n);
+            PersistentMapType previous = map;
+            if (random.nextInt(3) == 0) {
+                boolean removed = expected.remove(key) != null;
+                map = map.without(key);
+                Assertions.assertEquals(removed, map != previous);
+            } else {
+                expected.put(key, new IntType(i));
+                map = map.with(key, new IntType(i));
+                Assertions.assertNotSame(previous, map);
+            }
+            Assertions.assertEquals(expected.size(), map.size());
+        }
+        Assertions.assertEquals(expected, map.getValue());
+        Assertions.assertEquals(expected.hashCode(), map.hashCode());
+        for (String key : expected.keySet()) {
+            Assertions.assertEquals(expected.get(key), map.get(key));
+        }
+        Assertions.assertNull(map.get("missing"));
+
+        MapType regular = map.toMapType();
+        Assertions.assertEquals(expected, regular.getValue());
+        Assertions.assertEquals(map, PersistentMapType.of(regular));
+        Assertions.assertEquals(map.writeUso().length(), regular.writeUso().length());
+
+        MapType example = Utils.createExampleMap();
+        PersistentMapType version = PersistentMapType.of(example);
+        PersistentMapType next = version.with("integer", new IntType(1)).without("Map");
+        Assertions.assertEquals(new IntType(123456789), version.get("integer"));
+        Assertions.assertTrue(version.contains("Map", DataTypes.MAP));
+        Assertions.assertFalse(next.contains("Map"));
+        ((MapType) version.get("Map")).clear();
+        ((IntArrayType) version.get("integerArray")).getValue()[0] = 1;
+        version.toMapType().getMap("Map").putInt("added", 1);
+        for (Map.Entry<String, DataType<?>> entry : version.getValue().entrySet()) {
+            if (entry.getValue() instanceof MapType) ((MapType) entry.getValue()).putInt("added", 1);
+        }
+        Assertions.assertEquals(example, version.toMapType());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> version.getValue().put("a", new IntType(1)));
+    }
+
+    @Test
+    @DisplayName("ConcurrentTypes")
+    void concurrentTypes() throws Exception {
+        ConcurrentMapType map = new ConcurrentMapType();
+        ConcurrentListType<IntType> list = new ConcurrentListType<>();
+        map.put("list", list);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    map.addInt("count", 1);
+                    map.addLong("total", i);
+                    map.putIfAbsent("first", new IntType(offset));
+                    map.computeMapIfAbsent("nested").putInt("key" + (i % 50), i);
+                    map.putInt("thread" + offset + "-" + (i % 20), i);
+                    if (i % 10 == 0) list.addInt(i);
+                }
+            });
+            threads[t].start();
+        }
+
+        // Writing while the threads change the map must neither fail nor write a broken tree.
+        while (Arrays.stream(threads).anyMatch(Thread::isAlive)) {
+            MapType read = DataIo.read(new ByteArrayInputStream(DataIo.toBytes(map)));
+            Assertions.assertTrue(read.size() <= map.size());
+            Assertions.assertNotNull(map.writeUso());
+            Assertions.assertNotNull(map.copy());
+        }
+        for (Thread thread : threads) thread.join();
+
+        Assertions.assertEquals(4000, map.getInt("count"));
+        Assertions.assertEquals(4 * 999 * 1000 / 2, map.getLong("total"));
+        Assertions.assertEquals(50, map.getMap("nested").size());
+        Assertions.assertEquals(400, list.size());
+        Assertions.assertEquals(map, map.copy());
+        byte[] bytes = DataIo.toBytes(map);
+        MapType read = DataIo.read(new ByteArrayInputStream(bytes));
+        Assertions.assertEquals(map.snapshot(), read);
+        Assertions.assertEquals(map, ConcurrentMapType.read(new DataInputStream(new ByteArrayInputStream(bytes, 7, bytes.length - 7))));
+        MapType indexed = DataIo.read(DataIo.writeIndexed(map));
+        Assertions.assertEquals(read, indexed);
+
+        ConcurrentMapType copy = map.copy();
+        copy.<IntType>getList("list").get(0).setValue(-1);
+        Assertions.assertNotEquals(-1, list.getInt(0));
+    }
+
+    @Test
+    @DisplayName("Copy")
+    void copy() {
+        MapType original = Utils.createExampleMap();
+        MapType expected = Utils.createExampleMap();
+
+        // Values taken out before copying must not reach into the copy.
+        MapType inner = original.getMap("Map");
+        IntType integer = (IntType) original.get("integer");
+        int[] array = original.getIntArray("integerArray");
+        MapType copy = original.copy();
+        inner.putString("name", "Changed");
+        integer.setValue(1);
+        array[0] = 1;
+        Assertions.assertEquals(expected, copy);
+
+        copy.getMap("Map").putInt("copied", 0);
+        copy.getIntArray("integerArray")[1] = 1;
+        Assertions.assertEquals(1, original.getIntArray("integerArray")[0]);
+        Assertions.assertNotEquals(1, original.getIntArray("integerArray")[1]);
+        Assertions.assertFalse(original.getMap("Map").contains("copied", DataTypes.INT));
+    }
+
+    @Test
+    @DisplayName("CopyOnWrite")
+    void copyOnWrite() {
+        MapType original = Utils.createExampleMap();
+        MapType expected = Utils.createExampleMap();
+
+        MapType copy = original.copyOnWrite();
+        Assertions.assertEquals(original, copy);
+        copy.putInt("integer", 1);
+        copy.getMap("Map").putString("name", "Changed");
+        copy.<StringType>getList("List").get(0).setValue("Changed");
+        copy.getIntArray("integerArray")[0] = 1;
+        copy.getBitSet("bitSet").set(63);
+        Assertions.assertEquals(expected, original);
+        Assertions.assertNotEquals(expected, copy);
+
+        MapType snapshot = original.copyOnWrite();
+        original.remove("Map");
+        original.getByteArray("byteArray")[0] = 1;
+        original.<StringType>getList("List").get(1).setValue("Changed");
+        Assertions.assertEquals(expected, snapshot);
+
+        ListType<IntType> ints = new ListType<>(DataTypes.INT);
+        ints.addInt(1);
+        ListType<IntType> intsCopy = ints.copyOnWrite();
+        intsCopy.addInt(2);
+        intsCopy.get(0).setValue(5);
+        Assertions.assertEquals(1, ints.size());
+        Assertions.assertEquals(1, ints.getInt(0));
+        Assertions.assertEquals(2, intsCopy.size());
+
+        ConcurrentMapType concurrent = new ConcurrentMapType();
+        concurrent.putInt("count", 1);
+        MapType parent = new MapType("concurrent", concurrent);
+        MapType parentCopy = parent.copyOnWrite();
+        Assertions.assertInstanceOf(ConcurrentMapType.class, parentCopy.getMap("concurrent"));
+        Assertions.assertInstanceOf(ConcurrentMapType.class, parent.getMap("concurrent"));
+    }
+
+    @Test
+    @DisplayName("Registry")
+    void registry() throws IOException {
+        Assertions.assertEquals(DataTypes.INT, DataTypeRegistry.getId(IntType.class));
+        Assertions.assertEquals(IntType.class, DataTypeRegistry.codec(DataTypes.INT).type());
+        Assertions.assertSame(DataTypeRegistry.codec(DataTypes.MAP), DataTypeRegistry.codec(MapType.class));
+        Assertions.assertEquals(16, DataTypeRegistry.fixedWidth(DataTypes.UUID));
+        Assertions.assertEquals(-1, DataTypeRegistry.fixedWidth(DataTypes.STRING));
+        Assertions.assertNull(DataTypeRegistry.codec(256));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DataTypeRegistry.getId(DataType.class));
+
+        DataTypeRegistry.register(200, RgbType::read, new RgbType[0]);
+        Assertions.assertEquals(200, DataTypeRegistry.getId(RgbType.class));
+        MapType map = new MapType();
+        map.put("color", new RgbType(0x336699));
+        map.put("colors", new ListType<>(new RgbType(1), new RgbType(2)));
+        map.putInt("after", 5);
+        MapType read = DataIo.read(new ByteArrayInputStream(DataIo.toBytes(map)));
+        Assertions.assertEquals(map, read);
+        Assertions.assertEquals(Collections.singleton("after"), DataIo.readProjected(ByteBuffer.wrap(DataIo.toBytes(map)), Collections.singleton("after")).keys());
+
+        DataTypeRegistry.registerSkipper(200, input -> input.skipBytes(3));
+        Assertions.assertEquals(5, DataIo.readProjected(ByteBuffer.wrap(DataIo.toBytes(map)), Collections.singleton("after")).getInt("after"));
+        Assertions.assertEquals(RgbType.class, DataTypeRegistry.getType(200));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DataTypeRegistry.registerSkipper(201, input -> { }));
+    }
+
+    /**
+     * A 24-bit color, registered by {@link #registry()}.
+     */
+    private static final class RgbType implements DataType<Integer> {
+        private int rgb;
+
+        RgbType(int rgb) {
+            this.rgb = rgb;
+        }
+
+        static RgbType read(DataInput input) throws IOException {
+            return new RgbType(input.readUnsignedByte() << 16 | input.readUnsignedShort());
+        }
+
+        @Override
+        public Integer getValue() {
+            return rgb;
+        }
+
+        @Override
+        public void setValue(Integer obj) {
+            rgb = obj;
+        }
+
+        @Override
+        public int id() {
+            return 200;
+        }
+
+        @Override
+        public void write(DataOutput output) throws IOException {
+            output.writeByte(rgb >> 16);
+            output.writeShort(rgb);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RgbType && ((RgbType) other).rgb == rgb;
+        }
+
+        @Override
+        public int hashCode() {
+            return rgb;
+        }
+
+        @Override
+        public RgbType copy() {
+            return new RgbType(rgb);
+        }
+
+        @Override
+        public String writeUso() {
+            return "#" + Integer.toHexString(rgb);
+        }
+    }
+
     @Test
     @DisplayName("PrimitiveTypes")
     void primitiveTypes() {
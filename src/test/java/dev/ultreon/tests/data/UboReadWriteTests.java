@@ -1,17 +1,35 @@
 package dev.ultreon.tests.data;
 
+import dev.ultreon.ubo.DataFlags;
 import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.DataTypeException;
+import dev.ultreon.ubo.DataTypes;
+import dev.ultreon.ubo.UboReader;
+import dev.ultreon.ubo.UboRegionFile;
+import dev.ultreon.ubo.UboView;
 import dev.ultreon.ubo.types.*;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.math.BigDecimal;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Supplier;
 
@@ -130,6 +148,589 @@ class UboReadWriteTests {
         }
     }
 
+    @Test
+    @DisplayName("BulkArrays")
+    void bulkArrays() throws IOException {
+        Random random = new Random(1234);
+        int len = 10_000; // Spans multiple chunks of the bulk codec.
+
+        byte[] bytes = new byte[len];
+        short[] shorts = new short[len];
+        char[] chars = new char[len];
+        int[] ints = new int[len];
+        long[] longs = new long[len];
+        float[] floats = new float[len];
+        double[] doubles = new double[len];
+        random.nextBytes(bytes);
+        for (int i = 0; i < len; i++) {
+            shorts[i] = (short) random.nextInt();
+            chars[i] = (char) random.nextInt();
+            ints[i] = random.nextInt();
+            longs[i] = random.nextLong();
+            floats[i] = random.nextFloat();
+            doubles[i] = random.nextDouble();
+        }
+        floats[7] = Float.intBitsToFloat(0x7fc00123);
+        doubles[7] = Double.longBitsToDouble(0x7ff8000000000123L);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(expected);
+        output.writeInt(len);
+        for (byte v : bytes) output.writeByte(v);
+        output.writeInt(len);
+        for (short v : shorts) output.writeShort(v);
+        output.writeInt(len);
+        for (char v : chars) output.writeChar(v);
+        output.writeInt(len);
+        for (int v : ints) output.writeInt(v);
+        output.writeInt(len);
+        for (long v : longs) output.writeLong(v);
+        output.writeInt(len);
+        for (float v : floats) output.writeFloat(v);
+        output.writeInt(len);
+        for (double v : doubles) output.writeDouble(v);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        DataOutputStream bulkOutput = new DataOutputStream(actual);
+        new ByteArrayType(bytes).write(bulkOutput);
+        new ShortArrayType(shorts).write(bulkOutput);
+        new CharArrayType(chars).write(bulkOutput);
+        new IntArrayType(ints).write(bulkOutput);
+        new LongArrayType(longs).write(bulkOutput);
+        new FloatArrayType(floats).write(bulkOutput);
+        new DoubleArrayType(doubles).write(bulkOutput);
+
+        Assertions.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(actual.toByteArray()));
+        Assertions.assertArrayEquals(bytes, ByteArrayType.read(input).getValue());
+        Assertions.assertArrayEquals(shorts, ShortArrayType.read(input).getValue());
+        Assertions.assertArrayEquals(chars, CharArrayType.read(input).getValue());
+        Assertions.assertArrayEquals(ints, IntArrayType.read(input).getValue());
+        Assertions.assertArrayEquals(longs, LongArrayType.read(input).getValue());
+        Assertions.assertArrayEquals(floats, FloatArrayType.read(input).getValue());
+        Assertions.assertArrayEquals(doubles, DoubleArrayType.read(input).getValue());
+    }
+
+    @Test
+    @DisplayName("Channels")
+    void readWriteChannels() throws IOException {
+        MapType type = Utils.createExampleMap();
+        type.putLongArray("Large", new Random(42).longs(200_000).toArray());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataIo.write(type, stream);
+        byte[] expected = stream.toByteArray();
+
+        ByteArrayOutputStream channelBytes = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(channelBytes)) {
+            DataIo.write(type, channel);
+        }
+        Assertions.assertArrayEquals(expected, channelBytes.toByteArray());
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length + 1);
+        buffer.put(expected).put((byte) 0x7F);
+        ((Buffer) buffer).flip();
+        MapType fromBuffer = DataIo.read(buffer);
+        Assertions.assertEquals(type, fromBuffer);
+        Assertions.assertEquals(expected.length, buffer.position());
+
+        MapType fromChannel = DataIo.read(Channels.newChannel(new ByteArrayInputStream(expected)));
+        Assertions.assertEquals(type, fromChannel);
+
+        Path path = Paths.get("map-channel.ubo");
+        DataIo.write(type, path);
+        Assertions.assertArrayEquals(expected, Files.readAllBytes(path));
+        MapType fromPath = DataIo.read(path);
+        Assertions.assertEquals(type, fromPath);
+
+        // The file isn't left mapped by the read, so it can be truncated and rewritten while the data is still held.
+        MapType small = new MapType("small", new IntType(1));
+        DataIo.write(small, path);
+        MapType rewritten = DataIo.read(path);
+        Assertions.assertEquals(small, rewritten);
+        Assertions.assertEquals(type, fromPath);
+    }
+
+    @Test
+    @DisplayName("LazyMapTypes")
+    void readLazy() throws IOException {
+        MapType type = Utils.createExampleMap();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataIo.write(type, output);
+
+        LazyMapType lazy = DataIo.readLazy(output.toByteArray());
+        int undecoded = lazy.undecoded();
+        Assertions.assertTrue(undecoded > 0);
+        Assertions.assertEquals(123456789, lazy.getInt("integer"));
+        Assertions.assertEquals(undecoded, lazy.undecoded());
+
+        MapType inner = lazy.getMap("Map");
+        Assertions.assertInstanceOf(LazyMapType.class, inner);
+        Assertions.assertEquals("Glitch", inner.getString("name"));
+        Assertions.assertEquals(undecoded - 1, lazy.undecoded());
+
+        // Untouched values are copied as raw bytes.
+        ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+        DataIo.write(lazy, rewritten);
+        Assertions.assertEquals(undecoded - 1, lazy.undecoded());
+        MapType reread = DataIo.read(new ByteArrayInputStream(rewritten.toByteArray()));
+        Assertions.assertEquals(type, reread);
+
+        // Flagged outputs get the values in their own encoding, not the plain raw bytes.
+        byte[] plain = output.toByteArray();
+        for (int flags : new int[]{DataFlags.VARINT, DataFlags.KEY_DICTIONARY, DataFlags.COLUMNAR, DataFlags.LONG_STRINGS, DataFlags.VARINT | DataFlags.KEY_DICTIONARY}) {
+            MapType flagged = DataIo.read(new ByteArrayInputStream(DataIo.toBytes(DataIo.readLazy(plain), flags)));
+            Assertions.assertEquals(type, flagged);
+        }
+
+        LazyMapType copy = lazy.copy();
+        copy.putString("string", "Changed");
+        Assertions.assertEquals("Hello World", lazy.getString("string"));
+        Assertions.assertEquals(type, lazy);
+        Assertions.assertEquals(0, lazy.undecoded());
+    }
+
+    @Test
+    @DisplayName("IndexedFormat")
+    void readIndexed() throws IOException {
+        MapType type = Utils.createExampleMap();
+        type.putString("\u00e9t\u00e9", "Summer");
+        type.putInt("\u0000", 1);
+        ListType<MapType> entities = new ListType<>();
+        for (int i = 0; i < 10; i++) {
+            entities.add(new MapType("id", new IntType(i)));
+        }
+        type.put("entities", entities);
+
+        ByteBuffer buffer = DataIo.writeIndexed(type);
+        MapType read = DataIo.read(buffer.duplicate());
+        Assertions.assertEquals(type, read);
+
+        UboView view = UboView.of(buffer);
+        Assertions.assertEquals(type.size(), view.size());
+        Assertions.assertEquals(123456789, view.getInt("integer", 0));
+        Assertions.assertEquals(-1, view.getInt("string", -1));
+        Assertions.assertEquals(-1, view.getInt("missing", -1));
+        Assertions.assertEquals("Hello World", view.getString("string"));
+        Assertions.assertEquals("Summer", view.getString("\u00e9t\u00e9"));
+        Assertions.assertEquals(1, view.getInt("\u0000", 0));
+        Assertions.assertEquals(7_323_358_494L, view.getMap("Map").getLong("fileSize", 0));
+        Assertions.assertEquals("QTechCommunity", view.getList("List").valueAt(2).asString());
+        Assertions.assertEquals(7, view.getList("entities").valueAt(7).getInt("id", -1));
+        Assertions.assertEquals(type.get("bigDecimal"), view.get("bigDecimal").toDataType());
+
+        for (int i = 0; i < view.size(); i++) {
+            String key = view.keyAt(i);
+            Assertions.assertTrue(view.containsKey(key));
+            Assertions.assertEquals(type.get(key).id(), view.valueAt(i).typeId());
+        }
+
+        Assertions.assertThrows(IOException.class, () -> new UboReader(buffer.duplicate()));
+        Assertions.assertThrows(IOException.class, () -> UboView.of(ByteBuffer.wrap(toBytes(type))));
+    }
+
+    @Test
+    @DisplayName("RegionFiles")
+    void regionFile() throws IOException {
+        Path path = Files.createTempFile("region", ".ubr");
+        Files.delete(path);
+        try {
+            MapType type = Utils.createExampleMap();
+            MapType big = new MapType("data", new ByteArrayType(new byte[3 * UboRegionFile.SECTOR_SIZE]));
+            MapType medium = new MapType("data", new ByteArrayType(new byte[UboRegionFile.SECTOR_SIZE + 1]));
+
+            try (UboRegionFile region = UboRegionFile.open(path, 64)) {
+                Assertions.assertNull(region.<MapType>read(0));
+                region.write(0, big);
+                region.write(1, type, true);
+                Assertions.assertEquals(big, region.<MapType>read(0));
+                Assertions.assertEquals(type, region.<MapType>read(1));
+                Assertions.assertTrue(region.timestamp(1) > 0);
+                Assertions.assertEquals(6, region.usedSectors());
+
+                // Shrinking in place frees three sectors, which fit the next record.
+                region.write(0, type);
+                Assertions.assertEquals(3, region.usedSectors());
+                region.write(2, medium);
+                Assertions.assertEquals(5, region.usedSectors());
+
+                // Growing moves the record to the first run of free sectors that fits.
+                region.write(1, big);
+                region.write(3, type);
+                Assertions.assertEquals(9, region.usedSectors());
+
+                region.delete(1);
+                Assertions.assertFalse(region.has(1));
+            }
+
+            // Trailing free sectors are cut off when the file is opened again, the hole left by slot 1 stays.
+            try (UboRegionFile region = UboRegionFile.open(path)) {
+                Assertions.assertEquals(9L * UboRegionFile.SECTOR_SIZE, Files.size(path));
+                Assertions.assertEquals(64, region.slots());
+                Assertions.assertNull(region.<MapType>read(1));
+                Assertions.assertEquals(type, region.<MapType>read(0));
+                Assertions.assertEquals(medium, region.<MapType>read(2));
+                Assertions.assertEquals(type, region.<MapType>read(3));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    @DisplayName("ProjectedReads")
+    void readProjected() throws IOException {
+        MapType type = Utils.createExampleMap();
+        byte[] bytes = toBytes(type);
+        Set<String> paths = new HashSet<>(Arrays.asList("integer", "Map.name", "Map.highScore", "List", "bigDecimal.scale", "missing.key"));
+
+        MapType expected = new MapType();
+        expected.putInt("integer", 123456789);
+        MapType inner = new MapType();
+        inner.putString("name", "Glitch");
+        inner.putInt("highScore", 7638);
+        expected.put("Map", inner);
+        expected.put("List", type.get("List"));
+
+        Assertions.assertEquals(expected, DataIo.readProjected(new ByteArrayInputStream(bytes), paths));
+        Assertions.assertEquals(expected, DataIo.readProjected(ByteBuffer.wrap(bytes), paths));
+
+        // A shorter path selects the whole subtree.
+        MapType whole = DataIo.readProjected(ByteBuffer.wrap(bytes), new HashSet<>(Arrays.asList("Map.name", "Map")));
+        Assertions.assertEquals(new MapType("Map", type.get("Map")), whole);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DataIo.readProjected(ByteBuffer.wrap(bytes), Collections.singleton("Map..name")));
+    }
+
+    @Test
+    @DisplayName("VarintFlag")
+    void readWriteVarint() throws IOException {
+        MapType type = Utils.createExampleMap();
+        type.putInt("minInt", Integer.MIN_VALUE);
+        type.putInt("maxInt", Integer.MAX_VALUE);
+        type.putLong("minLong", Long.MIN_VALUE);
+        type.putShort("minShort", Short.MIN_VALUE);
+        type.putIntArray("smallInts", new int[]{0, -1, 1, -64, 64, 300, -300});
+        type.putLongArray("smallLongs", new long[]{0, -1, Long.MAX_VALUE, 1L << 40});
+        type.putBigDec("negativeScale", new BigDecimal("1E+12"));
+        ListType<IntType> ints = new ListType<>();
+        for (int i = -100; i < 100; i++) {
+            ints.add(new IntType(i));
+        }
+        type.put("ints", ints);
+
+        byte[] plain = toBytes(type);
+        byte[] compact = DataIo.toBytes(type, DataFlags.VARINT);
+        Assertions.assertTrue(compact.length < plain.length);
+
+        MapType read = DataIo.read(new ByteArrayInputStream(compact));
+        Assertions.assertEquals(type, read);
+        read = DataIo.read(ByteBuffer.wrap(compact));
+        Assertions.assertEquals(type, read);
+
+        MapType projected = DataIo.readProjected(ByteBuffer.wrap(compact), Collections.singleton("Map.fileSize"));
+        Assertions.assertEquals(7_323_358_494L, projected.getMap("Map").getLong("fileSize"));
+
+        Assertions.assertThrows(IOException.class, () -> new UboReader(new ByteArrayInputStream(compact)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DataIo.toBytes(type, 0x80));
+    }
+
+    @Test
+    @DisplayName("ReadWriteKeyDictionary")
+    void readWriteKeyDictionary() throws IOException {
+        MapType type = Utils.createExampleMap();
+        ListType<MapType> entities = new ListType<>();
+        for (int i = 0; i < 100; i++) {
+            MapType entity = new MapType();
+            entity.putInt("id", i);
+            entity.putString("name", "Entity " + i);
+            entity.putDouble("x", i * 0.5);
+            entity.put("Map", Utils.createExampleMap().getMap("Map"));
+            entities.add(entity);
+        }
+        type.put("entities", entities);
+
+        byte[] plain = toBytes(type);
+        byte[] dictionary = DataIo.toBytes(type, DataFlags.KEY_DICTIONARY);
+        byte[] both = DataIo.toBytes(type, DataFlags.KEY_DICTIONARY | DataFlags.VARINT);
+        Assertions.assertTrue(dictionary.length < plain.length);
+        Assertions.assertTrue(both.length < dictionary.length);
+
+        MapType read = DataIo.read(new ByteArrayInputStream(dictionary));
+        Assertions.assertEquals(type, read);
+        read = DataIo.read(ByteBuffer.wrap(both));
+        Assertions.assertEquals(type, read);
+
+        ListType<MapType> readEntities = read.<MapType>getList("entities");
+        String first = readEntities.get(0).keys().stream().filter("name"::equals).findFirst().orElse(null);
+        String last = readEntities.get(99).keys().stream().filter("name"::equals).findFirst().orElse(null);
+        Assertions.assertNotNull(first);
+        Assertions.assertSame(first, last);
+
+        Set<String> paths = new HashSet<>(Arrays.asList("Map.fileSize", "entities"));
+        MapType projected = DataIo.readProjected(ByteBuffer.wrap(both), paths);
+        Assertions.assertEquals(7_323_358_494L, projected.getMap("Map").getLong("fileSize"));
+        Assertions.assertEquals(entities, projected.<MapType>getList("entities"));
+    }
+
+    @Test
+    @DisplayName("ReadWriteColumnar")
+    void readWriteColumnar() throws IOException {
+        MapType type = Utils.createExampleMap();
+        ListType<MapType> entities = new ListType<>();
+        for (int i = 0; i < 100; i++) {
+            MapType entity = new MapType();
+            entity.putInt("id", i);
+            entity.putLong("age", i * 1000L);
+            entity.putDouble("x", i * 0.5);
+            entity.putString("name", "Entity " + i);
+            entity.put("Map", Utils.createExampleMap().getMap("Map"));
+            entities.add(entity);
+        }
+        type.put("entities", entities);
+
+        ListType<MapType> mixed = new ListType<>();
+        mixed.add(new MapType("a", new IntType(1)));
+        mixed.add(new MapType("a", new LongType(1)));
+        mixed.add(new MapType("b", new IntType(1)));
+        type.put("mixed", mixed);
+        type.put("single", new ListType<>(new MapType("a", new IntType(1))));
+        type.put("empty", new ListType<MapType>());
+
+        byte[] plain = toBytes(type);
+        byte[] columnar = DataIo.toBytes(type, DataFlags.COLUMNAR);
+        byte[] all = DataIo.toBytes(type, DataFlags.COLUMNAR | DataFlags.KEY_DICTIONARY | DataFlags.VARINT);
+        Assertions.assertTrue(columnar.length < plain.length);
+        Assertions.assertTrue(all.length < columnar.length);
+
+        MapType read = DataIo.read(new ByteArrayInputStream(columnar));
+        Assertions.assertEquals(type, read);
+        read = DataIo.read(ByteBuffer.wrap(all));
+        Assertions.assertEquals(type, read);
+
+        MapType projected = DataIo.readProjected(ByteBuffer.wrap(all), Collections.singleton("Map.fileSize"));
+        Assertions.assertEquals(7_323_358_494L, projected.getMap("Map").getLong("fileSize"));
+        projected = DataIo.readProjected(ByteBuffer.wrap(columnar), Collections.singleton("mixed"));
+        Assertions.assertEquals(mixed, projected.<MapType>getList("mixed"));
+    }
+
+    @Test
+    @DisplayName("ReadWritePrimitiveLists")
+    void readWritePrimitiveLists() throws IOException {
+        MapType type = new MapType();
+        ListType<ByteType> bytes = new ListType<>();
+        ListType<ShortType> shorts = new ListType<>();
+        ListType<IntType> ints = new ListType<>();
+        ListType<LongType> longs = new ListType<>();
+        ListType<FloatType> floats = new ListType<>();
+        ListType<DoubleType> doubles = new ListType<>();
+        ListType<BooleanType> booleans = new ListType<>();
+        ListType<CharType> chars = new ListType<>();
+        for (int i = -500; i < 500; i++) {
+            bytes.addByte((byte) i);
+            shorts.addShort((short) (i * 60));
+            ints.addInt(i * 4_000_000);
+            longs.addLong(i * 1_000_000_000_000L);
+            floats.addFloat(i / 3f);
+            doubles.addDouble(i / 7.0);
+            booleans.addBoolean(i % 3 == 0);
+            chars.addChar((char) (i + 500));
+        }
+        type.put("bytes", bytes);
+        type.put("shorts", shorts);
+        type.put("ints", ints);
+        type.put("longs", longs);
+        type.put("floats", floats);
+        type.put("doubles", doubles);
+        type.put("booleans", booleans);
+        type.put("chars", chars);
+
+        byte[] plain = toBytes(type);
+        Assertions.assertEquals(plain.length, 7 + type.sizeInBytes());
+        MapType read = DataIo.read(new ByteArrayInputStream(plain));
+        Assertions.assertEquals(type, read);
+        Assertions.assertEquals(-2_000_000_000, read.<IntType>getList("ints").getInt(0));
+
+        read = DataIo.read(ByteBuffer.wrap(DataIo.toBytes(type, DataFlags.VARINT)));
+        Assertions.assertEquals(type, read);
+
+        Assertions.assertEquals(type, DataIo.readLazy(plain));
+        MapType projected = DataIo.readProjected(ByteBuffer.wrap(plain), Collections.singleton("chars"));
+        Assertions.assertEquals(chars, projected.getList("chars", new ListType<CharType>()));
+    }
+
+    @Test
+    @DisplayName("ReadWritePersistentMap")
+    void readWritePersistentMap() throws IOException {
+        MapType type = Utils.createExampleMap();
+        PersistentMapType persistent = PersistentMapType.of(type);
+
+        byte[] bytes = toBytes(persistent);
+        Assertions.assertEquals(bytes.length, 7 + persistent.sizeInBytes());
+        MapType read = DataIo.read(new ByteArrayInputStream(bytes));
+        Assertions.assertEquals(type, read);
+        Assertions.assertEquals(persistent, PersistentMapType.read(new DataInputStream(new ByteArrayInputStream(bytes, 7, bytes.length - 7))));
+        read = DataIo.read(ByteBuffer.wrap(DataIo.toBytes(persistent, DataFlags.VARINT | DataFlags.KEY_DICTIONARY)));
+        Assertions.assertEquals(type, read);
+
+        MapType indexed = DataIo.read(DataIo.writeIndexed(persistent));
+        Assertions.assertEquals(type, indexed);
+    }
+
+    @Test
+    @DisplayName("ReadWriteStrings")
+    void readWriteStrings() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 30_000; i++) {
+            text.append("\u00e9t\u00e9 ");
+        }
+        char[] exact = new char[65535];
+        Arrays.fill(exact, 'a');
+
+        MapType type = new MapType();
+        type.putString("ascii", "Hello World");
+        type.putString("unicode", "\u00c9t\u00e9 \u263A \uD83D\uDE00");
+        type.putString("exact", new String(exact));
+        type.putString("empty", "");
+        type.putInt("after", 5);
+
+        byte[] plain = toBytes(type);
+        Assertions.assertEquals(plain.length, 7 + type.sizeInBytes());
+        MapType read = DataIo.read(new ByteArrayInputStream(plain));
+        Assertions.assertEquals(type, read);
+        read = DataIo.read(ByteBuffer.wrap(plain));
+        Assertions.assertEquals(type, read);
+        Assertions.assertEquals(type, DataIo.readLazy(plain));
+        Assertions.assertEquals(5, DataIo.readProjected(ByteBuffer.wrap(plain), Collections.singleton("after")).getInt("after"));
+        Assertions.assertEquals(new String(exact), UboView.of(DataIo.writeIndexed(type)).getString("exact"));
+
+        // Strings over 65535 bytes need a flag, plain data keeps the unsigned short lengths of older data.
+        MapType longer = type.copy();
+        longer.putString("long", text.toString());
+        Assertions.assertThrows(DataTypeException.class, () -> toBytes(longer));
+        Assertions.assertThrows(DataTypeException.class, () -> DataIo.writeIndexed(longer));
+        for (int flags : new int[]{DataFlags.LONG_STRINGS, DataFlags.VARINT}) {
+            byte[] bytes = DataIo.toBytes(longer, flags);
+            read = DataIo.read(new ByteArrayInputStream(bytes));
+            Assertions.assertEquals(longer, read);
+            read = DataIo.read(ByteBuffer.wrap(bytes));
+            Assertions.assertEquals(longer, read);
+            Assertions.assertEquals(5, DataIo.readProjected(ByteBuffer.wrap(bytes), Collections.singleton("after")).getInt("after"));
+        }
+
+        MapType surrogate = new MapType("broken", new StringType("a\uD800b"));
+        Assertions.assertEquals("a?b", DataIo.<MapType>read(ByteBuffer.wrap(toBytes(surrogate))).getString("broken"));
+    }
+
+    @Test
+    @DisplayName("ReadLegacyStrings")
+    void readLegacyStrings() throws IOException {
+        // A string of exactly 65535 bytes, as written before longer strings were supported.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0xff804269);
+        output.writeShort(3);
+        output.writeByte(DataTypes.STRING);
+        output.writeShort(0xFFFF);
+        for (int i = 0; i < 0xFFFF; i++) output.writeByte('a');
+        output.writeByte(0x7F);
+
+        char[] expected = new char[0xFFFF];
+        Arrays.fill(expected, 'a');
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        StringType read = DataIo.read(buffer);
+        Assertions.assertEquals(new String(expected), read.getValue());
+        Assertions.assertEquals(bytes.size() - 1, buffer.position());
+        StringType streamed = DataIo.read(new ByteArrayInputStream(bytes.toByteArray()));
+        Assertions.assertEquals(new String(expected), streamed.getValue());
+        Assertions.assertArrayEquals(Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1), toBytes(read));
+    }
+
+    @Test
+    @DisplayName("ReadInternedKeys")
+    void readInternedKeys() throws IOException {
+        ListType<MapType> entities = new ListType<>();
+        for (int i = 0; i < 3; i++) {
+            MapType entity = new MapType();
+            entity.putInt("Position", i);
+            entity.putInt("Motion", i * 2);
+            entity.putString("\u00c9tat", "idle");
+            entities.add(entity);
+        }
+        MapType type = new MapType("Entities", entities);
+        byte[] bytes = DataIo.toBytes(type);
+
+        MapType streamed = DataIo.read(new ByteArrayInputStream(bytes));
+        assertSameKeys(streamed);
+        MapType buffered = DataIo.read(ByteBuffer.wrap(bytes));
+        assertSameKeys(buffered);
+        assertSameKeys(DataIo.readLazy(bytes));
+        MapType parsed = DataIo.fromUso(DataIo.toUso(type));
+        assertSameKeys(parsed);
+        Assertions.assertEquals(type, parsed);
+    }
+
+    private static void assertSameKeys(MapType type) {
+        ListType<MapType> entities = type.getList("Entities");
+        Assertions.assertEquals(3, entities.size());
+        for (String key : entities.get(0).keys()) {
+            for (MapType entity : entities) {
+                Assertions.assertSame(key, entity.keys().stream().filter(key::equals).findFirst().orElse(null));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("SizeInBytes")
+    void sizeInBytes() throws IOException {
+        MapType type = Utils.createExampleMap();
+        type.putString("\u00e9t\u00e9", "\u00c9t\u00e9 \u263A \uD83D\uDE00 \uD800");
+        type.putInt("\u0000", 1);
+        Assertions.assertEquals(toBytes(type).length, 7 + type.sizeInBytes());
+
+        type.putString("string", "Longer than Hello World");
+        type.pop("integer");
+        type.getMap("Map").putInt("added", 5);
+        Assertions.assertEquals(toBytes(type).length, 7 + type.sizeInBytes());
+        Assertions.assertArrayEquals(toBytes(type), DataIo.toBytes(type));
+
+        type.clear();
+        Assertions.assertEquals(4, type.sizeInBytes());
+
+        MapType example = Utils.createExampleMap();
+        LazyMapType lazy = DataIo.readLazy(toBytes(example));
+        Assertions.assertEquals(example.sizeInBytes(), lazy.sizeInBytes());
+        Assertions.assertTrue(lazy.undecoded() > 0);
+
+        // Changes to the backing map from outside must not be missed by a cached size.
+        MapType handedOut = new MapType();
+        handedOut.putInt("a", 1);
+        handedOut.sizeInBytes();
+        Map<String, DataType<?>> value = handedOut.getValue();
+        Assertions.assertEquals(toBytes(handedOut).length - 7, handedOut.sizeInBytes());
+        value.put("someLongerKey", new IntType(2));
+        Assertions.assertEquals(toBytes(handedOut).length - 7, handedOut.sizeInBytes());
+        Assertions.assertArrayEquals(toBytes(handedOut), DataIo.toBytes(handedOut));
+
+        Map<String, DataType<?>> backing = new HashMap<>();
+        MapType wrapped = new MapType(backing);
+        Assertions.assertEquals(toBytes(wrapped).length - 7, wrapped.sizeInBytes());
+        backing.put("k", new IntType(3));
+        Assertions.assertEquals(toBytes(wrapped).length - 7, wrapped.sizeInBytes());
+
+        MapType read = DataIo.read(ByteBuffer.wrap(toBytes(Utils.createExampleMap())));
+        Assertions.assertEquals(toBytes(read).length - 7, read.sizeInBytes());
+        read.keys().remove("integer");
+        Assertions.assertEquals(toBytes(read).length - 7, read.sizeInBytes());
+    }
+
+    private static byte[] toBytes(DataType<?> type) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataIo.write(type, output);
+        return output.toByteArray();
+    }
+
     @SafeVarargs
     private static <T extends DataType<?>> void readWriteTest(Supplier<T> supplier, File file, T... typeGetter) throws IOException {
         System.out.println("Writing primitive data for " + file.getName() + "...");
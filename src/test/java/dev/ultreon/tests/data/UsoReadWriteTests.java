@@ -1,6 +1,7 @@
 package dev.ultreon.tests.data;
 
 import dev.ultreon.ubo.DataIo;
+import dev.ultreon.ubo.UsoParser;
 import dev.ultreon.ubo.types.*;
 import dev.ultreon.ubo.types.*;
 import org.junit.jupiter.api.Assertions;
@@ -9,10 +10,13 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.BitSet;
 import java.util.UUID;
 
@@ -63,6 +67,65 @@ class UsoReadWriteTests {
         Assertions.assertEquals(readList, list);
     }
     
+    @Test
+    @DisplayName("MultiLineDocuments")
+    void readMultiLine() throws IOException {
+        String uso = "{\n" +
+                "  \"name\" : \"Steve\",\n" +
+                "  \"health\":20i,\n" +
+                "  \"motion\": (d; -0.5 , 1.0,\n    0.25 ),\n" +
+                "  \"inventory\": [\n    \"dirt\",\n    \"stone\"\n  ],\n" +
+                "  \"letters\": (c; 'a', 'b' ),\n" +
+                "  \"offset\": -3l\n" +
+                "}\n";
+
+        MapType expected = new MapType();
+        expected.putString("name", "Steve");
+        expected.putInt("health", 20);
+        expected.putDoubleArray("motion", new double[]{-0.5, 1.0, 0.25});
+        expected.put("inventory", new ListType<>(new StringType("dirt"), new StringType("stone")));
+        expected.putCharArray("letters", new char[]{'a', 'b'});
+        expected.putLong("offset", -3);
+
+        MapType read = DataIo.fromUso(uso);
+        Assertions.assertEquals(expected, read);
+        MapType streamed = DataIo.readUso(new StringReader(uso));
+        Assertions.assertEquals(expected, streamed);
+    }
+
+    @Test
+    @DisplayName("TrailingContent")
+    void readTrailingContent() throws IOException {
+        MapType read = DataIo.fromUso("{\"a\": 1i}\n  ");
+        Assertions.assertEquals(new MapType("a", new IntType(1)), read);
+
+        Assertions.assertThrows(IOException.class, () -> DataIo.fromUso("{\"a\": 1i}\n  garbage ]]]"));
+        Assertions.assertThrows(IOException.class, () -> DataIo.readUso(new StringReader("5i 6i")));
+        Assertions.assertThrows(IOException.class, () -> DataIo.fromUso("true false"));
+    }
+
+    @Test
+    @DisplayName("LargeDocuments")
+    void readLargeDocument() throws IOException {
+        ListType<MapType> list = new ListType<>();
+        for (int i = 0; i < 5000; i++) {
+            MapType entry = new MapType();
+            entry.putInt("id", i);
+            entry.putString("name", "Entry " + i);
+            entry.putIntArray("data", new int[]{i, i * 2, i * 3});
+            entry.put("meta", new MapType("index", new IntType(i)));
+            list.add(entry);
+        }
+        // Spread the document over many lines, and well over one read window.
+        String uso = DataIo.toUso(list).replace(", ", ",\n  ");
+
+        Path path = new File("large.uso").toPath();
+        Files.write(path, uso.getBytes(StandardCharsets.UTF_8));
+        ListType<MapType> read = DataIo.readUso(path);
+        Assertions.assertEquals(list, read);
+        Assertions.assertEquals(list, new UsoParser(CharBuffer.wrap(uso)).parse());
+    }
+
     @Test
     @DisplayName("PrimitiveTypes")
     void readWritePrimitive() {
@@ -16,5 +16,8 @@ class VisitiorTests {
         MapType deepCopied = DataTypeVisitor.deepCopy(original);
         Assertions.assertEquals(original, deepCopied);
         Assertions.assertNotSame(original, deepCopied);
+
+        deepCopied.getMap("Map").putInt("highScore", 0);
+        Assertions.assertEquals(Utils.createExampleMap(), original);
     }
 }